@@ -3,6 +3,8 @@
 #
 VERSION=1.0-SNAPSHOT
 JAR_FILE=target/datafaker-cli-${VERSION}-mainClass.jar 
+# AppCDS archive created by the build, see pom.xml
+CDS_ARCHIVE=target/datafaker-cli-${VERSION}-mainClass.jsa
 
 # Sample JPDA settings for remote socket debugging
 #JAVA_DEBUG="-agentlib:jdwp=transport=dt_socket,address=8787,server=y,suspend=n"
@@ -12,6 +14,13 @@ JAVA_DEBUG=
 #JAVA_DEBUG="-agentlib:jdwp=transport=dt_shmem,server=y,suspend=y,address=datafaker-cli"
 
 
+# Use the AppCDS archive if present, it is ignored silently if it does not
+# match the jar file, or the jvm
+JAVA_CDS=
+if [ -f "${CDS_ARCHIVE}" ]; then
+  JAVA_CDS="-XX:SharedArchiveFile=${CDS_ARCHIVE} -Xlog:cds=off -Xlog:cds+dynamic=off"
+fi
+
 #
-$JAVA_HOME/bin/java ${JAVA_DEBUG} -jar ${JAR_FILE} "$@"
+$JAVA_HOME/bin/java ${JAVA_DEBUG} ${JAVA_CDS} -jar ${JAR_FILE} "$@"
 
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import net.datafaker.Faker;
+import org.huberb.datafaker.cli.DataFormatProcessor.ExpressionInternal;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatEnum;
+import org.huberb.datafaker.cli.OutputWriters.ChannelWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measure formatting records by {@link DataFormatProcessor}, for each
+ * {@link FormatEnum}.
+ * <p>
+ * One operation is one record, thus the score is records per second. Run
+ * using the gc profiler, the metric {@code gc.alloc.rate.norm} is the
+ * allocation per record.
+ *
+ * @author berni3
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class DataFormatProcessorBenchmark {
+
+    /**
+     * Records formatted per benchmark invocation.
+     */
+    static final int RECORDS = 100;
+
+    /**
+     * Width of the schema.
+     */
+    public enum Schema {
+        narrow(2), wide(200);
+
+        final int countOfFields;
+
+        Schema(int countOfFields) {
+            this.countOfFields = countOfFields;
+        }
+    }
+
+    /**
+     * Data modes, as of {@link DatafakerCli.DataModes}.
+     */
+    public enum DataMode {
+        sample, expression, sampleProvider
+    }
+
+    /**
+     * Expressions of the expression data mode, repeated for wide schemas.
+     */
+    static final List<String> EXPRESSIONS = Collections.unmodifiableList(Arrays.asList(
+            "#{Name.fullName}",
+            "#{Address.city}",
+            "#{Internet.emailAddress}",
+            "#{PhoneNumber.cellPhone}",
+            "#{Company.name}",
+            "#{numerify '####'}",
+            "#{Address.streetAddress}",
+            "#{Name.firstName} #{Name.lastName}"));
+
+    /**
+     * Providers of the sampleProvider data mode, the methods are repeated for
+     * wide schemas.
+     */
+    static final List<String> SAMPLE_PROVIDERS = Collections.unmodifiableList(Arrays.asList(
+            "Name", "Address", "Internet", "Company", "Commerce"));
+
+    @Param
+    public FormatEnum format;
+    @Param
+    public Schema schema;
+    @Param
+    public DataMode dataMode;
+
+    private DataFormatProcessor dataFormatProcessor;
+
+    @Setup
+    public void setUp() {
+        final Faker faker = new Faker(Locale.ENGLISH, new Random(4711L));
+        dataFormatProcessor = new DataFormatProcessor(faker, RECORDS);
+        final int countOfFields = schema.countOfFields;
+        if (dataMode == DataMode.sample) {
+            final SamplesGenerator samplesGenerator = new SamplesGenerator();
+            dataFormatProcessor.addExpressionsFromFakerFunction(f -> widen(samplesGenerator.sampleExpressions(f), countOfFields));
+        } else if (dataMode == DataMode.expression) {
+            final List<String> expressions = new ArrayList<>();
+            for (int i = 0; i < countOfFields; i++) {
+                expressions.add(String.format("c%03d:%s", i, EXPRESSIONS.get(i % EXPRESSIONS.size())));
+            }
+            dataFormatProcessor.addExpressionsFromStringList(expressions);
+        } else if (dataMode == DataMode.sampleProvider) {
+            final SamplesGenerator samplesGenerator = new SamplesGenerator();
+            final List<Method> methodList = samplesGenerator.sampleProviderMethods(SAMPLE_PROVIDERS);
+            final Function<Faker, List<ExpressionInternal>> f = faker1 -> widen(
+                    samplesGenerator.sampleProviderAsExpressionInternalList(faker1, methodList), countOfFields);
+            dataFormatProcessor.addExpressionsFromFakerFunction(f);
+        }
+    }
+
+    /**
+     * Repeat expressions up to the given count of fields, using unique field
+     * names.
+     */
+    static List<ExpressionInternal> widen(List<ExpressionInternal> expressions, int countOfFields) {
+        final List<ExpressionInternal> result = new ArrayList<>(countOfFields);
+        for (int i = 0; i < countOfFields; i++) {
+            final ExpressionInternal ei = expressions.get(i % expressions.size());
+            result.add(new ExpressionInternal(String.format("c%03d_%s", i, ei.fieldname), ei.expressionSupplier));
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void format(Blackhole blackhole) throws IOException {
+        final Writer w = format.isBinary()
+                ? new ChannelWriter(new BlackholeChannel(blackhole), StandardCharsets.UTF_8, 64 * 1024)
+                : new BlackholeWriter(blackhole);
+        dataFormatProcessor.format(format, Collections.emptyMap(), w);
+    }
+
+    /**
+     * Channel consuming all output of binary formats, without keeping it.
+     */
+    static class BlackholeChannel implements WritableByteChannel {
+
+        private final Blackhole blackhole;
+
+        BlackholeChannel(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            final int length = src.remaining();
+            if (length > 0) {
+                blackhole.consume(src.get(src.limit() - 1));
+                src.position(src.limit());
+            }
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Writer consuming all output, without keeping it.
+     */
+    static class BlackholeWriter extends Writer {
+
+        private final Blackhole blackhole;
+
+        BlackholeWriter(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            blackhole.consume(cbuf);
+            blackhole.consume(len);
+        }
+
+        @Override
+        public void write(String str) {
+            blackhole.consume(str);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            blackhole.consume(str);
+            blackhole.consume(len);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            blackhole.consume(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import net.datafaker.Faker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare evaluating an expression by {@link Faker#expression(String)}, and
+ * by a compiled expression.
+ *
+ * @author berni3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class ExpressionCompilerBenchmark {
+
+    @Param({
+        "#{Name.fullName}",
+        "#{Address.city}",
+        "#{Name.firstName} #{Name.lastName}",
+        "#{numerify '###'}"})
+    public String expression;
+
+    private Faker faker;
+    private Supplier<String> compiledSupplier;
+
+    @Setup
+    public void setUp() {
+        faker = new Faker(Locale.ENGLISH, new Random(4711L));
+        compiledSupplier = ExpressionCompiler.compile(expression).bind(faker);
+    }
+
+    @Benchmark
+    public String fakerExpression() {
+        return faker.expression(expression);
+    }
+
+    @Benchmark
+    public String compiledExpression() {
+        return compiledSupplier.get();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import net.datafaker.Faker;
+import org.huberb.datafaker.cli.Adapters.FakerFactory;
+import org.huberb.datafaker.cli.Adapters.FakerPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare creating a faker, and borrowing a warm faker of a
+ * {@link FakerPool}, each evaluating a few values.
+ * <p>
+ * The first evaluations of a created faker load the yaml files of its
+ * locale.
+ *
+ * @author berni3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class FakerPoolBenchmark {
+
+    @Param({"en", "de", "de-AT", "fr"})
+    public String languageTag;
+
+    private Locale locale;
+    private FakerPool fakerPool;
+
+    @Setup
+    public void setUp() {
+        locale = Locale.forLanguageTag(languageTag);
+        fakerPool = new FakerPool(FakerPool.DEFAULT_MAX_SIZE);
+        fakerPool.giveBack(locale, fakerPool.borrow(locale));
+    }
+
+    static String evaluate(Faker faker) {
+        return faker.name().fullName() + faker.address().fullAddress() + faker.company().name();
+    }
+
+    @Benchmark
+    public String create() {
+        return evaluate(FakerFactory.createFakerFromLocale(locale, 4711L));
+    }
+
+    @Benchmark
+    public String pooled() {
+        final Faker faker = fakerPool.borrow(locale, 4711L);
+        try {
+            return evaluate(faker);
+        } finally {
+            fakerPool.giveBack(locale, faker);
+        }
+    }
+}
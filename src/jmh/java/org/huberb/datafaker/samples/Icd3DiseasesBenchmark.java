@@ -0,0 +1,65 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.samples;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import net.datafaker.Faker;
+import org.huberb.datafaker.cli.Adapters.FakerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare uniform icd codes with weighted icd codes, sampled by an
+ * {@link AliasSampler}.
+ *
+ * @author berni3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class Icd3DiseasesBenchmark {
+
+    private Icd3Diseases icd3Diseases;
+
+    @Setup
+    public void setUp() {
+        final Faker faker = FakerFactory.createFakerFromLocale(Locale.GERMAN, 4711L);
+        icd3Diseases = Faker.getProvider(Icd3Diseases.class, Icd3Diseases::new, faker);
+        icd3Diseases.icdCodeWeighted();
+    }
+
+    @Benchmark
+    public String icdCode() {
+        return icd3Diseases.icdCode();
+    }
+
+    @Benchmark
+    public String icdCodeWeighted() {
+        return icd3Diseases.icdCodeWeighted();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.samples;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import net.datafaker.Faker;
+import org.huberb.datafaker.cli.Adapters.FakerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare {@link SvnrProvider#svnr()} with the bulk api
+ * {@link SvnrProvider#fillSvnrs(char[], int, int)}, measured per svnr.
+ *
+ * @author berni3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class SvnrProviderBenchmark {
+
+    private static final int COUNT = 1024;
+
+    private SvnrProvider svnrProvider;
+    private char[] chars;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        final Faker faker = FakerFactory.createFakerFromLocale(Locale.GERMAN, 4711L);
+        svnrProvider = Faker.getProvider(SvnrProvider.class, SvnrProvider::new, faker);
+        chars = new char[COUNT * SvnrProvider.SVNR_LENGTH];
+        bytes = new byte[COUNT * SvnrProvider.SVNR_LENGTH];
+    }
+
+    @Benchmark
+    public String svnr() {
+        return svnrProvider.svnr();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public char[] fillSvnrsChars() {
+        svnrProvider.fillSvnrs(chars, 0, COUNT);
+        return chars;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public byte[] fillSvnrsBytes() {
+        svnrProvider.fillSvnrs(bytes, 0, COUNT);
+        return bytes;
+    }
+}
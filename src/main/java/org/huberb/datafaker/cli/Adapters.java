@@ -15,12 +15,20 @@
  */
 package org.huberb.datafaker.cli;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import net.datafaker.Faker;
+import net.datafaker.service.RandomService;
 
 /**
  * Adopting faker-api.
@@ -37,6 +45,12 @@ public class Adapters {
      */
     public static class FakerFactory {
 
+        /**
+         * Random instance shared by all fakers created without a random
+         * instance of their own.
+         */
+        private static final Random SHARED_RANDOM = new RandomService().getRandomInternal();
+
         /**
          * Create faker instance from language tag.
          * <p>
@@ -62,11 +76,200 @@ public class Adapters {
             return new Faker(locale);
         }
 
+        /**
+         * Create faker instance from language tag, and a seed.
+         * <p>
+         * The faker uses its own random instance initialized by the seed.
+         *
+         * @param languageTag
+         * @param seed
+         * @return a {@link Faker} instance
+         * @see #createFakerFromLocale(java.lang.String)
+         */
+        public static Faker createFakerFromLocale(String languageTag, long seed) {
+            Locale locale = Locale.forLanguageTag(languageTag);
+            return createFakerFromLocale(locale, seed);
+        }
+
+        /**
+         * Create a faker instance for a given {@link  Locale} instance, and a
+         * seed.
+         * <p>
+         * The faker uses its own random instance initialized by the seed.
+         *
+         * @param locale
+         * @param seed
+         * @return a {@link Faker} instance
+         */
+        public static Faker createFakerFromLocale(Locale locale, long seed) {
+            return new Faker(locale, new Random(seed));
+        }
+
+        /**
+         * Return true if a faker uses a random instance of its own.
+         * <p>
+         * A faker created without a random instance, like by
+         * {@link #createFakerFromLocale(Locale)}, uses the random instance
+         * shared by all such fakers of the JVM. Seeding it would change the
+         * values of all these fakers.
+         *
+         * @param faker
+         * @return
+         */
+        public static boolean ownsRandom(Faker faker) {
+            return faker.random().getRandomInternal() != SHARED_RANDOM;
+        }
+
+        /**
+         * Return the process-wide pool of faker instances.
+         *
+         * @return
+         * @see FakerPool
+         */
+        public static FakerPool sharedPool() {
+            return FakerPool.SHARED;
+        }
+
         private FakerFactory() {
         }
 
     }
 
+    /**
+     * Pool of warm faker instances per locale.
+     * <p>
+     * Creating a faker is cheap, but its first evaluations load, and merge the
+     * yaml files of its locale, as each faker has a dictionary of its own.
+     * A pooled faker keeps its loaded dictionary, thus a borrowed faker, which
+     * was returned before, evaluates without loading.
+     * <p>
+     * A borrowed faker is confined to the borrowing thread until it is
+     * returned, as a faker is not thread safe. The pool keeps up to max size
+     * idle fakers, evicting the idle fakers of the least recently used locale
+     * first.
+     * <p>
+     * Each pooled faker uses a random instance of its own. A faker borrowed
+     * with a seed has its random instance seeded, and evaluates like a faker
+     * created by {@link FakerFactory#createFakerFromLocale(Locale, long)}.
+     * <p>
+     * Instances are thread safe.
+     */
+    public static class FakerPool {
+
+        /**
+         * Default maximum number of idle fakers.
+         */
+        public static final int DEFAULT_MAX_SIZE = 32;
+        static final FakerPool SHARED = new FakerPool(DEFAULT_MAX_SIZE);
+
+        private final int maxSize;
+        /**
+         * Idle fakers by locale, in least recently used order.
+         */
+        private final LinkedHashMap<Locale, Deque<Faker>> idleFakers = new LinkedHashMap<>(16, 0.75f, true);
+        private int size;
+
+        /**
+         * Create a new instance.
+         *
+         * @param maxSize maximum number of idle fakers of all locales
+         */
+        public FakerPool(int maxSize) {
+            this.maxSize = Math.max(0, maxSize);
+        }
+
+        /**
+         * Take an idle faker of a locale, or create a new one.
+         *
+         * @param locale
+         * @return
+         */
+        public Faker borrow(Locale locale) {
+            synchronized (this) {
+                final Deque<Faker> fakers = idleFakers.get(locale);
+                if (fakers != null && !fakers.isEmpty()) {
+                    size -= 1;
+                    return fakers.pollFirst();
+                }
+            }
+            return FakerFactory.createFakerFromLocale(locale, ThreadLocalRandom.current().nextLong());
+        }
+
+        /**
+         * Take an idle faker of a locale, or create a new one, having its
+         * random instance seeded.
+         * <p>
+         * Pooled fakers use a random instance of their own, see
+         * {@link #giveBack(Locale, Faker)}, thus seeding does not change any
+         * other faker.
+         *
+         * @param locale
+         * @param seed
+         * @return
+         */
+        public Faker borrow(Locale locale, long seed) {
+            final Faker faker = borrow(locale);
+            faker.random().getRandomInternal().setSeed(seed);
+            return faker;
+        }
+
+        /**
+         * Return a borrowed faker.
+         * <p>
+         * Only fakers using a random instance of their own are accepted, see
+         * {@link FakerFactory#ownsRandom(Faker)}.
+         *
+         * @param locale locale the faker was borrowed for
+         * @param faker
+         * @throws IllegalArgumentException if the faker uses the shared random
+         * instance
+         */
+        public synchronized void giveBack(Locale locale, Faker faker) {
+            if (!FakerFactory.ownsRandom(faker)) {
+                throw new IllegalArgumentException("Cannot pool a faker using the shared random instance");
+            }
+            idleFakers.computeIfAbsent(locale, l -> new ArrayDeque<>()).offerFirst(faker);
+            size += 1;
+            // evict the least recently used idle fakers
+            final Iterator<Deque<Faker>> it = idleFakers.values().iterator();
+            while (size > maxSize && it.hasNext()) {
+                final Deque<Faker> fakers = it.next();
+                while (size > maxSize && !fakers.isEmpty()) {
+                    fakers.pollLast();
+                    size -= 1;
+                }
+                if (fakers.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+
+        /**
+         * Return the number of idle fakers of a locale.
+         *
+         * @param locale
+         * @return
+         */
+        public synchronized int countOfIdle(Locale locale) {
+            // not using get, counting does not change the order of use
+            for (Map.Entry<Locale, Deque<Faker>> e : idleFakers.entrySet()) {
+                if (e.getKey().equals(locale)) {
+                    return e.getValue().size();
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Return the number of idle fakers of all locales.
+         *
+         * @return
+         */
+        public synchronized int size() {
+            return size;
+        }
+    }
+
     /**
      * Suppliers providing an instance of {@link Locale}.
      */
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatEnum;
+import org.huberb.datafaker.cli.DatafakerCli.AvailableModes;
+import picocli.CommandLine;
+
+/**
+ * Training run of {@link DatafakerCli} for creating an AppCDS archive.
+ * <p>
+ * Runs typical invocations in a single jvm, thus the classes loaded by these
+ * invocations are archived, eg.
+ * {@code java -XX:ArchiveClassesAtExit=app.jsa -cp datafaker-cli.jar org.huberb.datafaker.cli.AppCdsTraining}.
+ * Output of the invocations is discarded.
+ *
+ * @author berni3
+ */
+public final class AppCdsTraining {
+
+    private AppCdsTraining() {
+    }
+
+    /**
+     * Run the training invocations.
+     *
+     * @param args ignored
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        final PrintStream originalOut = System.out;
+        final PrintStream originalErr = System.err;
+        final PrintStream nullPrintStream = new PrintStream(OutputStream.nullOutputStream());
+        final File outputFile = File.createTempFile("datafaker-cli-training", ".txt");
+        int failures = 0;
+        try {
+            System.setOut(nullPrintStream);
+            System.setErr(nullPrintStream);
+            for (String[] invocation : invocations(outputFile)) {
+                final CommandLine commandLine = new CommandLine(new DatafakerCli());
+                commandLine.setOut(new PrintWriter(Writer.nullWriter()));
+                commandLine.setErr(new PrintWriter(Writer.nullWriter()));
+                if (commandLine.execute(invocation) != 0) {
+                    failures += 1;
+                }
+            }
+        } finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+            outputFile.delete();
+        }
+        System.out.format("AppCDS training: %d invocations failed%n", failures);
+    }
+
+    /**
+     * Return the command line arguments of the training invocations.
+     *
+     * @param outputFile
+     * @return
+     */
+    static List<String[]> invocations(File outputFile) {
+        final List<String[]> result = new ArrayList<>();
+        result.add(new String[]{"--help"});
+        for (AvailableModes availableModes : AvailableModes.values()) {
+            result.add(new String[]{"-a", availableModes.name()});
+        }
+        for (FormatEnum formatEnum : FormatEnum.values()) {
+            result.add(new String[]{"-f", formatEnum.name()});
+            result.add(new String[]{"-f", formatEnum.name(), "-e", "expression", "#{Name.fullName}", "#{Address.city}", "#{numerify '##'}"});
+        }
+        result.add(new String[]{"-e", "sampleProvider", "Name", "Address"});
+        result.add(new String[]{"-l", "de-AT", "-c", "10", "-f", "json"});
+        result.add(new String[]{"--seed", "1", "--threads", "2", "-c", "10"});
+        result.add(new String[]{"-o", outputFile.getPath(), "-c", "10"});
+        result.add(new String[]{"--compress", "-c", "10"});
+        result.add(new String[]{"-f", "csv", "--format-parameter", "header=false"});
+        return result;
+    }
+}
@@ -0,0 +1,550 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writer of the Arrow IPC streaming format, having utf-8 string columns only.
+ * <p>
+ * The stream consists of a schema message, record batches, and the
+ * end-of-stream marker, see
+ * <a href="https://arrow.apache.org/docs/format/Columnar.html#ipc-streaming-format">IPC
+ * streaming format</a>. The flatbuffers metadata of the messages is encoded by
+ * {@link FlatBufferEncoder}, thus no Arrow library is needed.
+ * <p>
+ * Values of a record batch are collected column by column into reusable
+ * buffers, and written to the channel as a whole on completing the batch.
+ *
+ * @author berni3
+ */
+class ArrowStreamWriter {
+
+    /**
+     * Metadata version V5.
+     */
+    static final short METADATA_VERSION = 4;
+    static final byte MESSAGE_HEADER_SCHEMA = 1;
+    static final byte MESSAGE_HEADER_RECORD_BATCH = 3;
+    static final byte TYPE_UTF8 = 5;
+    static final int CONTINUATION_MARKER = 0xFFFFFFFF;
+
+    private final WritableByteChannel channel;
+    private final String[] fieldnames;
+    private final int batchSize;
+    private final ColumnBuffer[] columns;
+    private ByteBuffer messageBuffer;
+    private int rowCount;
+
+    /**
+     * Create a new instance.
+     *
+     * @param channel
+     * @param fieldnames names of the utf-8 columns
+     * @param batchSize maximum number of rows of a record batch
+     */
+    ArrowStreamWriter(WritableByteChannel channel, String[] fieldnames, int batchSize) {
+        this.channel = channel;
+        this.fieldnames = fieldnames;
+        this.batchSize = Math.max(batchSize, 1);
+        this.columns = new ColumnBuffer[fieldnames.length];
+        for (int i = 0; i < fieldnames.length; i++) {
+            this.columns[i] = new ColumnBuffer(this.batchSize);
+        }
+        this.messageBuffer = ByteBuffer.allocateDirect(4 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        this.rowCount = 0;
+    }
+
+    /**
+     * Write the schema message.
+     *
+     * @throws IOException
+     */
+    void writeSchema() throws IOException {
+        writeMessage(encodeSchemaMessage(fieldnames), new ColumnBuffer[0]);
+    }
+
+    /**
+     * Add a row to the current record batch, and write the batch if it is
+     * complete.
+     *
+     * @param record field values, a null value is a null
+     * @throws IOException
+     */
+    void writeRow(String[] record) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].add(rowCount, record[i]);
+        }
+        rowCount += 1;
+        if (rowCount == batchSize) {
+            writeRecordBatch();
+        }
+    }
+
+    /**
+     * Write the incomplete record batch, if any, and the end-of-stream marker.
+     *
+     * @throws IOException
+     */
+    void finish() throws IOException {
+        if (rowCount > 0) {
+            writeRecordBatch();
+        }
+        final ByteBuffer eos = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        eos.putInt(CONTINUATION_MARKER).putInt(0).flip();
+        writeFully(eos);
+    }
+
+    private void writeRecordBatch() throws IOException {
+        writeMessage(encodeRecordBatchMessage(rowCount, columns), columns);
+        for (ColumnBuffer column : columns) {
+            column.clear();
+        }
+        rowCount = 0;
+    }
+
+    /**
+     * Write an encapsulated message: continuation marker, metadata length,
+     * padded metadata, and body.
+     */
+    private void writeMessage(byte[] metadata, ColumnBuffer[] bodyColumns) throws IOException {
+        final int paddedMetadataLength = pad8(metadata.length);
+        long bodyLength = 0;
+        for (ColumnBuffer column : bodyColumns) {
+            bodyLength += column.bodyLength(rowCount);
+        }
+        ensureMessageBuffer(8 + paddedMetadataLength + bodyLength);
+        final ByteBuffer bb = messageBuffer;
+        bb.clear();
+        bb.putInt(CONTINUATION_MARKER);
+        bb.putInt(paddedMetadataLength);
+        bb.put(metadata);
+        padTo8(bb, metadata.length);
+        for (ColumnBuffer column : bodyColumns) {
+            column.writeBody(bb, rowCount);
+        }
+        bb.flip();
+        writeFully(bb);
+    }
+
+    private void ensureMessageBuffer(long length) {
+        if (length > messageBuffer.capacity()) {
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException(String.format("Record batch too large: %d bytes", length));
+            }
+            final int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(length, 2L * messageBuffer.capacity()));
+            messageBuffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private void writeFully(ByteBuffer bb) throws IOException {
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+    }
+
+    static int pad8(int length) {
+        return (length + 7) & ~7;
+    }
+
+    static long pad8(long length) {
+        return (length + 7) & ~7L;
+    }
+
+    private static void padTo8(ByteBuffer bb, long length) {
+        for (long i = length; i < pad8(length); i++) {
+            bb.put((byte) 0);
+        }
+    }
+
+    /**
+     * Encode the flatbuffers metadata of a schema message.
+     *
+     * @param fieldnames
+     * @return
+     */
+    static byte[] encodeSchemaMessage(String[] fieldnames) {
+        final FlatBufferEncoder.Table[] fields = new FlatBufferEncoder.Table[fieldnames.length];
+        for (int i = 0; i < fieldnames.length; i++) {
+            fields[i] = new FlatBufferEncoder.Table()
+                    .addString(0, fieldnames[i])
+                    .addBoolean(1, true)
+                    .addByte(2, TYPE_UTF8)
+                    .addTable(3, new FlatBufferEncoder.Table())
+                    .addTableVector(5, new FlatBufferEncoder.Table[0]);
+        }
+        final FlatBufferEncoder.Table schema = new FlatBufferEncoder.Table()
+                .addTableVector(1, fields);
+        final FlatBufferEncoder.Table message = new FlatBufferEncoder.Table()
+                .addShort(0, METADATA_VERSION)
+                .addByte(1, MESSAGE_HEADER_SCHEMA)
+                .addTable(2, schema)
+                .addLong(3, 0L);
+        return FlatBufferEncoder.encode(message);
+    }
+
+    /**
+     * Encode the flatbuffers metadata of a record batch message.
+     * <p>
+     * Each column has a field node, and three buffers: validity bitmap,
+     * offsets, and data. Buffers are located consecutively in the body, each
+     * padded to a multiple of 8 bytes.
+     */
+    static byte[] encodeRecordBatchMessage(int rowCount, ColumnBuffer[] columns) {
+        final ByteBuffer nodes = ByteBuffer.allocate(16 * columns.length).order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer buffers = ByteBuffer.allocate(3 * 16 * columns.length).order(ByteOrder.LITTLE_ENDIAN);
+        long bodyOffset = 0;
+        for (ColumnBuffer column : columns) {
+            nodes.putLong(rowCount).putLong(column.nullCount);
+            final long[] bufferLengths = {
+                column.nullCount > 0 ? column.validityLength(rowCount) : 0,
+                4L * (rowCount + 1),
+                column.dataLength};
+            for (long bufferLength : bufferLengths) {
+                buffers.putLong(bodyOffset).putLong(bufferLength);
+                bodyOffset += pad8(bufferLength);
+            }
+        }
+        final FlatBufferEncoder.Table recordBatch = new FlatBufferEncoder.Table()
+                .addLong(0, rowCount)
+                .addStructVector(1, nodes.array(), 16)
+                .addStructVector(2, buffers.array(), 16);
+        final FlatBufferEncoder.Table message = new FlatBufferEncoder.Table()
+                .addShort(0, METADATA_VERSION)
+                .addByte(1, MESSAGE_HEADER_RECORD_BATCH)
+                .addTable(2, recordBatch)
+                .addLong(3, bodyOffset);
+        return FlatBufferEncoder.encode(message);
+    }
+
+    /**
+     * Buffers of a utf-8 column of a record batch: validity bitmap, int32
+     * offsets, and utf-8 data.
+     */
+    static class ColumnBuffer {
+
+        /**
+         * Initial capacity in rows, the buffers grow up to the batch size.
+         */
+        static final int INITIAL_ROWS = 1024;
+
+        private byte[] validity;
+        private int[] offsets;
+        private byte[] data;
+        int dataLength;
+        int nullCount;
+
+        ColumnBuffer(int batchSize) {
+            final int rows = Math.min(batchSize, INITIAL_ROWS);
+            this.validity = new byte[(rows + 7) / 8];
+            this.offsets = new int[rows + 1];
+            this.data = new byte[16 * rows];
+            this.dataLength = 0;
+            this.nullCount = 0;
+        }
+
+        void add(int row, String value) {
+            if (row + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+                validity = Arrays.copyOf(validity, (offsets.length + 7) / 8);
+            }
+            if (value == null) {
+                nullCount += 1;
+                validity[row >> 3] &= (byte) ~(1 << (row & 7));
+            } else {
+                validity[row >> 3] |= (byte) (1 << (row & 7));
+                encodeUtf8(value);
+            }
+            offsets[row + 1] = dataLength;
+        }
+
+        private void encodeUtf8(String value) {
+            final int length = value.length();
+            ensureData(dataLength + 3 * length);
+            int pos = dataLength;
+            for (int i = 0; i < length; i++) {
+                final char c = value.charAt(i);
+                if (c < 0x80) {
+                    data[pos++] = (byte) c;
+                } else {
+                    // non-ascii values are rare, encode the remaining chars at once
+                    final byte[] bytes = value.substring(i).getBytes(StandardCharsets.UTF_8);
+                    ensureData(pos + bytes.length);
+                    System.arraycopy(bytes, 0, data, pos, bytes.length);
+                    pos += bytes.length;
+                    break;
+                }
+            }
+            dataLength = pos;
+        }
+
+        private void ensureData(int capacity) {
+            if (capacity > data.length) {
+                data = Arrays.copyOf(data, Math.max(capacity, 2 * data.length));
+            }
+        }
+
+        long validityLength(int rowCount) {
+            return (rowCount + 7) / 8;
+        }
+
+        long bodyLength(int rowCount) {
+            final long validityLength = nullCount > 0 ? validityLength(rowCount) : 0;
+            return pad8(validityLength) + pad8(4L * (rowCount + 1)) + pad8(dataLength);
+        }
+
+        void writeBody(ByteBuffer bb, int rowCount) {
+            if (nullCount > 0) {
+                final int validityLength = (int) validityLength(rowCount);
+                bb.put(validity, 0, validityLength);
+                padTo8(bb, validityLength);
+            }
+            for (int i = 0; i <= rowCount; i++) {
+                bb.putInt(offsets[i]);
+            }
+            padTo8(bb, 4L * (rowCount + 1));
+            bb.put(data, 0, dataLength);
+            padTo8(bb, dataLength);
+        }
+
+        void clear() {
+            Arrays.fill(validity, (byte) 0);
+            dataLength = 0;
+            nullCount = 0;
+        }
+    }
+
+    /**
+     * Minimal flatbuffers encoder, sufficient for Arrow message metadata.
+     * <p>
+     * Unlike the flatbuffers builder, the buffer is written front to back:
+     * each table is preceded by its vtable, and followed by the objects it
+     * references, thus all offsets to referenced objects are positive.
+     * Tables are aligned to 8 bytes, fields are aligned to their size.
+     */
+    static class FlatBufferEncoder {
+
+        private ByteBuffer bb;
+
+        private FlatBufferEncoder() {
+            this.bb = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Encode a root table.
+         *
+         * @param root
+         * @return the flatbuffer
+         */
+        static byte[] encode(Table root) {
+            final FlatBufferEncoder encoder = new FlatBufferEncoder();
+            encoder.ensure(4);
+            encoder.bb.putInt(0);
+            final int rootPosition = encoder.writeTable(root);
+            encoder.bb.putInt(0, rootPosition);
+            return Arrays.copyOf(encoder.bb.array(), encoder.bb.position());
+        }
+
+        private void ensure(int length) {
+            if (bb.remaining() < length) {
+                final ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * bb.capacity(), bb.position() + length))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                bb.flip();
+                larger.put(bb);
+                bb = larger;
+            }
+        }
+
+        private void align(int alignment, int additionalBytes) {
+            ensure(alignment + additionalBytes);
+            while ((bb.position() + additionalBytes) % alignment != 0) {
+                bb.put((byte) 0);
+            }
+        }
+
+        private int writeTable(Table table) {
+            // layout of the inline fields, following the vtable offset
+            final List<Field> fields = new ArrayList<>(table.fields);
+            fields.sort((f1, f2) -> Integer.compare(f2.size, f1.size));
+            final int[] fieldOffsets = new int[fields.size()];
+            int tableSize = 4;
+            int maxId = -1;
+            for (int i = 0; i < fields.size(); i++) {
+                final Field field = fields.get(i);
+                tableSize = (tableSize + field.size - 1) / field.size * field.size;
+                fieldOffsets[i] = tableSize;
+                tableSize += field.size;
+                maxId = Math.max(maxId, field.id);
+            }
+            // vtable
+            final int vtableSize = 4 + 2 * (maxId + 1);
+            align(2, 0);
+            ensure(vtableSize);
+            final int vtablePosition = bb.position();
+            bb.putShort((short) vtableSize);
+            bb.putShort((short) tableSize);
+            final short[] vtableEntries = new short[maxId + 1];
+            for (int i = 0; i < fields.size(); i++) {
+                vtableEntries[fields.get(i).id] = (short) fieldOffsets[i];
+            }
+            for (short vtableEntry : vtableEntries) {
+                bb.putShort(vtableEntry);
+            }
+            // table
+            align(8, 0);
+            ensure(tableSize);
+            final int tablePosition = bb.position();
+            bb.putInt(tablePosition - vtablePosition);
+            for (int i = 0; i < tableSize - 4; i++) {
+                bb.put((byte) 0);
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                fields.get(i).writeInline(bb, tablePosition + fieldOffsets[i]);
+            }
+            // referenced objects
+            for (int i = 0; i < fields.size(); i++) {
+                final Field field = fields.get(i);
+                if (field.reference != null) {
+                    final int slot = tablePosition + fieldOffsets[i];
+                    final int objectPosition = writeObject(field.reference, field.structSize);
+                    bb.putInt(slot, objectPosition - slot);
+                }
+            }
+            return tablePosition;
+        }
+
+        private int writeObject(Object reference, int structSize) {
+            if (reference instanceof Table) {
+                return writeTable((Table) reference);
+            } else if (reference instanceof String) {
+                final byte[] bytes = ((String) reference).getBytes(StandardCharsets.UTF_8);
+                align(4, 0);
+                ensure(4 + bytes.length + 1);
+                final int position = bb.position();
+                bb.putInt(bytes.length).put(bytes).put((byte) 0);
+                return position;
+            } else if (reference instanceof Table[]) {
+                final Table[] tables = (Table[]) reference;
+                align(4, 0);
+                ensure(4 + 4 * tables.length);
+                final int position = bb.position();
+                bb.putInt(tables.length);
+                for (int i = 0; i < tables.length; i++) {
+                    bb.putInt(0);
+                }
+                for (int i = 0; i < tables.length; i++) {
+                    final int slot = position + 4 + 4 * i;
+                    final int tablePosition = writeTable(tables[i]);
+                    bb.putInt(slot, tablePosition - slot);
+                }
+                return position;
+            } else {
+                // vector of structs, the elements are aligned to 8
+                final byte[] bytes = (byte[]) reference;
+                align(8, 4);
+                ensure(4 + bytes.length);
+                final int position = bb.position();
+                bb.putInt(bytes.length / structSize).put(bytes);
+                return position;
+            }
+        }
+
+        /**
+         * A table of fields, identified by their field id.
+         */
+        static class Table {
+
+            private final List<Field> fields = new ArrayList<>();
+
+            Table addBoolean(int id, boolean value) {
+                return addByte(id, (byte) (value ? 1 : 0));
+            }
+
+            Table addByte(int id, byte value) {
+                fields.add(new Field(id, 1, value, null, 0));
+                return this;
+            }
+
+            Table addShort(int id, short value) {
+                fields.add(new Field(id, 2, value, null, 0));
+                return this;
+            }
+
+            Table addLong(int id, long value) {
+                fields.add(new Field(id, 8, value, null, 0));
+                return this;
+            }
+
+            Table addString(int id, String value) {
+                fields.add(new Field(id, 4, 0, value, 0));
+                return this;
+            }
+
+            Table addTable(int id, Table value) {
+                fields.add(new Field(id, 4, 0, value, 0));
+                return this;
+            }
+
+            Table addTableVector(int id, Table[] value) {
+                fields.add(new Field(id, 4, 0, value, 0));
+                return this;
+            }
+
+            Table addStructVector(int id, byte[] value, int structSize) {
+                fields.add(new Field(id, 4, 0, value, structSize));
+                return this;
+            }
+        }
+
+        /**
+         * A scalar field, or an offset field referencing an object.
+         */
+        private static class Field {
+
+            final int id;
+            final int size;
+            final long value;
+            final Object reference;
+            final int structSize;
+
+            Field(int id, int size, long value, Object reference, int structSize) {
+                this.id = id;
+                this.size = size;
+                this.value = value;
+                this.reference = reference;
+                this.structSize = structSize;
+            }
+
+            void writeInline(ByteBuffer bb, int position) {
+                if (size == 1) {
+                    bb.put(position, (byte) value);
+                } else if (size == 2) {
+                    bb.putShort(position, (short) value);
+                } else if (size == 8) {
+                    bb.putLong(position, value);
+                }
+                // offsets of referenced objects are written later
+            }
+        }
+    }
+}
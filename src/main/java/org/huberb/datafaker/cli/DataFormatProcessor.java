@@ -16,29 +16,51 @@
  */
 package org.huberb.datafaker.cli;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import net.datafaker.Faker;
-import net.datafaker.transformations.CsvTransformer;
-import net.datafaker.transformations.Field;
-import net.datafaker.transformations.JsonTransformer;
-import net.datafaker.transformations.JsonTransformer.JsonTransformerBuilder.FormattedAs;
-import net.datafaker.transformations.Schema;
-import net.datafaker.transformations.SimpleField;
-import net.datafaker.transformations.XmlTransformer;
-import net.datafaker.transformations.XmlTransformer.XmlTransformerBuilder;
-import net.datafaker.transformations.YamlTransformer;
 import net.datafaker.transformations.sql.SqlDialect;
-import net.datafaker.transformations.sql.SqlTransformer;
+import org.huberb.datafaker.cli.Adapters.FakerFactory;
+import org.huberb.datafaker.cli.Adapters.FakerPool;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterArrow;
 import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterCsv;
 import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterSql;
 import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterTsv;
 import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterXml;
+import org.huberb.datafaker.cli.ExpressionCompiler.CompiledExpression;
+import org.huberb.datafaker.cli.RecordSources.EagerRecordSource;
+import org.huberb.datafaker.cli.RecordSources.ParallelRecordSource;
+import org.huberb.datafaker.cli.RecordSources.RecordEvaluator;
+import org.huberb.datafaker.cli.RecordSources.RecordSource;
+import org.huberb.datafaker.cli.RecordSources.SequentialRecordSource;
+import org.huberb.datafaker.cli.RecordSources.WorkerThreadFactory;
+import org.huberb.datafaker.cli.RecordWriters.ArrowRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.CsvRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.JsonRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.NdjsonRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.PgCopyBinaryRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.PgCopyTextRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.RecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.SqlRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.TxtRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.XmlRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.YamlRecordWriter;
 
 /**
  * Processor accepting some data, and formats it.
@@ -47,16 +69,35 @@ import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterXm
  * string supplier.
  * <p>
  * Supported formats see {@link FormatEnum}.
+ * <p>
+ * Records are formatted one at a time, and may be written to a {@link Writer}
+ * while they are generated.
  *
  * @author berni3
  */
 public class DataFormatProcessor {
 
+    /**
+     * Limit value for generating records until writing fails, eg. because the
+     * consumer closed the output.
+     */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
     private static final int LIMIT_DEFAULT_VALUE = 3;
+    private static final int FLUSH_RECORDS_INTERVAL = 1000;
+    private static final int CHUNK_SIZE = 1000;
 
     private final Faker faker;
     private final List<ExpressionInternal> expressionInternalList;
-    private final int limit;
+    /**
+     * Functions creating the expressions for a faker instance, or null if some
+     * expressions are bound to {@link #faker} only.
+     */
+    private List<Function<Faker, List<ExpressionInternal>>> expressionsFunctions;
+    private final long limit;
+    private int threads;
+    private Long seed;
+    private FakerPool fakerPool;
 
     /**
      * Create new instance.
@@ -74,11 +115,14 @@ public class DataFormatProcessor {
      *
      * @param faker instance
      * @param limit number of data records created. If limit is less than 1 use
-     * default value 3.
+     * default value 3. Use {@link #UNLIMITED} for an unbounded number of
+     * records.
      */
-    public DataFormatProcessor(Faker faker, int limit) {
+    public DataFormatProcessor(Faker faker, long limit) {
         this.faker = faker;
         this.expressionInternalList = new ArrayList<>();
+        this.expressionsFunctions = new ArrayList<>();
+        this.threads = 1;
         if (limit <= 0) {
             limit = LIMIT_DEFAULT_VALUE;
         }
@@ -96,24 +140,114 @@ public class DataFormatProcessor {
     public DataFormatProcessor addExpressionsFromExpressionInternalList(List<ExpressionInternal> expressions) {
         expressionInternalList.clear();
         expressionInternalList.addAll(expressions);
+        // expressions are bound to a single faker instance
+        expressionsFunctions = null;
+        return this;
+    }
+
+    /**
+     * Add data-expressions created for a faker instance.
+     * <p>
+     * The function is applied to the faker of this instance, and to the faker
+     * of each thread evaluating records in parallel.
+     *
+     * @param expressionsFunction
+     * @return
+     * @see #threads(int)
+     */
+    public DataFormatProcessor addExpressionsFromFakerFunction(Function<Faker, List<ExpressionInternal>> expressionsFunction) {
+        expressionInternalList.addAll(expressionsFunction.apply(faker));
+        if (expressionsFunctions != null) {
+            expressionsFunctions.add(expressionsFunction);
+        }
         return this;
     }
 
     /**
      * Add a data-expression.
      * <p>
-     * Data is represented by a faker expression.
+     * Data is represented by a faker expression. Each expression is compiled
+     * once, see {@link ExpressionCompiler}.
      *
      * @param expressions
      * @return
      * @see Faker#expression(java.lang.String)
      */
     public DataFormatProcessor addExpressionsFromStringList(List<String> expressions) {
+        final List<String> fieldnames = new ArrayList<>();
+        final List<CompiledExpression> compiledExpressions = new ArrayList<>();
         for (String expression : expressions) {
-            String[] fieldnameExpression = extractFieldnameExpression(expression);
-            Supplier<String> supp = () -> faker.expression(fieldnameExpression[1]);
-            expressionInternalList.add(new ExpressionInternal(fieldnameExpression[0], supp));
+            final String[] fieldnameExpression = extractFieldnameExpression(expression);
+            fieldnames.add(fieldnameExpression[0]);
+            compiledExpressions.add(ExpressionCompiler.compile(fieldnameExpression[1]));
         }
+        return addExpressionsFromFakerFunction(f -> {
+            final List<ExpressionInternal> result = new ArrayList<>();
+            for (int i = 0; i < fieldnames.size(); i++) {
+                Supplier<String> supp = compiledExpressions.get(i).bind(f);
+                result.add(new ExpressionInternal(fieldnames.get(i), supp));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Define the number of threads evaluating records.
+     * <p>
+     * Each thread uses its own faker instance, records are formatted in their
+     * original order. Records are evaluated in parallel only if all
+     * expressions were added by {@link #addExpressionsFromStringList(List)},
+     * or {@link #addExpressionsFromFakerFunction(Function)}.
+     *
+     * @param threads number of threads, if less than 2 records are evaluated
+     * by the calling thread
+     * @return
+     */
+    public DataFormatProcessor threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Define a seed for generating reproducible records.
+     * <p>
+     * Records are evaluated in blocks of consecutive records. The random
+     * instance of the evaluating faker is seeded at the start of each block,
+     * using a seed derived from this seed, and the index of the block. Thus
+     * the records do not depend on the number of threads.
+     * <p>
+     * The faker of this instance is seeded only if it uses a random instance
+     * of its own, like a faker created by
+     * {@link FakerFactory#createFakerFromLocale(Locale, long)}. Otherwise
+     * records are evaluated by a faker of its own, which requires all
+     * expressions added by {@link #addExpressionsFromStringList(List)}, or
+     * {@link #addExpressionsFromFakerFunction(Function)}.
+     * <p>
+     * Values depending on the current time, like birthdays, may differ between
+     * runs even if using the same seed.
+     *
+     * @param seed master seed
+     * @return
+     */
+    public DataFormatProcessor seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Define a pool lending the fakers of threads evaluating records in
+     * parallel.
+     * <p>
+     * Each thread borrows a faker of the locale of this instance, and gives it
+     * back when done. Thus a warm faker does not load the yaml files of its
+     * locale again. By default each thread creates a faker of its own.
+     *
+     * @param fakerPool pool of fakers, or null
+     * @return
+     * @see #threads(int)
+     */
+    public DataFormatProcessor fakerPool(FakerPool fakerPool) {
+        this.fakerPool = fakerPool;
         return this;
     }
 
@@ -170,27 +304,318 @@ public class DataFormatProcessor {
     /**
      * Format data for a given format type.
      *
-     * @param fe represents the format type
-     * @param formatParameters
+     * @param fe represents the format type, binary formats are not supported
+     * @param m format parameters
      * @return
      * @see FormatEnum
      */
     public String format(FormatEnum fe, Map<String, String> m) {
+        if (fe.isBinary()) {
+            throw new IllegalArgumentException(String.format("Cannot format binary format %s as string", fe));
+        }
+        final StringWriter sw = new StringWriter();
+        try {
+            format(fe, m, sw);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return sw.toString();
+    }
 
+    /**
+     * Format data for a given format type, and write it to a writer.
+     * <p>
+     * Each record is written as soon as it is generated. Memory usage does not
+     * depend on the number of records.
+     * <p>
+     * The writer is flushed periodically. Writing stops as soon as the writer
+     * throws an {@link IOException}, or the current thread is interrupted.
+     *
+     * @param fe represents the format type
+     * @param m format parameters
+     * @param w the formatted records are written to
+     * @throws IOException
+     * @see FormatEnum
+     */
+    public void format(FormatEnum fe, Map<String, String> m, Writer w) throws IOException {
+        format(createRecordWriter(fe, m), w);
+    }
+
+    /**
+     * Format data using a record writer, and write it to a writer.
+     *
+     * @param recordWriter see {@link #createRecordWriter(FormatEnum, Map)}
+     * @param w the formatted records are written to
+     * @throws IOException
+     * @see #format(FormatEnum, Map, Writer)
+     */
+    void format(RecordWriter recordWriter, Writer w) throws IOException {
+        try (RecordSource recordSource = createRecordSource()) {
+            format(recordWriter, recordSource, w);
+        }
+    }
+
+    /**
+     * Format the records of a record source using a record writer, and write
+     * them to a writer.
+     * <p>
+     * The record source is owned by the caller.
+     *
+     * @param recordWriter see {@link #createRecordWriter(FormatEnum, Map)}
+     * @param recordSource see {@link #openRecordSource()}
+     * @param w the formatted records are written to
+     * @throws IOException
+     */
+    void format(RecordWriter recordWriter, RecordSource recordSource, Writer w) throws IOException {
+        writeRecords(recordWriter, recordSource, limit, w);
+    }
+
+    /**
+     * Create the source of the records, evaluating the first record.
+     * <p>
+     * Failing expressions are detected before anything is written.
+     *
+     * @return
+     * @throws IOException
+     * @throws RuntimeException if evaluating the first record fails
+     */
+    RecordSource openRecordSource() throws IOException {
+        return new EagerRecordSource(createRecordSource());
+    }
+
+    /**
+     * Format data for a given format type, split into shards.
+     * <p>
+     * The records are split into consecutive ranges of almost equal size, one
+     * range per shard. Each shard is a complete document of its own, eg.
+     * including the csv header, and is written to its own writer.
+     * <p>
+     * Shards are generated, and written concurrently by a pool of worker
+     * threads. Each worker uses its own faker instance, if all expressions
+     * were added by {@link #addExpressionsFromStringList(List)}, or
+     * {@link #addExpressionsFromFakerFunction(Function)}, otherwise shards are
+     * written one after the other by the calling thread. If a seed is defined,
+     * the records of all shards equal the records written by
+     * {@link #format(FormatEnum, Map, Writer)}.
+     *
+     * @param fe represents the format type
+     * @param m format parameters
+     * @param shards number of shards
+     * @param workers number of worker threads
+     * @param shardWriterFactory creates the writer of a shard, the writer is
+     * closed after writing the shard
+     * @throws IOException
+     * @throws IllegalArgumentException if the number of records is
+     * {@link #UNLIMITED}
+     */
+    public void formatShards(FormatEnum fe, Map<String, String> m, int shards, int workers, ShardWriterFactory shardWriterFactory) throws IOException {
+        processShards(shards, workers, (shard, recordSource, count) -> {
+            try (Writer w = shardWriterFactory.createWriter(shard)) {
+                writeRecords(createRecordWriter(fe, m), recordSource, count, w);
+            }
+        });
+    }
+
+    /**
+     * Split the records into shards, and process the shards concurrently.
+     * <p>
+     * The records are split into consecutive ranges of almost equal size, one
+     * range per shard. Shards are processed by a pool of worker threads, each
+     * worker uses its own faker instance, see
+     * {@link #formatShards(FormatEnum, Map, int, int, ShardWriterFactory)}.
+     *
+     * @param shards number of shards
+     * @param workers number of worker threads
+     * @param shardProcessor processes the records of a shard
+     * @throws IOException
+     * @throws IllegalArgumentException if the number of records is
+     * {@link #UNLIMITED}
+     */
+    void processShards(int shards, int workers, ShardProcessor shardProcessor) throws IOException {
+        if (limit == UNLIMITED) {
+            throw new IllegalArgumentException("Cannot shard an unlimited number of records");
+        }
+        final int theShards = Math.max(1, shards);
+        final AtomicInteger nextShard = new AtomicInteger(0);
+        final int theWorkers = Math.min(Math.max(1, workers), theShards);
+        if (theWorkers < 2 || expressionsFunctions == null) {
+            try (RecordEvaluator recordEvaluator = createRecordEvaluator()) {
+                processShards(theShards, nextShard, recordEvaluator, shardProcessor);
+            }
+            return;
+        }
+        final ExecutorService executorService = Executors.newFixedThreadPool(theWorkers, new WorkerThreadFactory());
+        try {
+            final ExecutorCompletionService<Void> completionService = new ExecutorCompletionService<>(executorService);
+            for (int i = 0; i < theWorkers; i++) {
+                completionService.submit(() -> {
+                    try (RecordEvaluator recordEvaluator = createWorkerRecordEvaluator()) {
+                        processShards(theShards, nextShard, recordEvaluator, shardProcessor);
+                    }
+                    return null;
+                });
+            }
+            for (int i = 0; i < theWorkers; i++) {
+                // the first failing worker stops all workers
+                awaitShardsWorker(completionService);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Process shards until all shards are taken.
+     */
+    private void processShards(int shards, AtomicInteger nextShard, RecordEvaluator recordEvaluator, ShardProcessor shardProcessor) throws IOException {
+        for (int shard = nextShard.getAndIncrement(); shard < shards; shard = nextShard.getAndIncrement()) {
+            final long first = shard * (limit / shards) + Math.min(shard, limit % shards);
+            final long count = limit / shards + (shard < limit % shards ? 1 : 0);
+            try (RecordSource recordSource = new SequentialRecordSource(recordEvaluator, CHUNK_SIZE, seed, first)) {
+                shardProcessor.process(shard, recordSource, count);
+            }
+        }
+    }
+
+    private void awaitShardsWorker(ExecutorCompletionService<Void> completionService) throws IOException {
+        try {
+            completionService.take().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted processing shards");
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Cannot process shards", cause);
+        }
+    }
+
+    /**
+     * Write a header, count records, and a footer, flushing the writer
+     * periodically.
+     */
+    private void writeRecords(RecordWriter recordWriter, RecordSource recordSource, long count, Writer w) throws IOException {
+        recordWriter.writeHeader(w);
+        long index = 0;
+        for (; index < count; index++) {
+            recordWriter.writeRecord(w, index, recordSource.nextRecord());
+            if ((index + 1) % FLUSH_RECORDS_INTERVAL == 0) {
+                w.flush();
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException(String.format("Interrupted after %d records", index + 1));
+                }
+            }
+        }
+        recordWriter.writeFooter(w, index);
+        w.flush();
+    }
+
+    RecordSource createRecordSource() {
+        if (threads > 1 && expressionsFunctions != null) {
+            return new ParallelRecordSource(threads, CHUNK_SIZE, limit, seed, this::createWorkerRecordEvaluator);
+        }
+        return new SequentialRecordSource(createRecordEvaluator(), CHUNK_SIZE, seed);
+    }
+
+    /**
+     * Create a record evaluator of the calling thread.
+     * <p>
+     * The faker of this instance is used, unless seeding it would change the
+     * random instance shared by other fakers, see
+     * {@link FakerFactory#ownsRandom(Faker)}. In this case a faker of its own
+     * is used, which needs no release.
+     *
+     * @return
+     * @throws IllegalStateException if a seed is defined, and the expressions
+     * are bound to a faker using the shared random instance
+     */
+    private RecordEvaluator createRecordEvaluator() {
+        if (seed == null || FakerFactory.ownsRandom(faker)) {
+            return new RecordEvaluator(expressionInternalList, faker.random().getRandomInternal());
+        }
+        if (expressionsFunctions == null) {
+            throw new IllegalStateException("Cannot seed a faker using the shared random instance");
+        }
+        final Faker ownFaker = FakerFactory.createFakerFromLocale(faker.getContext().getLocale(), seed);
+        return createRecordEvaluator(ownFaker, () -> {
+        });
+    }
+
+    /**
+     * Create a record evaluator of a worker thread, using its own faker.
+     * <p>
+     * The faker is borrowed from the faker pool, if defined. Closing the
+     * record evaluator gives it back.
+     *
+     * @return
+     * @see #fakerPool(FakerPool)
+     */
+    private RecordEvaluator createWorkerRecordEvaluator() {
+        final Locale locale = faker.getContext().getLocale();
+        final FakerPool theFakerPool = fakerPool;
+        if (theFakerPool != null) {
+            final Faker workerFaker = theFakerPool.borrow(locale);
+            return createRecordEvaluator(workerFaker, () -> theFakerPool.giveBack(locale, workerFaker));
+        }
+        // each worker has its own random instance, avoiding contention
+        final Faker workerFaker = FakerFactory.createFakerFromLocale(locale, ThreadLocalRandom.current().nextLong());
+        return createRecordEvaluator(workerFaker, () -> {
+        });
+    }
+
+    private RecordEvaluator createRecordEvaluator(Faker evaluatingFaker, Runnable release) {
+        final List<ExpressionInternal> result = new ArrayList<>();
+        expressionsFunctions.forEach(ef -> result.addAll(ef.apply(evaluatingFaker)));
+        return new RecordEvaluator(result, evaluatingFaker.random().getRandomInternal(), release);
+    }
+
+    /**
+     * Return the field names of the records.
+     *
+     * @return
+     */
+    String[] fieldnames() {
+        return expressionInternalList.stream()
+                .map(ei -> ei.fieldname)
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Create the record writer of a format.
+     *
+     * @param fe
+     * @param m format parameters
+     * @return
+     * @throws IllegalArgumentException if a format parameter is invalid
+     */
+    RecordWriter createRecordWriter(FormatEnum fe, Map<String, String> m) {
+        final String[] fieldnames = fieldnames();
         if (fe == FormatEnum.txt) {
-            return formatTxt(m);
+            return new TxtRecordWriter(fieldnames);
         } else if (fe == FormatEnum.csv) {
-            return formatCsv(m);
+            return new CsvRecordWriter(fieldnames, FormatterCsv.withMap(m));
         } else if (fe == FormatEnum.tsv) {
-            return formatTsv(m);
+            return new CsvRecordWriter(fieldnames, FormatterTsv.withMap(m));
         } else if (fe == FormatEnum.json) {
-            return formatJson(m);
+            return new JsonRecordWriter(fieldnames);
+        } else if (fe == FormatEnum.ndjson) {
+            return new NdjsonRecordWriter(fieldnames);
         } else if (fe == FormatEnum.sql) {
-            return formatSql(m);
+            return new SqlRecordWriter(fieldnames, FormatterSql.withMap(m));
         } else if (fe == FormatEnum.xml) {
-            return formatXml(m);
+            return new XmlRecordWriter(fieldnames, FormatterXml.withMap(m));
         } else if (fe == FormatEnum.yaml) {
-            return formatYaml(m);
+            return new YamlRecordWriter(fieldnames);
+        } else if (fe == FormatEnum.arrow) {
+            return new ArrowRecordWriter(fieldnames, FormatterArrow.withMap(m));
+        } else if (fe == FormatEnum.pgcopy) {
+            return new PgCopyTextRecordWriter(fieldnames);
+        } else if (fe == FormatEnum.pgcopybinary) {
+            return new PgCopyBinaryRecordWriter(fieldnames);
         } else {
             throw new RuntimeException(String.format("Unsupported format %s", fe));
         }
@@ -198,99 +623,76 @@ public class DataFormatProcessor {
 
     //-------------------------------------------------------------------------
     protected String formatTxt(Map<String, String> m) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < limit; i++) {
-            expressionInternalList.forEach(ei -> {
-                sb.append(String.format("%s: %s%n", ei.fieldname, ei.expressionSupplier.get()));
-            });
-        }
-        return sb.toString();
+        return format(FormatEnum.txt, m);
     }
 
     protected String formatCsv(Map<String, String> m) {
-        FormatterCsv formatterCsv = FormatterCsv.withMap(m);
-        List<SimpleField<Object, String>> l = expressionInternalList.stream()
-                .map(ei -> Field.field(ei.fieldname, ei.expressionSupplier))
-                .collect(Collectors.toList());
-        Schema<Object, String> schema = Schema.of(l.toArray(SimpleField[]::new));
-        CsvTransformer transformer = CsvTransformer.<String>builder()
-                .header(formatterCsv.header)
-                .separator(formatterCsv.separator)
-                .quote(formatterCsv.quote)
-                .build();
-        return transformer.generate(schema, limit);
+        return format(FormatEnum.csv, m);
     }
 
     protected String formatTsv(Map<String, String> m) {
-        FormatterTsv formatterTsv = FormatterTsv.withMap(m);
-        List<SimpleField<Object, String>> simpleFields = expressionInternalList.stream()
-                .map(ei -> Field.field(ei.fieldname, ei.expressionSupplier))
-                .collect(Collectors.toList());
-        Schema<Object, String> schema = Schema.of(simpleFields.toArray(SimpleField[]::new));
-        CsvTransformer transformer = CsvTransformer.<String>builder()
-                .header(formatterTsv.header)
-                .separator(formatterTsv.separator)
-                .quote(formatterTsv.quote)
-                .build();
-
-        return transformer.generate(schema, limit);
+        return format(FormatEnum.tsv, m);
     }
 
     protected String formatJson(Map<String, String> m) {
-        List<SimpleField<Object, String>> simpleFields = expressionInternalList.stream()
-                .map(ei -> Field.field(ei.fieldname, ei.expressionSupplier))
-                .collect(Collectors.toList());
-        Schema<Object, String> schema = Schema.of(simpleFields.toArray(SimpleField[]::new));
-        JsonTransformer transformer = JsonTransformer.<String>builder()
-                .formattedAs(FormattedAs.JSON_ARRAY)
-                .build();
-        return transformer.generate(schema, limit);
+        return format(FormatEnum.json, m);
     }
 
-    protected String formatSql(Map<String, String> m) {
-        FormatterSql formatterSql = FormatterSql.withMap(m);
-        List<SimpleField<Object, String>> simpleFields = expressionInternalList.stream()
-                .map(ei -> Field.field(ei.fieldname, ei.expressionSupplier))
-                .collect(Collectors.toList());
-        Schema<Object, String> schema = Schema.of(simpleFields.toArray(SimpleField[]::new));
-        SqlTransformer transformer = SqlTransformer.<String>builder()
-                .batch(formatterSql.batch)
-                .tableName(formatterSql.tableName)
-                .dialect(formatterSql.sqlDialect)
-                .build();
+    protected String formatNdjson(Map<String, String> m) {
+        return format(FormatEnum.ndjson, m);
+    }
+
+    protected String formatPgcopy(Map<String, String> m) {
+        return format(FormatEnum.pgcopy, m);
+    }
 
-        return transformer.generate(schema, limit);
+    protected String formatSql(Map<String, String> m) {
+        return format(FormatEnum.sql, m);
     }
 
     protected String formatXml(Map<String, String> m) {
-        FormatterXml formatterXml = FormatterXml.withMap(m);
-        List<SimpleField<Object, String>> simpleFields = expressionInternalList.stream()
-                .map(ei -> Field.field(ei.fieldname, ei.expressionSupplier))
-                .collect(Collectors.toList());
-        Schema<Object, String> schema = Schema.of(simpleFields.toArray(SimpleField[]::new));
-        XmlTransformer transformer = new XmlTransformerBuilder<String>()
-                .pretty(formatterXml.pretty)
-                .build();
-
-        CharSequence result = transformer.generate(schema, limit);
-        StringBuilder sb = new StringBuilder();
-        sb.append("<").append(formatterXml.rootTag).append(">")
-                .append(System.lineSeparator())
-                .append(result)
-                .append(System.lineSeparator())
-                .append("</").append(formatterXml.rootTag).append(">");
-        return sb.toString();
+        return format(FormatEnum.xml, m);
     }
 
     protected String formatYaml(Map<String, String> m) {
-        List<SimpleField<Object, String>> simpleFields = expressionInternalList.stream()
-                .map(ei -> Field.field(ei.fieldname, ei.expressionSupplier))
-                .collect(Collectors.toList());
-        Schema<Object, String> schema = Schema.of(simpleFields.toArray(SimpleField[]::new));
-        YamlTransformer transformer = new YamlTransformer<String>();
+        return format(FormatEnum.yaml, m);
+    }
+
+    /**
+     * Process the records of a shard.
+     *
+     * @see #processShards(int, int, ShardProcessor)
+     */
+    @FunctionalInterface
+    interface ShardProcessor {
 
-        String result = transformer.generate(schema, limit);
-        return result;
+        /**
+         * Process the records of a shard.
+         *
+         * @param shard zero based index of the shard
+         * @param recordSource provides the records of the shard
+         * @param count number of records of the shard
+         * @throws IOException
+         */
+        void process(int shard, RecordSource recordSource, long count) throws IOException;
+    }
+
+    /**
+     * Create the writer of a shard.
+     *
+     * @see #formatShards(FormatEnum, Map, int, int, ShardWriterFactory)
+     */
+    @FunctionalInterface
+    public interface ShardWriterFactory {
+
+        /**
+         * Create the writer of a shard.
+         *
+         * @param shard zero based index of the shard
+         * @return
+         * @throws IOException
+         */
+        Writer createWriter(int shard) throws IOException;
     }
 
     /**
@@ -342,7 +744,17 @@ public class DataFormatProcessor {
      * Enumeration of supported formats
      */
     public enum FormatEnum {
-        txt, csv, tsv, json, sql, xml, yaml
+        txt, csv, tsv, json, ndjson, sql, xml, yaml, arrow, pgcopy, pgcopybinary;
+
+        /**
+         * Return true if the format is binary, requiring a byte channel.
+         *
+         * @return
+         * @see OutputWriters#byteChannelOf(Writer)
+         */
+        public boolean isBinary() {
+            return this == arrow || this == pgcopybinary;
+        }
     }
 
     /**
@@ -482,5 +894,25 @@ public class DataFormatProcessor {
                 return instance;
             }
         }
+
+        /**
+         * Holds parameters of arrow formatting.
+         */
+        public static class FormatterArrow {
+
+            int batch = 8192;
+
+            public static final String description = "Arrow format parameters:%n"
+                    + " batch=number of rows of a record batch, default: 8192";
+
+            public static FormatterArrow withMap(Map<String, String> m) {
+                FormatterArrow instance = new FormatterArrow() {
+                    {
+                        batch = convToInteger.apply(m.getOrDefault("batch", "8192"));
+                    }
+                };
+                return instance;
+            }
+        }
     }
 }
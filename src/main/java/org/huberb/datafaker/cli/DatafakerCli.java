@@ -16,9 +16,18 @@
 package org.huberb.datafaker.cli;
 
 import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -27,16 +36,20 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import net.datafaker.Faker;
 import org.huberb.datafaker.cli.Adapters.FakerFactory;
+import org.huberb.datafaker.cli.Adapters.FakerPool;
 import org.huberb.datafaker.cli.Adapters.Locales;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterArrow;
 import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterCsv;
 import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterSql;
 import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterTsv;
 import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterXml;
+import org.huberb.datafaker.cli.JdbcSink.JdbcParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
@@ -60,7 +73,7 @@ import picocli.CommandLine.Spec;
 public class DatafakerCli implements Callable<Integer> {
 
     private static final int DEFAULT_COUNT_OF_RESULT = 3;
-    private static final int MAX_COUNT_OF_RESULT = 10000;
+    static final int MAX_THREADS = 1024;
 
     //-------------------------------------------------------------------------
     /**
@@ -89,8 +102,28 @@ public class DatafakerCli implements Callable<Integer> {
     @Option(names = {"-c", "--count"},
             required = false,
             defaultValue = "" + DEFAULT_COUNT_OF_RESULT,
-            description = "Count of results. Minimum value: 0, Maximum value: " + MAX_COUNT_OF_RESULT + ".")
-    private int countOfResults;
+            description = "Count of results. Minimum value: 1, Maximum value: " + Long.MAX_VALUE + ".")
+    private long countOfResults;
+
+    @Option(names = {"--unlimited"},
+            defaultValue = "false",
+            description = "Generate results until the output is closed, "
+            + "eg. by a consumer like 'head'. Option --count is ignored.")
+    private boolean unlimited;
+
+    @Option(names = {"--threads"},
+            required = false,
+            description = "Number of threads generating results. "
+            + "Each thread uses its own faker, results keep their order. "
+            + "Default: 1, using --shards the number of available processors. "
+            + "Minimum value: 1, Maximum value: " + MAX_THREADS + ".")
+    private Integer threads;
+
+    @Option(names = {"--seed"},
+            required = false,
+            description = "Seed for generating reproducible results. "
+            + "Results do not depend on the number of threads.")
+    private Long seed;
 
     @Option(names = {"-e", "--expression"},
             required = false,
@@ -113,7 +146,9 @@ public class DatafakerCli implements Callable<Integer> {
             + "%n"
             + FormatterSql.description
             + "%n"
-            + FormatterXml.description)
+            + FormatterXml.description
+            + "%n"
+            + FormatterArrow.description)
     private String formatParameters;
 
     @Option(names = {"--generate-history"},
@@ -126,11 +161,65 @@ public class DatafakerCli implements Callable<Integer> {
             description = "Write evaluated expressions to file.")
     private File outputFile = null;
 
+    @Option(names = {"--shards"},
+            required = false,
+            description = "Split the results into shards, written concurrently "
+            + "to files named like the output file, eg. out-0000.csv, out-0001.csv. "
+            + "Requires option --output-file.")
+    private Integer shards;
+
+    @Option(names = {"--jdbc-url"},
+            required = false,
+            description = "Load the results into a database table using jdbc, "
+            + "instead of formatting them. The jdbc driver must be on the classpath.")
+    private String jdbcUrl;
+
+    @Option(names = {"--jdbc-parameter"},
+            defaultValue = "",
+            description = "Define jdbc parameters.%n"
+            + JdbcParameters.description)
+    private String jdbcParameters;
+
+    @Option(names = {"--serve"},
+            required = false,
+            description = "Serve results by http on the given port, instead of writing them. "
+            + "Requests define options as query parameters, eg. "
+            + "/?count=10&format=json&expression=expression&arg=%%23%%7BName.fullName%%7D")
+    private Integer servePort;
+
+    @Option(names = {"--bind"},
+            required = false,
+            description = "Address the server of option --serve listens on, eg. 0.0.0.0 for all interfaces. "
+            + "Default: the loopback address.")
+    private InetAddress bindAddress;
+
+    @Option(names = {"--jobs"},
+            required = false,
+            description = "Run the generation jobs of a yaml file, in a single jvm. "
+            + "Each job defines options named like the long options, "
+            + "and writes to an output file, or a database.")
+    private File jobsFile;
+
+    @Option(names = {"--compress"},
+            defaultValue = "false",
+            description = "Compress output using gzip. "
+            + "Output files ending with .gz are always compressed. "
+            + "Blocks of output are compressed in parallel.")
+    private boolean compress;
+
     @Parameters(index = "0..*",
             description = "expression arguments.")
     private List<String> expressions;
 
     private LoggingSystem loggingSystem;
+    /**
+     * Pool lending the fakers of threads evaluating records, or null.
+     */
+    private FakerPool fakerPool;
+    /**
+     * Number of threads writing shards, if option --threads is not defined.
+     */
+    private int defaultShardWorkers = Runtime.getRuntime().availableProcessors();
 
     //-------------------------------------------------------------------------
     /**
@@ -146,8 +235,12 @@ public class DatafakerCli implements Callable<Integer> {
 
         if (availableModes != null) {
             handleAvailableModes(availableModes);
+        } else if (servePort != null) {
+            handleServe();
+        } else if (jobsFile != null) {
+            return handleJobs();
         } else {
-            handleDataFormat();
+            handleDataFormat(createTheFaker());
         }
         if (generateHistory) {
             HistoryGenerator history = new HistoryGenerator(spec);
@@ -156,6 +249,43 @@ public class DatafakerCli implements Callable<Integer> {
         return 0;
     }
 
+    /**
+     * Define a pool lending the fakers of threads evaluating records.
+     *
+     * @param fakerPool
+     * @return
+     * @see DataFormatProcessor#fakerPool(FakerPool)
+     */
+    DatafakerCli fakerPool(FakerPool fakerPool) {
+        this.fakerPool = fakerPool;
+        return this;
+    }
+
+    /**
+     * Define the number of threads writing shards, if option --threads is not
+     * defined.
+     *
+     * @param defaultShardWorkers by default the number of available
+     * processors
+     * @return
+     */
+    DatafakerCli defaultShardWorkers(int defaultShardWorkers) {
+        this.defaultShardWorkers = Math.max(1, defaultShardWorkers);
+        return this;
+    }
+
+    /**
+     * Run this instance as job of a jobs file.
+     *
+     * @param faker faker of the locale of this job
+     * @throws IOException
+     * @see JobsRunner
+     */
+    void runJob(Faker faker) throws IOException {
+        loggingSystem = new LoggingSystem(spec);
+        handleDataFormat(faker);
+    }
+
     private void handleAvailableModes(AvailableModes availableModes) {
         if (availableModes == AvailableModes.locales) {
             loggingSystem.System_out_format("default locale: %s%n", Locales.defaultLocale().get().toLanguageTag());
@@ -189,26 +319,146 @@ public class DatafakerCli implements Callable<Integer> {
         }
     }
 
-    private void handleDataFormat() throws IOException {
+    private void handleServe() throws IOException, InterruptedException {
+        final DatafakerServer datafakerServer = new DatafakerServer(
+                this.bindAddress != null ? this.bindAddress : InetAddress.getLoopbackAddress(),
+                this.servePort);
+        Runtime.getRuntime().addShutdownHook(new Thread(datafakerServer::stop));
+        datafakerServer.start();
+        loggingSystem.info("Serving on %s", datafakerServer.address());
+        datafakerServer.awaitStop();
+    }
+
+    private Integer handleJobs() throws IOException, InterruptedException {
+        final JobsRunner.JobsFile jobs;
+        try (Reader reader = Files.newBufferedReader(jobsFile.toPath(), StandardCharsets.UTF_8)) {
+            jobs = JobsRunner.readJobsFile(reader);
+        } catch (IllegalArgumentException ex) {
+            throw new CommandLine.ParameterException(spec.commandLine(), ex.getMessage(), ex, null, jobsFile.toString());
+        }
+        final long startNanos = System.nanoTime();
+        final List<JobsRunner.JobResult> results = new JobsRunner(jobs.parallelism).run(jobs.jobs);
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        JobsRunner.writeSummary(loggingSystem.System_out(), results, elapsedMillis);
+        loggingSystem.System_out().flush();
+        return results.stream().allMatch(JobsRunner.JobResult::isOk) ? 0 : 1;
+    }
+
+    private void handleDataFormat(Faker faker) throws IOException {
+        if (this.threads != null && (this.threads < 1 || this.threads > MAX_THREADS)) {
+            throw new CommandLine.ParameterException(spec.commandLine(),
+                    String.format("Option --threads requires a value of 1 to %d, but was %d", MAX_THREADS, this.threads));
+        }
+        final DataFormatProcessor dataFormatProcessor = createDataFormatProcessor(faker);
+        loggingSystem.info("data-format-processor:%n%s", dataFormatProcessor.textRepresentation());
+        // step 2: format
+        ParameterParser parameterParser = new ParameterParser();
+        Map<String, String> m = parameterParser.parseToMap(formatParameters);
+        final boolean compressOutput = this.compress
+                || (this.outputFile != null && OutputWriters.isGzipFileName(this.outputFile.getName()));
+        if (this.jdbcUrl != null) {
+            if (this.unlimited) {
+                throw new CommandLine.ParameterException(spec.commandLine(),
+                        "Option --jdbc-url requires a limited count of results");
+            }
+            final JdbcParameters theJdbcParameters;
+            try {
+                theJdbcParameters = theJdbcParameters();
+            } catch (IllegalArgumentException ex) {
+                throw new CommandLine.ParameterException(spec.commandLine(),
+                        String.format("Invalid option --jdbc-parameter: %s", ex.getMessage()), ex, null, this.jdbcParameters);
+            }
+            final JdbcSink jdbcSink = new JdbcSink(this.jdbcUrl, theJdbcParameters);
+            final long loaded = jdbcSink.load(dataFormatProcessor);
+            loggingSystem.info("Loaded %d records", loaded);
+        } else if (this.shards != null) {
+            if (this.outputFile == null || this.unlimited) {
+                throw new CommandLine.ParameterException(spec.commandLine(),
+                        "Option --shards requires option --output-file, and a limited count of results");
+            }
+            dataFormatProcessor.formatShards(formatEnum, m, this.shards, shardWorkers(), shard -> {
+                final Path shardPath = OutputWriters.shardPath(this.outputFile.toPath(), shard);
+                // shards are written concurrently, thus each shard is compressed by a single thread
+                return compressOutput
+                        ? OutputWriters.newGzipFileWriter(shardPath, 1)
+                        : OutputWriters.newFileWriter(shardPath);
+            });
+        } else if (this.outputFile != null) {
+            try (Writer w = compressOutput
+                    ? OutputWriters.newGzipFileWriter(this.outputFile.toPath())
+                    : OutputWriters.newFileWriter(this.outputFile.toPath())) {
+                dataFormatProcessor.format(formatEnum, m, w);
+            }
+        } else if (compressOutput) {
+            try (Writer w = OutputWriters.newGzipWriter(new OutputClosedCheckingStream(System.out))) {
+                dataFormatProcessor.format(formatEnum, m, w);
+            } catch (OutputClosedException ex) {
+                loggingSystem.info("Stop writing: %s", ex.getMessage());
+            }
+        } else if (formatEnum.isBinary()) {
+            try (Writer w = OutputWriters.newWriter(new OutputClosedCheckingStream(System.out))) {
+                dataFormatProcessor.format(formatEnum, m, w);
+            } catch (OutputClosedException ex) {
+                loggingSystem.info("Stop writing: %s", ex.getMessage());
+            }
+        } else {
+            final PrintWriter out = loggingSystem.System_out();
+            try {
+                dataFormatProcessor.format(formatEnum, m, new OutputClosedCheckingWriter(out));
+                if (formatEnum != DataFormatProcessor.FormatEnum.ndjson
+                        && formatEnum != DataFormatProcessor.FormatEnum.pgcopy) {
+                    // ndjson, and pgcopy lines are terminated already
+                    out.format("%n");
+                }
+                out.flush();
+            } catch (OutputClosedException ex) {
+                loggingSystem.info("Stop writing: %s", ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Return the number of threads writing shards.
+     *
+     * @return the value of option --threads, or by default the number of
+     * available processors
+     * @see #defaultShardWorkers(int)
+     */
+    int shardWorkers() {
+        return this.threads != null ? this.threads : this.defaultShardWorkers;
+    }
+
+    /**
+     * Create a {@link DataFormatProcessor} of the options, using a given
+     * faker.
+     *
+     * @param faker
+     * @return
+     */
+    DataFormatProcessor createDataFormatProcessor(Faker faker) {
         // step 0: init
-        final Faker faker = createTheFaker();
-        UnaryOperator<Integer> normalizeCountOfResults = i -> {
-            if (i == null || i <= 0) {
-                return DEFAULT_COUNT_OF_RESULT;
-            } else if (i > MAX_COUNT_OF_RESULT) {
-                return MAX_COUNT_OF_RESULT;
+        UnaryOperator<Long> normalizeCountOfResults = i -> {
+            if (unlimited) {
+                return DataFormatProcessor.UNLIMITED;
+            } else if (i == null || i <= 0) {
+                return (long) DEFAULT_COUNT_OF_RESULT;
             }
             return i;
         };
         Predicate<List<String>> isNotEmpty = l -> l != null && !l.isEmpty();
 
         final DataFormatProcessor dataFormatProcessor = new DataFormatProcessor(faker,
-                normalizeCountOfResults.apply(this.countOfResults));
+                normalizeCountOfResults.apply(this.countOfResults))
+                .threads(theThreads())
+                .fakerPool(this.fakerPool);
+        if (this.seed != null) {
+            dataFormatProcessor.seed(this.seed);
+        }
 
         // step 1: data
         if (this.dataModes == DataModes.sample) {
             SamplesGenerator samplesGenerator = new SamplesGenerator();
-            dataFormatProcessor.addExpressionsFromExpressionInternalList(samplesGenerator.sampleExpressions(faker));
+            dataFormatProcessor.addExpressionsFromFakerFunction(samplesGenerator::sampleExpressions);
         } else if (this.dataModes == DataModes.expression && isNotEmpty.test(expressions)) {
             dataFormatProcessor.addExpressionsFromStringList(expressions);
         } else if (this.dataModes == DataModes.sampleProvider) {
@@ -218,30 +468,160 @@ public class DatafakerCli implements Callable<Integer> {
                 providerNames.addAll(expressions);
             }
             SamplesGenerator sampleGenerator = new SamplesGenerator();
-            dataFormatProcessor.addExpressionsFromExpressionInternalList(sampleGenerator.sampleProviderAsExpressionInternalList2(faker, providerNames));
+            final List<Method> methodList = sampleGenerator.sampleProviderMethods(providerNames);
+            dataFormatProcessor.addExpressionsFromFakerFunction(f -> sampleGenerator.sampleProviderAsExpressionInternalList(f, methodList));
         } else {
             dataFormatProcessor.addExpressionsFromStringList(Arrays.asList(
                     "#{Name.fullName}",
                     "#{Address.fullAddress}"));
         }
-        loggingSystem.info("data-format-processor:%n%s", dataFormatProcessor.textRepresentation());
-        // step 2: format
-        ParameterParser parameterParser = new ParameterParser();
-        Map<String, String> m = parameterParser.parseToMap(formatParameters);
-        String result = dataFormatProcessor.format(formatEnum, m);
-        if (this.outputFile != null) {
-            Files.writeString(this.outputFile.toPath(), result);
-        } else {
-            loggingSystem.System_out_format("%s%n", result);
-        }
+        return dataFormatProcessor;
     }
 
-    Faker createTheFaker() {
-        final String theLanguageTag = Optional.ofNullable(this.languageTag)
+    /**
+     * Return the locale of the option --locale, or the default locale.
+     *
+     * @return
+     */
+    Locale theLocale() {
+        return Locale.forLanguageTag(theLanguageTag());
+    }
+
+    int theThreads() {
+        return this.threads != null ? this.threads : 1;
+    }
+
+    long theCountOfResults() {
+        return this.countOfResults;
+    }
+
+    DataFormatProcessor.FormatEnum theFormatEnum() {
+        return formatEnum;
+    }
+
+    Map<String, String> theFormatParameters() {
+        return new ParameterParser().parseToMap(formatParameters);
+    }
+
+    File theOutputFile() {
+        return outputFile;
+    }
+
+    String theJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    /**
+     * Return the jdbc parameters of the option --jdbc-parameter.
+     *
+     * @return
+     * @throws IllegalArgumentException if a parameter is invalid
+     */
+    JdbcParameters theJdbcParameters() {
+        return JdbcParameters.withMap(new ParameterParser().parseToMap(jdbcParameters));
+    }
+
+    private String theLanguageTag() {
+        return Optional.ofNullable(this.languageTag)
                 .orElse(Locales.defaultLocale().get().toLanguageTag());
+    }
+
+    Faker createTheFaker() {
+        final String theLanguageTag = theLanguageTag();
+        if (this.seed != null) {
+            return FakerFactory.createFakerFromLocale(theLanguageTag, this.seed);
+        }
         return FakerFactory.createFakerFromLocale(theLanguageTag);
     }
 
+    /**
+     * Signals that the output was closed by its consumer.
+     */
+    static class OutputClosedException extends IOException {
+
+        private static final long serialVersionUID = 20230501L;
+
+        OutputClosedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Writer reporting errors of a {@link PrintWriter} when flushing.
+     * <p>
+     * A {@link PrintWriter}, and {@link System#out} swallow all
+     * {@link IOException}s, eg. a broken pipe. This writer checks their error
+     * state on flush, and throws an {@link OutputClosedException}.
+     */
+    static class OutputClosedCheckingWriter extends FilterWriter {
+
+        private final PrintWriter pw;
+
+        OutputClosedCheckingWriter(PrintWriter pw) {
+            super(pw);
+            this.pw = pw;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            super.flush();
+            if (pw.checkError() || System.out.checkError()) {
+                throw new OutputClosedException("Output closed");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Output stream reporting errors of a {@link PrintStream}.
+     * <p>
+     * Like {@link OutputClosedCheckingWriter}, but for binary output, eg.
+     * compressed output written to {@link System#out}.
+     */
+    static class OutputClosedCheckingStream extends FilterOutputStream {
+
+        private final PrintStream ps;
+
+        OutputClosedCheckingStream(PrintStream ps) {
+            super(ps);
+            this.ps = ps;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ps.write(b);
+            checkError();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ps.write(b, off, len);
+            // binary formats write to the channel directly, without flushing
+            checkError();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            super.flush();
+            checkError();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        private void checkError() throws OutputClosedException {
+            if (ps.checkError()) {
+                throw new OutputClosedException("Output closed");
+            }
+        }
+    }
+
     static class LoggingSystem {
 
         private static final Logger LOGGER = LoggerFactory.getLogger(LoggingSystem.class);
@@ -251,6 +631,10 @@ public class DatafakerCli implements Callable<Integer> {
             this.spec = spec;
         }
 
+        public PrintWriter System_out() {
+            return spec.commandLine().getOut();
+        }
+
         public void System_out_format(String format, Object... args) {
             spec.commandLine().getOut().format(format, args);
         }
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.datafaker.Faker;
+import org.huberb.datafaker.cli.Adapters.FakerFactory;
+import org.huberb.datafaker.cli.Adapters.FakerPool;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatEnum;
+import org.huberb.datafaker.cli.RecordSources.RecordSource;
+import org.huberb.datafaker.cli.RecordSources.WorkerThreadFactory;
+import org.huberb.datafaker.cli.RecordWriters.RecordWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+/**
+ * Serve generated data by http.
+ * <p>
+ * A request defines the options of {@link DatafakerCli} as query parameters,
+ * named like the long option names without leading dashes, eg.
+ * <code>/?locale=de-AT&amp;count=100&amp;format=json</code>. Expression
+ * arguments are defined by the repeatable query parameter <code>arg</code>.
+ * The response is streamed using chunked transfer encoding, while it is
+ * generated.
+ * <p>
+ * Faker instances are kept per locale, and reused by subsequent requests,
+ * thus a request does not pay loading the datafaker yaml files of its locale
+ * again, see {@link FakerPool}. This includes the fakers of the threads of a
+ * request evaluating records in parallel. Compiled expressions are reused, see
+ * {@link ExpressionCompiler}.
+ * <p>
+ * A request generates a limited count of records, using a limited number of
+ * threads, see {@link #DEFAULT_MAX_COUNT}, and {@link #DEFAULT_MAX_THREADS}.
+ * The server has no authentication, by default it listens on the loopback
+ * address only.
+ *
+ * @author berni3
+ */
+class DatafakerServer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatafakerServer.class);
+
+    /**
+     * Query parameters accepted by a request, all other options of
+     * {@link DatafakerCli} are rejected.
+     */
+    static final Set<String> QUERY_PARAMETERS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "locale", "count", "threads", "seed", "expression", "format", "format-parameter", "arg")));
+
+    /**
+     * Default maximum count of records of a request.
+     */
+    static final long DEFAULT_MAX_COUNT = 10_000_000L;
+    /**
+     * Default maximum number of threads of a request.
+     */
+    static final int DEFAULT_MAX_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private final InetAddress bindAddress;
+    private final int port;
+    private final long maxCount;
+    private final int maxThreads;
+    private final FakerPool fakerPool = FakerFactory.sharedPool();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private HttpServer httpServer;
+    private ExecutorService executorService;
+
+    /**
+     * Create a new instance, using the default limits of requests.
+     *
+     * @param bindAddress address to listen on
+     * @param port port to listen on, 0 for any free port
+     */
+    DatafakerServer(InetAddress bindAddress, int port) {
+        this(bindAddress, port, DEFAULT_MAX_COUNT, DEFAULT_MAX_THREADS);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param bindAddress address to listen on
+     * @param port port to listen on, 0 for any free port
+     * @param maxCount maximum count of records of a request
+     * @param maxThreads maximum number of threads of a request
+     */
+    DatafakerServer(InetAddress bindAddress, int port, long maxCount, int maxThreads) {
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.maxCount = maxCount;
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Start serving requests.
+     * <p>
+     * Each request is handled by a thread of its own.
+     *
+     * @throws IOException
+     */
+    void start() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        executorService = Executors.newCachedThreadPool(new WorkerThreadFactory());
+        httpServer.setExecutor(executorService);
+        httpServer.createContext("/", this::handle);
+        httpServer.start();
+    }
+
+    /**
+     * Return the port the server is listening on.
+     *
+     * @return
+     */
+    int port() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Return the address the server is listening on.
+     *
+     * @return
+     */
+    InetSocketAddress address() {
+        return httpServer.getAddress();
+    }
+
+    /**
+     * Stop serving requests, pending requests are aborted.
+     */
+    void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            executorService.shutdownNow();
+        }
+        stopped.countDown();
+    }
+
+    /**
+     * Wait until the server is stopped.
+     *
+     * @throws InterruptedException
+     */
+    void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final DatafakerCli datafakerCli;
+            try {
+                datafakerCli = parseQuery(exchange.getRequestURI().getRawQuery())
+                        .fakerPool(fakerPool);
+                checkLimits(datafakerCli);
+            } catch (IllegalArgumentException | CommandLine.ParameterException ex) {
+                sendError(exchange, 400, ex.getMessage());
+                return;
+            }
+            final Locale locale = datafakerCli.theLocale();
+            final FormatEnum formatEnum = datafakerCli.theFormatEnum();
+            Faker faker = fakerPool.borrow(locale);
+            RecordSource recordSource = null;
+            try {
+                // invalid format parameters are rejected before sending the status
+                final DataFormatProcessor dataFormatProcessor;
+                final RecordWriter recordWriter;
+                try {
+                    dataFormatProcessor = datafakerCli.createDataFormatProcessor(faker);
+                    recordWriter = dataFormatProcessor.createRecordWriter(formatEnum, datafakerCli.theFormatParameters());
+                } catch (IllegalArgumentException ex) {
+                    sendError(exchange, 400, ex.getMessage());
+                    return;
+                }
+                // failing expressions are rejected before sending the status
+                try {
+                    recordSource = dataFormatProcessor.openRecordSource();
+                } catch (RuntimeException ex) {
+                    sendError(exchange, 400, String.format("Cannot evaluate records: %s", ex.getMessage()));
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Type", contentType(formatEnum));
+                // length 0 selects chunked transfer encoding
+                exchange.sendResponseHeaders(200, 0);
+                try (Writer w = OutputWriters.newWriter(exchange.getResponseBody())) {
+                    try {
+                        dataFormatProcessor.format(recordWriter, recordSource, w);
+                    } catch (RuntimeException ex) {
+                        // the status is sent already, the response is incomplete
+                        LOGGER.warn(String.format("Cannot generate records: %s", ex.getMessage()), ex);
+                    } finally {
+                        // before completing the response
+                        recordSource.close();
+                        fakerPool.giveBack(locale, faker);
+                        faker = null;
+                    }
+                }
+            } catch (IOException ex) {
+                // the response is sent partially, eg. the client closed the connection
+                LOGGER.info(String.format("Stop writing: %s", ex.getMessage()));
+            } finally {
+                if (faker != null) {
+                    if (recordSource != null) {
+                        recordSource.close();
+                    }
+                    fakerPool.giveBack(locale, faker);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check the count of records, and the number of threads of a request.
+     *
+     * @param datafakerCli options of a request
+     * @throws IllegalArgumentException if a limit is exceeded
+     */
+    void checkLimits(DatafakerCli datafakerCli) {
+        final long count = datafakerCli.theCountOfResults();
+        if (count > maxCount) {
+            throw new IllegalArgumentException(String.format("Count %d exceeds the maximum %d", count, maxCount));
+        }
+        final int threads = datafakerCli.theThreads();
+        if (threads < 1 || threads > maxThreads) {
+            throw new IllegalArgumentException(String.format("Threads %d is not in the range 1 to %d", threads, maxThreads));
+        }
+    }
+
+    /**
+     * Parse the query parameters of a request as options of
+     * {@link DatafakerCli}.
+     *
+     * @param rawQuery url encoded query, or null
+     * @return options of the request
+     * @throws IllegalArgumentException if a query parameter is not supported
+     * @throws CommandLine.ParameterException if an option value is invalid
+     */
+    static DatafakerCli parseQuery(String rawQuery) {
+        final List<String> options = new ArrayList<>();
+        final List<String> args = new ArrayList<>();
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            for (String parameter : rawQuery.split("&")) {
+                if (parameter.isEmpty()) {
+                    continue;
+                }
+                final int eq = parameter.indexOf('=');
+                final String name = URLDecoder.decode(eq < 0 ? parameter : parameter.substring(0, eq), StandardCharsets.UTF_8);
+                final String value = eq < 0 ? null : URLDecoder.decode(parameter.substring(eq + 1), StandardCharsets.UTF_8);
+                if (!QUERY_PARAMETERS.contains(name)) {
+                    throw new IllegalArgumentException(String.format("Unsupported query parameter %s", name));
+                }
+                if ("arg".equals(name)) {
+                    args.add(value == null ? "" : value);
+                } else if (value == null) {
+                    options.add("--" + name);
+                } else {
+                    options.add("--" + name + "=" + value);
+                }
+            }
+        }
+        if (!args.isEmpty()) {
+            options.add("--");
+            options.addAll(args);
+        }
+        final DatafakerCli datafakerCli = new DatafakerCli();
+        new CommandLine(datafakerCli).parseArgs(options.toArray(new String[0]));
+        return datafakerCli;
+    }
+
+    /**
+     * Return the media type of a format.
+     *
+     * @param formatEnum
+     * @return
+     */
+    static String contentType(FormatEnum formatEnum) {
+        switch (formatEnum) {
+            case csv:
+                return "text/csv; charset=utf-8";
+            case tsv:
+                return "text/tab-separated-values; charset=utf-8";
+            case json:
+                return "application/json; charset=utf-8";
+            case ndjson:
+                return "application/x-ndjson; charset=utf-8";
+            case xml:
+                return "application/xml; charset=utf-8";
+            case yaml:
+                return "application/yaml; charset=utf-8";
+            case arrow:
+                return "application/vnd.apache.arrow.stream";
+            case pgcopybinary:
+                return "application/octet-stream";
+            default:
+                return "text/plain; charset=utf-8";
+        }
+    }
+
+    /**
+     * Return the number of idle fakers of a locale.
+     *
+     * @param locale
+     * @return
+     */
+    int countOfIdleFakers(Locale locale) {
+        return fakerPool.countOfIdle(locale);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        final byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import net.datafaker.Faker;
+import net.datafaker.providers.base.AbstractProvider;
+
+/**
+ * Compile faker expressions once, and evaluate them without parsing.
+ * <p>
+ * An expression like {@code Hello #{Name.firstName}!} is split into literal
+ * segments, and directives. A directive of the form
+ * {@code #{Provider.method}} is resolved to a method handle of the provider
+ * accessor of {@link Faker}, and a method handle of the provider method. On
+ * binding to a faker instance the provider is looked up once, thus evaluating
+ * the directive costs a method handle invocation only.
+ * <p>
+ * Directives having arguments, like {@code #{numerify '##'}}, and directives
+ * not resolvable to a provider method are evaluated by
+ * {@link Faker#expression(String)}.
+ *
+ * @author berni3
+ */
+class ExpressionCompiler {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+    /**
+     * Directives resolved by datafaker as provider, and method; lowercase
+     * provider names are resolved as yaml keys by datafaker.
+     */
+    private static final Pattern PROVIDER_METHOD_DIRECTIVE = Pattern.compile("[A-Z][A-Za-z0-9_]*\\.[A-Za-z0-9_]+");
+    /**
+     * Compiled expressions, reused by subsequent compilations of the same
+     * expression, eg. by requests of {@link DatafakerServer}.
+     */
+    private static final Map<String, CompiledExpression> CACHE = new ConcurrentHashMap<>();
+    static final int MAX_CACHE_SIZE = 1024;
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Compile an expression.
+     * <p>
+     * A compiled expression is immutable, the compiled expressions of up to
+     * {@link #MAX_CACHE_SIZE} distinct expressions are kept, and reused.
+     *
+     * @param expression faker expression
+     * @return the compiled expression, never null
+     */
+    static CompiledExpression compile(String expression) {
+        final CompiledExpression cached = CACHE.get(expression);
+        if (cached != null) {
+            return cached;
+        }
+        final CompiledExpression compiledExpression = compileUncached(expression);
+        if (CACHE.size() < MAX_CACHE_SIZE) {
+            CACHE.put(expression, compiledExpression);
+        }
+        return compiledExpression;
+    }
+
+    private static CompiledExpression compileUncached(String expression) {
+        final List<Segment> segments = new ArrayList<>();
+        int index = 0;
+        while (index < expression.length()) {
+            final int directiveStart = expression.indexOf("#{", index);
+            if (directiveStart < 0) {
+                segments.add(new LiteralSegment(expression.substring(index)));
+                break;
+            }
+            final int directiveEnd = findDirectiveEnd(expression, directiveStart + 2);
+            if (directiveEnd < 0) {
+                // malformed, leave it to datafaker as a whole
+                return new CompiledExpression(expression,
+                        Collections.singletonList(new FakerExpressionSegment(expression)));
+            }
+            if (directiveStart > index) {
+                segments.add(new LiteralSegment(expression.substring(index, directiveStart)));
+            }
+            final String directive = expression.substring(directiveStart + 2, directiveEnd);
+            segments.add(compileDirective(directive));
+            index = directiveEnd + 1;
+        }
+        return new CompiledExpression(expression, segments);
+    }
+
+    /**
+     * Find the closing brace of a directive.
+     * <p>
+     * Braces inside of single quoted arguments, like in
+     * {@code #{regexify '[a-z]{3}'}}, are ignored.
+     *
+     * @param expression
+     * @param start index of the first character of the directive
+     * @return index of the closing brace, or -1 if not found
+     */
+    private static int findDirectiveEnd(String expression, int start) {
+        int depth = 1;
+        boolean quoted = false;
+        for (int i = start; i < expression.length(); i++) {
+            final char c = expression.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '{') {
+                depth += 1;
+            } else if (!quoted && c == '}') {
+                depth -= 1;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static Segment compileDirective(String directive) {
+        if (PROVIDER_METHOD_DIRECTIVE.matcher(directive).matches()) {
+            final int dotIndex = directive.indexOf('.');
+            final Method accessor = findProviderAccessor(directive.substring(0, dotIndex));
+            if (accessor != null) {
+                final Method method = findNoArgMethod(accessor.getReturnType(), directive.substring(dotIndex + 1));
+                if (method != null) {
+                    try {
+                        return new ProviderMethodSegment(directive,
+                                LOOKUP.unreflect(accessor),
+                                LOOKUP.unreflect(method));
+                    } catch (IllegalAccessException ex) {
+                        // not accessible, leave it to datafaker
+                    }
+                }
+            }
+        }
+        return new FakerExpressionSegment("#{" + directive + "}");
+    }
+
+    /**
+     * Find the method of {@link Faker} returning a provider.
+     *
+     * @param providerName name of the provider, eg. {@code Name}
+     * @return the accessor method, or null if not found
+     */
+    static Method findProviderAccessor(String providerName) {
+        final Method accessor = findNoArgMethod(Faker.class, providerName);
+        if (accessor != null && AbstractProvider.class.isAssignableFrom(accessor.getReturnType())) {
+            return accessor;
+        }
+        return null;
+    }
+
+    /**
+     * Find a public no-arg method the way datafaker does: ignoring case, and
+     * underscores.
+     *
+     * @param clazz
+     * @param name
+     * @return the method, or null if not found, or ambiguous
+     */
+    static Method findNoArgMethod(Class<?> clazz, String name) {
+        final String normalizedName = name.replace("_", "");
+        Method result = null;
+        for (Method method : clazz.getMethods()) {
+            if (method.getParameterCount() == 0
+                    && !Modifier.isStatic(method.getModifiers())
+                    && method.getReturnType() != void.class
+                    && method.getName().equalsIgnoreCase(normalizedName)) {
+                if (result != null && !result.getName().equals(method.getName())) {
+                    return null;
+                }
+                if (result == null || result.getReturnType().isAssignableFrom(method.getReturnType())) {
+                    // prefer the most specific covariant override
+                    result = method;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * An expression split into segments.
+     */
+    static class CompiledExpression {
+
+        private final String expression;
+        private final List<Segment> segments;
+
+        CompiledExpression(String expression, List<Segment> segments) {
+            this.expression = expression;
+            this.segments = segments;
+        }
+
+        String getExpression() {
+            return expression;
+        }
+
+        /**
+         * Return the number of directives evaluated by direct provider method
+         * invocations.
+         *
+         * @return
+         */
+        int getCountOfProviderMethods() {
+            return (int) segments.stream().filter(s -> s instanceof ProviderMethodSegment).count();
+        }
+
+        /**
+         * Return the number of segments evaluated by datafaker.
+         *
+         * @return
+         */
+        int getCountOfFakerExpressions() {
+            return (int) segments.stream().filter(s -> s instanceof FakerExpressionSegment).count();
+        }
+
+        /**
+         * Bind this expression to a faker instance.
+         * <p>
+         * The returned supplier is not thread safe, as the faker itself.
+         *
+         * @param faker
+         * @return supplier evaluating this expression using the faker
+         */
+        Supplier<String> bind(Faker faker) {
+            if (segments.isEmpty()) {
+                return () -> "";
+            }
+            if (segments.size() == 1) {
+                return segments.get(0).bind(faker);
+            }
+            @SuppressWarnings("unchecked")
+            final Supplier<String>[] suppliers = new Supplier[segments.size()];
+            for (int i = 0; i < suppliers.length; i++) {
+                suppliers[i] = segments.get(i).bind(faker);
+            }
+            return () -> {
+                final StringBuilder sb = new StringBuilder();
+                for (Supplier<String> supplier : suppliers) {
+                    sb.append(supplier.get());
+                }
+                return sb.toString();
+            };
+        }
+    }
+
+    /**
+     * Part of a compiled expression.
+     */
+    interface Segment {
+
+        Supplier<String> bind(Faker faker);
+    }
+
+    /**
+     * Text outside of any directive.
+     */
+    static class LiteralSegment implements Segment {
+
+        private final String text;
+
+        LiteralSegment(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public Supplier<String> bind(Faker faker) {
+            return () -> text;
+        }
+    }
+
+    /**
+     * Text evaluated by {@link Faker#expression(String)}.
+     */
+    static class FakerExpressionSegment implements Segment {
+
+        private final String expression;
+
+        FakerExpressionSegment(String expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        public Supplier<String> bind(Faker faker) {
+            return () -> faker.expression(expression);
+        }
+    }
+
+    /**
+     * Directive evaluated by invoking a provider method.
+     */
+    static class ProviderMethodSegment implements Segment {
+
+        private static final MethodType OBJECT_SUPPLIER_TYPE = MethodType.methodType(Object.class);
+        private final String directive;
+        private final MethodHandle accessorHandle;
+        private final MethodHandle methodHandle;
+
+        /**
+         * Create a new instance.
+         *
+         * @param directive the directive, for error messages
+         * @param accessorHandle faker method returning the provider
+         * @param methodHandle provider method returning the value
+         */
+        ProviderMethodSegment(String directive, MethodHandle accessorHandle, MethodHandle methodHandle) {
+            this.directive = directive;
+            this.accessorHandle = accessorHandle;
+            this.methodHandle = methodHandle;
+        }
+
+        @Override
+        public Supplier<String> bind(Faker faker) {
+            final Object provider;
+            try {
+                provider = accessorHandle.invoke(faker);
+            } catch (Throwable t) {
+                throw new IllegalStateException("Cannot resolve provider of #{" + directive + "}", t);
+            }
+            final MethodHandle boundHandle = methodHandle.bindTo(provider).asType(OBJECT_SUPPLIER_TYPE);
+            return () -> {
+                final Object value;
+                try {
+                    value = boundHandle.invokeExact();
+                } catch (RuntimeException | Error ex) {
+                    throw ex;
+                } catch (Throwable t) {
+                    throw new IllegalStateException("Cannot evaluate #{" + directive + "}", t);
+                }
+                if (value == null) {
+                    // datafaker fails on a null value, too
+                    throw new IllegalStateException("Unable to resolve #{" + directive + "} directive");
+                }
+                return value.toString();
+            };
+        }
+    }
+}
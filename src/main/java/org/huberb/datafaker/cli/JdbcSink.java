@@ -0,0 +1,340 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import static org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.convToInteger;
+import org.huberb.datafaker.cli.RecordSources.RecordSource;
+
+/**
+ * Load records into a database table using JDBC.
+ * <p>
+ * The table is created if it does not exist, having a character column per
+ * field. Records are inserted by a prepared statement, using jdbc batches. If
+ * several connections are used, each connection loads a consecutive range of
+ * records, evaluated by its own faker.
+ * <p>
+ * The password is defined by a parameter, an environment variable, or the
+ * first line of a file, see {@link JdbcParameters}.
+ *
+ * @author berni3
+ */
+class JdbcSink {
+
+    private final String url;
+    private final JdbcParameters jdbcParameters;
+
+    /**
+     * Create a new instance.
+     *
+     * @param url jdbc url
+     * @param jdbcParameters
+     */
+    JdbcSink(String url, JdbcParameters jdbcParameters) {
+        this.url = url;
+        this.jdbcParameters = jdbcParameters;
+    }
+
+    /**
+     * Load the records of a {@link DataFormatProcessor}.
+     *
+     * @param dataFormatProcessor
+     * @return number of loaded records
+     * @throws IOException
+     */
+    long load(DataFormatProcessor dataFormatProcessor) throws IOException {
+        final String[] fieldnames = dataFormatProcessor.fieldnames();
+        final String password = jdbcParameters.password();
+        final String insertStatement;
+        try (Connection connection = connect(password)) {
+            createTableIfNotExists(connection, fieldnames);
+            insertStatement = insertStatement(connection, fieldnames);
+        } catch (SQLException ex) {
+            throw new IOException(String.format("Cannot create table %s", jdbcParameters.table), ex);
+        }
+        final AtomicLong countOfRecords = new AtomicLong();
+        final int connections = jdbcParameters.connections;
+        dataFormatProcessor.processShards(connections, connections, (shard, recordSource, count) -> {
+            countOfRecords.addAndGet(loadRecords(password, insertStatement, fieldnames.length, recordSource, count));
+        });
+        return countOfRecords.get();
+    }
+
+    private Connection connect(String password) throws SQLException {
+        if (jdbcParameters.user != null) {
+            return DriverManager.getConnection(url, jdbcParameters.user, password);
+        }
+        return DriverManager.getConnection(url);
+    }
+
+    void createTableIfNotExists(Connection connection, String[] fieldnames) throws SQLException {
+        if (tableExists(connection)) {
+            return;
+        }
+        final String quote = identifierQuote(connection);
+        final StringBuilder sb = new StringBuilder();
+        sb.append("CREATE TABLE ").append(jdbcParameters.table).append(" (");
+        for (int i = 0; i < fieldnames.length; i++) {
+            sb.append(i > 0 ? ", " : "")
+                    .append(quotedIdentifier(quote, fieldnames[i]))
+                    .append(' ').append(jdbcParameters.columnType);
+        }
+        sb.append(')');
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sb.toString());
+        }
+    }
+
+    /**
+     * Return true if the table exists, using the database metadata.
+     * <p>
+     * The table name, and schema name are unquoted identifiers, thus they are
+     * converted to the case the database stores identifiers. If the table
+     * name has no schema, the schema of the connection is used.
+     *
+     * @param connection
+     * @return
+     * @throws SQLException
+     */
+    boolean tableExists(Connection connection) throws SQLException {
+        final DatabaseMetaData metaData = connection.getMetaData();
+        final String table = jdbcParameters.table;
+        final int dot = table.indexOf('.');
+        final String schemaName = dot < 0 ? connection.getSchema() : storedIdentifier(metaData, table.substring(0, dot));
+        final String tableName = storedIdentifier(metaData, table.substring(dot + 1));
+        try (ResultSet rs = metaData.getTables(null,
+                searchPattern(metaData, schemaName),
+                searchPattern(metaData, tableName),
+                null)) {
+            return rs.next();
+        }
+    }
+
+    private static String storedIdentifier(DatabaseMetaData metaData, String identifier) throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return identifier.toUpperCase(Locale.ROOT);
+        } else if (metaData.storesLowerCaseIdentifiers()) {
+            return identifier.toLowerCase(Locale.ROOT);
+        }
+        return identifier;
+    }
+
+    /**
+     * Escape the wildcards '_', and '%' of a metadata search pattern.
+     */
+    private static String searchPattern(DatabaseMetaData metaData, String name) throws SQLException {
+        final String escape = metaData.getSearchStringEscape();
+        if (name == null || escape == null || escape.isEmpty()) {
+            return name;
+        }
+        return name.replace(escape, escape + escape)
+                .replace("_", escape + "_")
+                .replace("%", escape + "%");
+    }
+
+    String insertStatement(Connection connection, String[] fieldnames) throws SQLException {
+        final String quote = identifierQuote(connection);
+        final StringBuilder sb = new StringBuilder();
+        sb.append("INSERT INTO ").append(jdbcParameters.table).append(" (");
+        for (int i = 0; i < fieldnames.length; i++) {
+            sb.append(i > 0 ? ", " : "").append(quotedIdentifier(quote, fieldnames[i]));
+        }
+        sb.append(") VALUES (");
+        for (int i = 0; i < fieldnames.length; i++) {
+            sb.append(i > 0 ? ", ?" : "?");
+        }
+        sb.append(')');
+        return sb.toString();
+    }
+
+    private static String identifierQuote(Connection connection) throws SQLException {
+        final String quote = connection.getMetaData().getIdentifierQuoteString();
+        return quote == null || quote.isBlank() ? "" : quote;
+    }
+
+    /**
+     * Quote a field name as identifier, doubling embedded quote strings.
+     * <p>
+     * If the database does not support quoted identifiers, the field name
+     * must be a valid unquoted identifier.
+     *
+     * @param quote identifier quote string, or empty
+     * @param fieldname
+     * @return
+     * @throws SQLException if the field name cannot be used as identifier
+     */
+    static String quotedIdentifier(String quote, String fieldname) throws SQLException {
+        if (quote.isEmpty()) {
+            if (!JdbcParameters.IDENTIFIER.matcher(fieldname).matches()) {
+                throw new SQLException(String.format("Invalid column name %s", fieldname));
+            }
+            return fieldname;
+        }
+        return quote + fieldname.replace(quote, quote + quote) + quote;
+    }
+
+    /**
+     * Load records using a connection of its own.
+     * <p>
+     * A jdbc batch is executed every batch records, and the transaction is
+     * committed every commit records. On failure the pending transaction is
+     * rolled back.
+     */
+    private long loadRecords(String password, String insertStatement, int countOfFields, RecordSource recordSource, long count) throws IOException {
+        final int batch = jdbcParameters.batch;
+        final int commit = jdbcParameters.commit;
+        try (Connection connection = connect(password)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(insertStatement)) {
+                for (long index = 0; index < count; index++) {
+                    final String[] record = recordSource.nextRecord();
+                    for (int i = 0; i < countOfFields; i++) {
+                        ps.setString(i + 1, record[i]);
+                    }
+                    ps.addBatch();
+                    final long loaded = index + 1;
+                    if (loaded % batch == 0 || loaded % commit == 0) {
+                        ps.executeBatch();
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException(String.format("Interrupted after %d records", loaded));
+                        }
+                    }
+                    if (loaded % commit == 0) {
+                        connection.commit();
+                    }
+                }
+                ps.executeBatch();
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException ex) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackEx) {
+                    ex.addSuppressed(rollbackEx);
+                }
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new IOException(String.format("Cannot load records into table %s", jdbcParameters.table), ex);
+        }
+        return count;
+    }
+
+    /**
+     * Holds parameters of loading records using jdbc.
+     */
+    public static class JdbcParameters {
+
+        /**
+         * Table name, optionally having a schema name, as unquoted
+         * identifiers.
+         */
+        static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)?");
+        /**
+         * Unquoted identifier.
+         */
+        static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*");
+        /**
+         * Type name of a column, optionally having a length, or a precision,
+         * and a scale, eg. VARCHAR(1000), DECIMAL(10,2).
+         */
+        static final Pattern COLUMN_TYPE = Pattern.compile("[A-Za-z_][A-Za-z0-9_ ]*(\\(\\d+(, ?\\d+)?\\))?");
+
+        String user = null;
+        String password = null;
+        String passwordEnv = null;
+        String passwordFile = null;
+        String table = "DATAFAKER_TABLE";
+        String columnType = "VARCHAR(1000)";
+        int batch = 1000;
+        int commit = 10000;
+        int connections = 1;
+
+        public static final String description = "Jdbc parameters:%n"
+                + " user=chars, default: none%n"
+                + " password=chars, default: none%n"
+                + " passwordEnv=name of an environment variable defining the password, default: none%n"
+                + " passwordFile=file having the password as first line, default: none%n"
+                + " table=[schema.]table, unquoted identifiers, default: DATAFAKER_TABLE%n"
+                + " columnType=type name[(length[,scale])], type of created columns, default: VARCHAR(1000)%n"
+                + " batch=number of records of a jdbc batch, default: 1000%n"
+                + " commit=number of records of a transaction, default: 10000%n"
+                + " connections=number of parallel connections, default: 1";
+
+        public static JdbcParameters withMap(Map<String, String> m) {
+            JdbcParameters instance = new JdbcParameters() {
+                {
+                    user = m.get("user");
+                    password = m.get("password");
+                    passwordEnv = m.get("passwordEnv");
+                    passwordFile = m.get("passwordFile");
+                    table = m.getOrDefault("table", "DATAFAKER_TABLE");
+                    columnType = m.getOrDefault("columnType", "VARCHAR(1000)");
+                    batch = Math.max(1, convToInteger.apply(m.getOrDefault("batch", "1000")));
+                    commit = Math.max(1, convToInteger.apply(m.getOrDefault("commit", "10000")));
+                    connections = Math.max(1, convToInteger.apply(m.getOrDefault("connections", "1")));
+                }
+            };
+            if (!TABLE_NAME.matcher(instance.table).matches()) {
+                throw new IllegalArgumentException(String.format("Invalid table name %s", instance.table));
+            }
+            if (!COLUMN_TYPE.matcher(instance.columnType).matches()) {
+                throw new IllegalArgumentException(String.format("Invalid column type %s", instance.columnType));
+            }
+            return instance;
+        }
+
+        /**
+         * Return the password of parameter password, of the environment
+         * variable of parameter passwordEnv, or of the first line of the file
+         * of parameter passwordFile.
+         *
+         * @return the password, or null if none is defined
+         * @throws IOException if the environment variable is not defined, or
+         * the file cannot be read
+         */
+        String password() throws IOException {
+            if (password != null) {
+                return password;
+            } else if (passwordEnv != null) {
+                final String value = System.getenv(passwordEnv);
+                if (value == null) {
+                    throw new IOException(String.format("Environment variable %s is not defined", passwordEnv));
+                }
+                return value;
+            } else if (passwordFile != null) {
+                return Files.readAllLines(Paths.get(passwordFile), StandardCharsets.UTF_8).stream()
+                        .findFirst()
+                        .orElse("");
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import net.datafaker.Faker;
+import org.huberb.datafaker.cli.Adapters.FakerFactory;
+import org.huberb.datafaker.cli.Adapters.FakerPool;
+import org.huberb.datafaker.cli.JdbcSink.JdbcParameters;
+import org.huberb.datafaker.cli.RecordSources.WorkerThreadFactory;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import picocli.CommandLine;
+
+/**
+ * Run many generation jobs in a single jvm.
+ * <p>
+ * Jobs are defined by a yaml file, a job defines the options of
+ * {@link DatafakerCli} named like the long option names without leading
+ * dashes. Expression arguments are defined by the list <code>args</code>,
+ * format, and jdbc parameters may be defined as map. Options of
+ * <code>defaults</code> apply to each job not defining the option itself.
+ * <pre>
+ * parallelism: 4
+ * defaults:
+ *   locale: de-AT
+ *   count: 1000
+ * jobs:
+ *   - name: persons
+ *     output-file: persons.csv
+ *     expression: expression
+ *     args: ["name:#{Name.fullName}", "city:#{Address.city}"]
+ *   - name: names
+ *     format: json
+ *     output-file: names.json
+ *     expression: sampleProvider
+ *     args: [Name]
+ * </pre>
+ * <p>
+ * Up to parallelism jobs run concurrently, by default the number of
+ * available processors. Faker instances are reused by subsequent jobs of the
+ * same locale, see {@link FakerPool}, including the fakers of threads
+ * evaluating records, or writing shards. The provider catalog is shared by all
+ * jobs, see {@link ProvidersCatalog#shared()}.
+ * <p>
+ * A job writing shards without option <code>threads</code> uses the available
+ * processors divided by the number of concurrent jobs, thus concurrent jobs do
+ * not oversubscribe the processors.
+ *
+ * @author berni3
+ */
+class JobsRunner {
+
+    /**
+     * Options of a job, all other options of {@link DatafakerCli} are
+     * rejected.
+     */
+    static final Set<String> JOB_OPTIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "locale", "count", "threads", "seed", "expression", "format", "format-parameter",
+            "output-file", "shards", "compress", "jdbc-url", "jdbc-parameter")));
+
+    /**
+     * Name of a format, or jdbc parameter.
+     */
+    private static final Pattern PARAMETER_NAME = Pattern.compile("[^,:=\\\\]+");
+
+    private final FakerPool fakerPool;
+    private final int parallelism;
+
+    /**
+     * Create a new instance.
+     *
+     * @param parallelism maximum number of concurrently running jobs
+     */
+    JobsRunner(int parallelism) {
+        this.fakerPool = FakerFactory.sharedPool();
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * A job of a jobs file.
+     */
+    static class Job {
+
+        final String name;
+        final DatafakerCli datafakerCli;
+
+        Job(String name, DatafakerCli datafakerCli) {
+            this.name = name;
+            this.datafakerCli = datafakerCli;
+        }
+    }
+
+    /**
+     * The outcome of running a job.
+     */
+    static class JobResult {
+
+        final Job job;
+        final long elapsedMillis;
+        final Exception failure;
+
+        JobResult(Job job, long elapsedMillis, Exception failure) {
+            this.job = job;
+            this.elapsedMillis = elapsedMillis;
+            this.failure = failure;
+        }
+
+        boolean isOk() {
+            return failure == null;
+        }
+    }
+
+    /**
+     * Jobs, and the parallelism of a jobs file.
+     */
+    static class JobsFile {
+
+        final int parallelism;
+        final List<Job> jobs;
+
+        JobsFile(int parallelism, List<Job> jobs) {
+            this.parallelism = parallelism;
+            this.jobs = jobs;
+        }
+    }
+
+    /**
+     * Read a jobs file.
+     * <p>
+     * The options of all jobs are validated before any job is run.
+     *
+     * @param reader yaml content
+     * @return
+     * @throws IllegalArgumentException if the content is not a valid jobs
+     * file
+     */
+    static JobsFile readJobsFile(Reader reader) {
+        final Object content;
+        try {
+            content = new Yaml(new SafeConstructor(new LoaderOptions())).load(reader);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException(String.format("Invalid jobs file: %s", ex.getMessage()), ex);
+        }
+        if (!(content instanceof Map)) {
+            throw new IllegalArgumentException("Invalid jobs file: expecting a map of jobs");
+        }
+        final Map<?, ?> m = (Map<?, ?>) content;
+        final Object parallelismValue = m.get("parallelism");
+        final int parallelism = parallelismValue instanceof Number
+                ? ((Number) parallelismValue).intValue()
+                : Runtime.getRuntime().availableProcessors();
+        final Map<?, ?> defaults = m.get("defaults") instanceof Map ? (Map<?, ?>) m.get("defaults") : Collections.emptyMap();
+        if (!(m.get("jobs") instanceof List)) {
+            throw new IllegalArgumentException("Invalid jobs file: expecting a list of jobs");
+        }
+        final List<Job> jobs = new ArrayList<>();
+        final Set<String> outputs = new HashSet<>();
+        for (Object jobValue : (List<?>) m.get("jobs")) {
+            if (!(jobValue instanceof Map)) {
+                throw new IllegalArgumentException(String.format("Invalid job %d: expecting a map of options", jobs.size()));
+            }
+            final Map<Object, Object> options = new LinkedHashMap<>(defaults);
+            options.putAll((Map<?, ?>) jobValue);
+            final String name = String.valueOf(options.getOrDefault("name", "job-" + jobs.size()));
+            options.remove("name");
+            final Job job = new Job(name, parseJob(name, options));
+            // concurrent jobs must not write the same output
+            final String output = output(job);
+            if (!outputs.add(output)) {
+                throw new IllegalArgumentException(String.format("Invalid job %s: %s is written by another job", name, output));
+            }
+            jobs.add(job);
+        }
+        return new JobsFile(parallelism, jobs);
+    }
+
+    /**
+     * Parse the options of a job.
+     */
+    private static DatafakerCli parseJob(String name, Map<Object, Object> options) {
+        final List<String> args = new ArrayList<>();
+        final List<String> expressionArgs = new ArrayList<>();
+        boolean hasOutput = false;
+        for (Map.Entry<Object, Object> e : options.entrySet()) {
+            final String option = String.valueOf(e.getKey());
+            final Object value = e.getValue();
+            if ("args".equals(option)) {
+                if (value instanceof List) {
+                    ((List<?>) value).forEach(arg -> expressionArgs.add(String.valueOf(arg)));
+                } else {
+                    expressionArgs.add(String.valueOf(value));
+                }
+                continue;
+            }
+            if (!JOB_OPTIONS.contains(option)) {
+                throw new IllegalArgumentException(String.format("Invalid job %s: unsupported option %s", name, option));
+            }
+            hasOutput = hasOutput || "output-file".equals(option) || "jdbc-url".equals(option);
+            if (value instanceof Boolean) {
+                args.add(String.format("--%s=%s", option, value));
+            } else if (value instanceof Map) {
+                // eg. format-parameter: {header: false}
+                args.add(String.format("--%s=%s", option, formatParameters(name, (Map<?, ?>) value)));
+            } else if (value != null) {
+                args.add(String.format("--%s=%s", option, value));
+            }
+        }
+        if (!hasOutput) {
+            throw new IllegalArgumentException(String.format("Invalid job %s: requires option output-file, or jdbc-url", name));
+        }
+        if (!expressionArgs.isEmpty()) {
+            args.add("--");
+            args.addAll(expressionArgs);
+        }
+        final DatafakerCli datafakerCli = new DatafakerCli();
+        try {
+            new CommandLine(datafakerCli).parseArgs(args.toArray(new String[0]));
+        } catch (CommandLine.ParameterException ex) {
+            throw new IllegalArgumentException(String.format("Invalid job %s: %s", name, ex.getMessage()), ex);
+        }
+        return datafakerCli;
+    }
+
+    /**
+     * Format a map of parameters as parsed by {@link ParameterParser}.
+     * <p>
+     * Separators, and escape characters of a value are escaped, eg.
+     * <code>columnType: DECIMAL(10,2)</code> is formatted as
+     * <code>columnType=DECIMAL(10\,2)</code>.
+     *
+     * @throws IllegalArgumentException if a parameter name contains a
+     * separator
+     */
+    static String formatParameters(String name, Map<?, ?> parameters) {
+        final StringBuilder sb = new StringBuilder();
+        for (Map.Entry<?, ?> e : parameters.entrySet()) {
+            final String parameterName = String.valueOf(e.getKey());
+            if (!PARAMETER_NAME.matcher(parameterName).matches()) {
+                throw new IllegalArgumentException(String.format("Invalid job %s: invalid parameter name %s", name, parameterName));
+            }
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(parameterName).append('=');
+            final String value = String.valueOf(e.getValue());
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c == ',' || c == '\\') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return the output of a job, its output file, or its jdbc url, and
+     * table.
+     */
+    private static String output(Job job) {
+        final DatafakerCli datafakerCli = job.datafakerCli;
+        if (datafakerCli.theJdbcUrl() != null) {
+            final JdbcParameters jdbcParameters;
+            try {
+                jdbcParameters = datafakerCli.theJdbcParameters();
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(String.format("Invalid job %s: %s", job.name, ex.getMessage()), ex);
+            }
+            // unquoted identifiers are case insensitive
+            return String.format("table %s of %s", jdbcParameters.table.toUpperCase(Locale.ROOT), datafakerCli.theJdbcUrl());
+        }
+        return String.format("output file %s", datafakerCli.theOutputFile().toPath().toAbsolutePath().normalize());
+    }
+
+    /**
+     * Run jobs, up to parallelism jobs concurrently.
+     * <p>
+     * A failing job does not stop the other jobs.
+     *
+     * @param jobs
+     * @return the results in the order of the jobs
+     * @throws InterruptedException
+     */
+    List<JobResult> run(List<Job> jobs) throws InterruptedException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.min(parallelism, Math.max(1, jobs.size())), new WorkerThreadFactory());
+        try {
+            final List<Future<JobResult>> futures = new ArrayList<>();
+            final int concurrentJobs = Math.min(parallelism, Math.max(1, jobs.size()));
+            final int shardWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() / concurrentJobs);
+            for (Job job : jobs) {
+                futures.add(executorService.submit(() -> runJob(job, shardWorkers)));
+            }
+            final List<JobResult> results = new ArrayList<>();
+            for (Future<JobResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException ex) {
+                    // runJob catches all exceptions, but no errors
+                    if (ex.getCause() instanceof Error) {
+                        throw (Error) ex.getCause();
+                    }
+                    throw new IllegalStateException(ex.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private JobResult runJob(Job job, int shardWorkers) {
+        final long startNanos = System.nanoTime();
+        final Locale locale = job.datafakerCli.theLocale();
+        final Faker faker = fakerPool.borrow(locale);
+        Exception failure = null;
+        try {
+            job.datafakerCli
+                    .fakerPool(fakerPool)
+                    .defaultShardWorkers(shardWorkers)
+                    .runJob(faker);
+        } catch (Exception ex) {
+            failure = ex;
+        } finally {
+            fakerPool.giveBack(locale, faker);
+        }
+        return new JobResult(job, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), failure);
+    }
+
+    /**
+     * Write the timing summary of the jobs.
+     *
+     * @param pw
+     * @param results
+     * @param elapsedMillis elapsed wall clock time of all jobs
+     */
+    static void writeSummary(PrintWriter pw, List<JobResult> results, long elapsedMillis) {
+        final int nameWidth = Math.max(4, results.stream().mapToInt(r -> r.job.name.length()).max().orElse(0));
+        final String format = "%-" + nameWidth + "s %10s  %s%n";
+        pw.format(format, "job", "time ms", "status");
+        long sumMillis = 0;
+        for (JobResult result : results) {
+            sumMillis += result.elapsedMillis;
+            pw.format(format, result.job.name, result.elapsedMillis,
+                    result.isOk() ? "ok" : "failed: " + result.failure);
+        }
+        final long failed = results.stream().filter(r -> !r.isOk()).count();
+        pw.format("%d jobs, %d failed, %d ms elapsed, %d ms sum of jobs%n", results.size(), failed, elapsedMillis, sumMillis);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import net.datafaker.Faker;
+
+/**
+ * Generate the GraalVM native-image configuration of datafaker-cli.
+ * <p>
+ * The reflection configuration registers the public methods of all provider
+ * classes found by {@link ProvidersCatalog}, including the providers of
+ * {@value #SAMPLES_PROVIDER_PACKAGE}, and of the faker class hierarchy, as
+ * datafaker resolves expressions by reflection. The resource configuration
+ * registers the datafaker yaml locale files, and the providers index.
+ * <p>
+ * Invoked at build time by the maven profile native, see pom.xml.
+ *
+ * @author berni3
+ */
+public final class NativeImageConfigGenerator {
+
+    /**
+     * Package of the sample providers of datafaker-cli.
+     */
+    static final String SAMPLES_PROVIDER_PACKAGE = "org.huberb.datafaker.samples";
+
+    /**
+     * Location of the configuration files, relative to the classes directory.
+     */
+    static final String CONFIG_DIRECTORY = "META-INF/native-image/org.huberb.datafaker/datafaker-cli";
+
+    static final List<String> RESOURCE_PATTERNS = Arrays.asList(
+            ".*\\\\.yml$",
+            "org/huberb/datafaker/cli/" + ProvidersQueries.PROVIDERS_INDEX_RESOURCE.replace(".", "\\\\."));
+
+    private NativeImageConfigGenerator() {
+    }
+
+    /**
+     * Generate the native-image configuration.
+     *
+     * @param args optional classes directory, default target/classes
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        final Path classesDirectory = Paths.get(args.length > 0 ? args[0] : "target/classes");
+        final Path configDirectory = write(classesDirectory);
+        System.out.format("Generated native-image configuration %s%n", configDirectory);
+    }
+
+    /**
+     * Write the native-image configuration below the given classes directory.
+     *
+     * @param classesDirectory
+     * @return the configuration directory
+     * @throws IOException
+     */
+    static Path write(Path classesDirectory) throws IOException {
+        final Path configDirectory = classesDirectory.resolve(CONFIG_DIRECTORY);
+        Files.createDirectories(configDirectory);
+        try (Writer w = Files.newBufferedWriter(configDirectory.resolve("reflect-config.json"), StandardCharsets.UTF_8)) {
+            writeReflectConfig(reflectionClasses(), w);
+        }
+        try (Writer w = Files.newBufferedWriter(configDirectory.resolve("resource-config.json"), StandardCharsets.UTF_8)) {
+            writeResourceConfig(RESOURCE_PATTERNS, w);
+        }
+        return configDirectory;
+    }
+
+    /**
+     * Return the classes accessed by reflection: the faker class hierarchy,
+     * and all provider classes.
+     *
+     * @return
+     */
+    static List<Class> reflectionClasses() {
+        final Set<Class> result = new LinkedHashSet<>();
+        addClassHierarchy(Faker.class, result);
+
+        final List<String> providerPackages = new ArrayList<>(ProvidersQueries.DEFAULT_PROVIDER_PACKAGES);
+        providerPackages.add(SAMPLES_PROVIDER_PACKAGE);
+        result.addAll(new ProvidersCatalog(providerPackages).getProviderClasses());
+        return new ArrayList<>(result);
+    }
+
+    private static void addClassHierarchy(Class clazz, Set<Class> classes) {
+        if (clazz == null || clazz == Object.class || !classes.add(clazz)) {
+            return;
+        }
+        addClassHierarchy(clazz.getSuperclass(), classes);
+        for (Class interfaceClass : clazz.getInterfaces()) {
+            addClassHierarchy(interfaceClass, classes);
+        }
+    }
+
+    /**
+     * Write a reflect-config.json.
+     *
+     * @param classes
+     * @param w
+     * @throws IOException
+     */
+    static void writeReflectConfig(List<Class> classes, Writer w) throws IOException {
+        w.write("[");
+        for (int i = 0; i < classes.size(); i++) {
+            w.write(i > 0 ? ",\n" : "\n");
+            w.write("  {\"name\": \"");
+            w.write(classes.get(i).getName());
+            w.write("\", \"allPublicMethods\": true, \"allPublicConstructors\": true, \"allDeclaredConstructors\": true}");
+        }
+        w.write("\n]\n");
+    }
+
+    /**
+     * Write a resource-config.json.
+     *
+     * @param patterns regular expressions of resource names, escaped for
+     * json
+     * @param w
+     * @throws IOException
+     */
+    static void writeResourceConfig(List<String> patterns, Writer w) throws IOException {
+        w.write("{\n  \"resources\": {\n    \"includes\": [");
+        for (int i = 0; i < patterns.size(); i++) {
+            w.write(i > 0 ? ",\n" : "\n");
+            w.write("      {\"pattern\": \"");
+            w.write(patterns.get(i));
+            w.write("\"}");
+        }
+        w.write("\n    ]\n  },\n  \"bundles\": []\n}\n");
+    }
+}
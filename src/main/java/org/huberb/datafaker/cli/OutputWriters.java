@@ -0,0 +1,526 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writers of formatted output.
+ *
+ * @author berni3
+ */
+class OutputWriters {
+
+    /**
+     * Size of the byte buffer of a {@link ChannelWriter}.
+     */
+    static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Size of the uncompressed blocks of a {@link ParallelGzipChannel}, as
+     * used by pigz.
+     */
+    static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private OutputWriters() {
+    }
+
+    /**
+     * Create a writer of a file.
+     * <p>
+     * The file is created, or truncated if it exists. Characters are encoded
+     * as UTF-8.
+     *
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    static Writer newFileWriter(Path path) throws IOException {
+        final FileChannel fileChannel = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        return new ChannelWriter(fileChannel, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a writer of a gzip compressed file.
+     * <p>
+     * The file is created, or truncated if it exists. Characters are encoded
+     * as UTF-8.
+     *
+     * @param path
+     * @return
+     * @throws IOException
+     * @see #newGzipWriter(OutputStream)
+     */
+    static Writer newGzipFileWriter(Path path) throws IOException {
+        return newGzipWriter(Files.newOutputStream(path));
+    }
+
+    /**
+     * Create a writer of a gzip compressed file, using a given number of
+     * threads for compressing.
+     *
+     * @param path
+     * @param threads
+     * @return
+     * @throws IOException
+     */
+    static Writer newGzipFileWriter(Path path, int threads) throws IOException {
+        final ParallelGzipChannel gzipChannel = new ParallelGzipChannel(Files.newOutputStream(path), DEFAULT_BLOCK_SIZE, threads);
+        return new ChannelWriter(gzipChannel, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a writer compressing its output using gzip.
+     * <p>
+     * Blocks of output are compressed in parallel, using all available
+     * processors. Characters are encoded as UTF-8.
+     *
+     * @param out the compressed output, closed on closing the writer
+     * @return
+     */
+    static Writer newGzipWriter(OutputStream out) {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final ParallelGzipChannel gzipChannel = new ParallelGzipChannel(out, DEFAULT_BLOCK_SIZE, threads);
+        return new ChannelWriter(gzipChannel, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a writer of an output stream.
+     * <p>
+     * Characters are encoded as UTF-8, binary formats may write to the
+     * underlying channel, see {@link #byteChannelOf(Writer)}.
+     *
+     * @param out the output, closed on closing the writer
+     * @return
+     */
+    static Writer newWriter(OutputStream out) {
+        return new ChannelWriter(new OutputStreamChannel(out), StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Return the byte channel of a writer created by this class, for writing
+     * binary data.
+     * <p>
+     * Characters written so far are written to the channel first.
+     *
+     * @param w
+     * @return
+     * @throws IOException if the writer has no byte channel, eg. a
+     * {@link java.io.StringWriter}
+     */
+    static WritableByteChannel byteChannelOf(Writer w) throws IOException {
+        if (w instanceof ChannelWriter) {
+            return ((ChannelWriter) w).byteChannel();
+        }
+        throw new IOException(String.format("Binary output is not supported by %s", w.getClass().getName()));
+    }
+
+    /**
+     * Return the path of a shard of a file.
+     * <p>
+     * The zero based shard index is inserted before the extensions of the
+     * file name, eg. out.csv.gz is the path of shards out-0000.csv.gz,
+     * out-0001.csv.gz, etc.
+     *
+     * @param path
+     * @param shard
+     * @return
+     */
+    static Path shardPath(Path path, int shard) {
+        final String fileName = path.getFileName().toString();
+        final int extensionIndex = fileName.indexOf('.', 1);
+        final String shardFileName = extensionIndex < 0
+                ? String.format("%s-%04d", fileName, shard)
+                : String.format("%s-%04d%s", fileName.substring(0, extensionIndex), shard, fileName.substring(extensionIndex));
+        return path.resolveSibling(shardFileName);
+    }
+
+    /**
+     * Return true if a file name denotes a gzip compressed file.
+     *
+     * @param fileName
+     * @return
+     */
+    static boolean isGzipFileName(String fileName) {
+        return fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    /**
+     * Channel writing to an output stream, flushing the output stream on
+     * flush.
+     * <p>
+     * The channel of {@link Channels#newChannel(OutputStream)} is not
+     * {@link Flushable}, thus flushing a {@link ChannelWriter} would not reach
+     * the output stream.
+     */
+    static class OutputStreamChannel implements WritableByteChannel, Flushable {
+
+        private final OutputStream out;
+        private final WritableByteChannel channel;
+
+        OutputStreamChannel(OutputStream out) {
+            this.out = out;
+            this.channel = Channels.newChannel(out);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writer encoding characters into a reusable direct byte buffer, and
+     * writing the buffer to a channel when it is full, or flushed.
+     * <p>
+     * Characters are encoded straight away, without intermediate char, or
+     * byte arrays, thus memory usage does not depend on the amount of data
+     * written. Unmappable characters are replaced. Flushing flushes the
+     * channel too, if it is {@link Flushable}.
+     * <p>
+     * Instances are not thread safe.
+     */
+    static class ChannelWriter extends Writer {
+
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder;
+        private final ByteBuffer byteBuffer;
+        /**
+         * High surrogate at the end of the last write, encoded together with
+         * the next character.
+         */
+        private final CharBuffer pendingSurrogate;
+        private boolean closed;
+
+        /**
+         * Create a new instance.
+         *
+         * @param channel the channel, closed on closing this writer
+         * @param charset
+         * @param bufferSize size of the direct byte buffer
+         */
+        ChannelWriter(WritableByteChannel channel, Charset charset, int bufferSize) {
+            this.channel = channel;
+            this.encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.byteBuffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 16));
+            this.pendingSurrogate = CharBuffer.allocate(2);
+            this.closed = false;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            encode(CharBuffer.wrap(cbuf, off, len));
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            encode(CharBuffer.wrap(str, off, off + len));
+        }
+
+        @Override
+        public Writer append(CharSequence csq) throws IOException {
+            final CharSequence cs = csq != null ? csq : "null";
+            encode(CharBuffer.wrap(cs));
+            return this;
+        }
+
+        /**
+         * Write the encoded characters, and return the channel.
+         *
+         * @return
+         * @throws IOException
+         */
+        WritableByteChannel byteChannel() throws IOException {
+            ensureOpen();
+            writeByteBuffer();
+            return channel;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            writeByteBuffer();
+            if (channel instanceof Flushable) {
+                ((Flushable) channel).flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                pendingSurrogate.flip();
+                encode(pendingSurrogate, true);
+                while (encoder.flush(byteBuffer).isOverflow()) {
+                    writeByteBuffer();
+                }
+                writeByteBuffer();
+            } finally {
+                closed = true;
+                channel.close();
+            }
+        }
+
+        private void encode(CharBuffer in) throws IOException {
+            ensureOpen();
+            while (pendingSurrogate.position() > 0 && in.hasRemaining()) {
+                // complete the surrogate pair of the last write
+                pendingSurrogate.put(in.get());
+                pendingSurrogate.flip();
+                encode(pendingSurrogate, false);
+                pendingSurrogate.compact();
+            }
+            if (pendingSurrogate.position() > 0) {
+                return;
+            }
+            encode(in, false);
+            if (in.hasRemaining()) {
+                // a single high surrogate is left for the next write
+                pendingSurrogate.put(in);
+            }
+        }
+
+        private void encode(CharBuffer in, boolean endOfInput) throws IOException {
+            for (;;) {
+                final CoderResult coderResult = encoder.encode(in, byteBuffer, endOfInput);
+                if (coderResult.isOverflow()) {
+                    writeByteBuffer();
+                } else if (coderResult.isUnderflow()) {
+                    return;
+                } else {
+                    try {
+                        coderResult.throwException();
+                    } catch (CharacterCodingException ex) {
+                        throw new IOException("Cannot encode output", ex);
+                    }
+                }
+            }
+        }
+
+        private void writeByteBuffer() throws IOException {
+            byteBuffer.flip();
+            while (byteBuffer.hasRemaining()) {
+                channel.write(byteBuffer);
+            }
+            byteBuffer.clear();
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Writer closed");
+            }
+        }
+    }
+
+    /**
+     * Channel compressing its input using gzip, compressing blocks in
+     * parallel.
+     * <p>
+     * The input is split into blocks of a fixed size. Each block is
+     * compressed independently by a worker thread into a complete gzip
+     * member. The members are written in input order, thus the output is a
+     * valid multi-member gzip file, like the output of pigz, readable by
+     * gzip, zcat, and {@link java.util.zip.GZIPInputStream}.
+     * <p>
+     * At most two blocks per thread are compressed, or waiting for being
+     * written, bounding memory usage. Flushing writes the compressed members
+     * available so far, an incomplete block is compressed on close.
+     * <p>
+     * Instances are not thread safe.
+     */
+    static class ParallelGzipChannel implements WritableByteChannel, Flushable {
+
+        private final OutputStream out;
+        private final int blockSize;
+        private final int maxPendingBlocks;
+        private final ExecutorService executorService;
+        private final Deque<Future<byte[]>> pendingMembers;
+        private byte[] block;
+        private int blockLength;
+        private long countOfMembers;
+        private boolean closed;
+
+        /**
+         * Create a new instance.
+         *
+         * @param out the compressed output, closed on closing this channel
+         * @param blockSize size of the uncompressed blocks
+         * @param threads count of threads compressing blocks
+         */
+        ParallelGzipChannel(OutputStream out, int blockSize, int threads) {
+            this.out = out;
+            this.blockSize = Math.max(blockSize, 1);
+            final int theThreads = Math.max(threads, 1);
+            this.maxPendingBlocks = 2 * theThreads;
+            this.executorService = Executors.newFixedThreadPool(theThreads, r -> {
+                final Thread t = new Thread(r, "datafaker-gzip");
+                t.setDaemon(true);
+                return t;
+            });
+            this.pendingMembers = new ArrayDeque<>();
+            this.block = new byte[this.blockSize];
+            this.blockLength = 0;
+            this.countOfMembers = 0L;
+            this.closed = false;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            ensureOpen();
+            final int length = src.remaining();
+            while (src.hasRemaining()) {
+                final int n = Math.min(src.remaining(), blockSize - blockLength);
+                src.get(block, blockLength, n);
+                blockLength += n;
+                if (blockLength == blockSize) {
+                    submitBlock();
+                }
+            }
+            return length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            while (!pendingMembers.isEmpty() && pendingMembers.peekFirst().isDone()) {
+                writeMember(pendingMembers.pollFirst());
+            }
+            out.flush();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                if (blockLength > 0 || countOfMembers == 0L) {
+                    // an empty input results in a single empty member
+                    submitBlock();
+                }
+                while (!pendingMembers.isEmpty()) {
+                    writeMember(pendingMembers.pollFirst());
+                }
+                out.flush();
+            } finally {
+                closed = true;
+                pendingMembers.forEach(f -> f.cancel(true));
+                executorService.shutdownNow();
+                out.close();
+            }
+        }
+
+        private void submitBlock() throws IOException {
+            final byte[] data = block;
+            final int length = blockLength;
+            pendingMembers.addLast(executorService.submit(() -> gzipMember(data, length)));
+            countOfMembers += 1;
+            block = new byte[blockSize];
+            blockLength = 0;
+            while (pendingMembers.size() >= maxPendingBlocks
+                    || (!pendingMembers.isEmpty() && pendingMembers.peekFirst().isDone())) {
+                writeMember(pendingMembers.pollFirst());
+            }
+        }
+
+        private void writeMember(Future<byte[]> member) throws IOException {
+            try {
+                out.write(member.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted compressing output");
+            } catch (ExecutionException ex) {
+                throw new IOException("Cannot compress output", ex.getCause());
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Channel closed");
+            }
+        }
+
+        /**
+         * Compress data into a complete gzip member.
+         *
+         * @param data
+         * @param length
+         * @return
+         * @throws IOException
+         */
+        static byte[] gzipMember(byte[] data, int length) throws IOException {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream(length / 4 + 64);
+            try (GZIPOutputStream gzos = new GZIPOutputStream(baos, 8192)) {
+                gzos.write(data, 0, length);
+            }
+            return baos.toByteArray();
+        }
+    }
+}
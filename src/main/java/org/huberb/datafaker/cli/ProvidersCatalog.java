@@ -0,0 +1,200 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import net.datafaker.providers.base.AbstractProvider;
+
+/**
+ * Catalog of provider classes, and their methods.
+ * <p>
+ * The catalog is built lazily on first access. The packages of the catalog
+ * are resolved in parallel, see
+ * {@link ProvidersQueries#findClassesExtendingAbstractProvider(String, List)}.
+ * Later queries are served from memory, until the catalog is invalidated.
+ * <p>
+ * Instances are thread safe.
+ *
+ * @author berni3
+ */
+class ProvidersCatalog {
+
+    private static final ProvidersCatalog SHARED = new ProvidersCatalog(ProvidersQueries.DEFAULT_PROVIDER_PACKAGES);
+
+    private final ProvidersQueries providersQueries;
+    private final Set<String> providerPackages;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Create a new instance.
+     *
+     * @param providerPackages packages of provider classes
+     */
+    ProvidersCatalog(List<String> providerPackages) {
+        this.providersQueries = new ProvidersQueries();
+        this.providerPackages = new LinkedHashSet<>(providerPackages);
+    }
+
+    /**
+     * Return the process-wide catalog of the default provider packages.
+     *
+     * @return
+     */
+    static ProvidersCatalog shared() {
+        return SHARED;
+    }
+
+    /**
+     * Return the packages of provider classes.
+     *
+     * @return
+     */
+    synchronized List<String> getProviderPackages() {
+        return Collections.unmodifiableList(new ArrayList<>(providerPackages));
+    }
+
+    /**
+     * Register additional packages of provider classes.
+     * <p>
+     * Invalidate this catalog, if any package was not registered yet.
+     *
+     * @param packageNames
+     */
+    synchronized void registerProviderPackages(String... packageNames) {
+        if (providerPackages.addAll(Arrays.asList(packageNames))) {
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Invalidate this catalog, it is rebuilt on next access.
+     */
+    synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * Return all classes being subtype of {@link AbstractProvider}, sorted by
+     * class name.
+     *
+     * @return
+     */
+    List<Class> getProviderClasses() {
+        return snapshot().providerClasses;
+    }
+
+    /**
+     * Return all public methods of all provider classes, except methods of
+     * {@link ProvidersQueries#IGNORE_METHODS}.
+     *
+     * @return
+     */
+    List<Method> getProviderMethods() {
+        return snapshot().providerMethods;
+    }
+
+    /**
+     * Find a provider class by its simple name.
+     *
+     * @param simpleName
+     * @return
+     */
+    Optional<Class> findProviderClass(String simpleName) {
+        return Optional.ofNullable(snapshot().providerClassBySimpleName.get(simpleName));
+    }
+
+    /**
+     * Return the no-arg methods returning a string of a provider class.
+     *
+     * @param providerClass
+     * @return the methods, or an empty list if the class is not part of this
+     * catalog
+     */
+    List<Method> getNoArgStringMethods(Class providerClass) {
+        return snapshot().noArgStringMethods.getOrDefault(providerClass, Collections.emptyList());
+    }
+
+    private Snapshot snapshot() {
+        Snapshot result = snapshot;
+        if (result == null) {
+            synchronized (this) {
+                result = snapshot;
+                if (result == null) {
+                    result = new Snapshot(providersQueries, new ArrayList<>(providerPackages));
+                    snapshot = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Immutable content of the catalog.
+     */
+    static class Snapshot {
+
+        final List<Class> providerClasses;
+        final List<Method> providerMethods;
+        final Map<String, Class> providerClassBySimpleName;
+        final Map<Class, List<Method>> noArgStringMethods;
+
+        Snapshot(ProvidersQueries providersQueries, List<String> providerPackages) {
+            final List<String> indexLines = providersQueries.readProvidersIndexLines();
+            // resolve packages in parallel, loading the classes
+            final Comparator<Class> classNameComparator = Comparator.comparing(Class::getName);
+            final Set<Class> classes = providerPackages.parallelStream()
+                    .map(packageName -> providersQueries.findClassesExtendingAbstractProvider(packageName, indexLines))
+                    .flatMap(List::stream)
+                    .collect(Collectors.toCollection(() -> new TreeSet<>(classNameComparator)));
+            this.providerClasses = Collections.unmodifiableList(new ArrayList<>(classes));
+
+            final Map<Class, List<Method>> methodsByClass = providerClasses.parallelStream()
+                    .collect(Collectors.toMap(cl -> cl,
+                            cl -> Arrays.stream(cl.getMethods())
+                                    .filter(m -> !ProvidersQueries.IGNORE_METHODS.contains(m.getName()))
+                                    .collect(Collectors.toList()),
+                            (l1, l2) -> l1,
+                            LinkedHashMap::new));
+            this.providerMethods = Collections.unmodifiableList(methodsByClass.values().stream()
+                    .flatMap(List::stream)
+                    .collect(Collectors.toList()));
+
+            final Map<String, Class> bySimpleName = new HashMap<>();
+            final Map<Class, List<Method>> noArgString = new HashMap<>();
+            methodsByClass.forEach((cl, methods) -> {
+                bySimpleName.putIfAbsent(cl.getSimpleName(), cl);
+                noArgString.put(cl, Collections.unmodifiableList(methods.stream()
+                        .filter(m -> m.getParameterCount() == 0 && m.getReturnType().equals(String.class))
+                        .collect(Collectors.toList())));
+            });
+            this.providerClassBySimpleName = Collections.unmodifiableMap(bySimpleName);
+            this.noArgStringMethods = Collections.unmodifiableMap(noArgString);
+        }
+    }
+}
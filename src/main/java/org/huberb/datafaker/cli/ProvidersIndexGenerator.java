@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Generate the providers index read by {@link ProvidersQueries}.
+ * <p>
+ * Invoked at build time, after compiling the classes, see pom.xml. Scanning
+ * the classpath requires org.reflections.
+ *
+ * @author berni3
+ */
+public final class ProvidersIndexGenerator {
+
+    private ProvidersIndexGenerator() {
+    }
+
+    /**
+     * Generate the providers index.
+     *
+     * @param args optional classes directory, default target/classes
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        final Path classesDirectory = Paths.get(args.length > 0 ? args[0] : "target/classes");
+        final Path indexFile = write(classesDirectory);
+        System.out.format("Generated providers index %s%n", indexFile);
+    }
+
+    /**
+     * Scan the classpath, and write the providers index below the given
+     * classes directory.
+     *
+     * @param classesDirectory
+     * @return the written index file
+     * @throws IOException
+     */
+    static Path write(Path classesDirectory) throws IOException {
+        final List<Class> classes = new ProvidersQueries().scanAllClassesExtendingAbstractProvider();
+        final Path indexFile = classesDirectory
+                .resolve(ProvidersQueries.class.getPackageName().replace('.', '/'))
+                .resolve(ProvidersQueries.PROVIDERS_INDEX_RESOURCE);
+        Files.createDirectories(indexFile.getParent());
+        try (Writer w = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8)) {
+            ProvidersQueries.writeProvidersIndex(classes, w);
+        }
+        return indexFile;
+    }
+}
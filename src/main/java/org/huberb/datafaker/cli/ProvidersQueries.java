@@ -15,8 +15,17 @@
  */
 package org.huberb.datafaker.cli;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
@@ -27,15 +36,46 @@ import org.reflections.Reflections;
 
 /**
  * Query for classes, or methods extending {@link AbstractProvider}.
+ * <p>
+ * Queries are served by the process-wide {@link ProvidersCatalog}.
+ * <p>
+ * Provider classes are read from the providers index resource
+ * {@value #PROVIDERS_INDEX_RESOURCE}, generated at build time by
+ * {@link ProvidersIndexGenerator}. Only if the index is not available, or
+ * does not cover a provider package the classpath is scanned using the
+ * optional org.reflections library.
  */
 class ProvidersQueries {
 
-    final String[] defaultProviderPackages = new String[]{
-        "net.datafaker.providers.base",
-        "net.datafaker.providers.entertainment",
-        "net.datafaker.providers.food",
-        "net.datafaker.providers.sport",
-        "net.datafaker.providers.videogame"};
+    /**
+     * Name of the providers index resource, relative to this class.
+     */
+    static final String PROVIDERS_INDEX_RESOURCE = "providers.idx";
+
+    /**
+     * Packages of the datafaker providers, covered by the providers index.
+     */
+    static final List<String> DEFAULT_PROVIDER_PACKAGES = Collections.unmodifiableList(Arrays.asList(
+            "net.datafaker.providers.base",
+            "net.datafaker.providers.entertainment",
+            "net.datafaker.providers.food",
+            "net.datafaker.providers.sport",
+            "net.datafaker.providers.videogame"));
+
+    /**
+     * Methods of provider classes not providing data.
+     */
+    static final Set<String> IGNORE_METHODS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "getFaker",
+            "getClass",
+            "equals",
+            "hashCode",
+            "toString",
+            "wait",
+            "notify",
+            "notifyAll")));
+
+    final String[] defaultProviderPackages = DEFAULT_PROVIDER_PACKAGES.toArray(new String[0]);
 
     /**
      * Find all classes being subtype of {@link  AbstractProvider}.
@@ -43,14 +83,7 @@ class ProvidersQueries {
      * @return
      */
     List<Class> findAllClassesExtendingAbstractProvider() {
-        final Comparator<Class> classNameComparator = (Class cl1, Class cl2) -> cl1.getName().compareTo(cl2.getName());
-        final String[] packageNames = defaultProviderPackages;
-        final List<Class> result = new Reflections(packageNames)
-                .getSubTypesOf(AbstractProvider.class)
-                .stream()
-                .sorted(classNameComparator)
-                .collect(Collectors.toList());
-        return result;
+        return ProvidersCatalog.shared().getProviderClasses();
     }
 
     /**
@@ -60,24 +93,146 @@ class ProvidersQueries {
      * @return
      */
     List<Method> findAllMethodsClassesExtendingAbstractProvider() {
-        final Set<String> ignoreMethods = new HashSet<>() {
-            {
-                add("getFaker");
-                add("getClass");
-                add("equals");
-                add("hashCode");
-                add("toString");
-                add("wait");
-                add("notify");
-                add("notifyAll");
+        return ProvidersCatalog.shared().getProviderMethods();
+    }
+
+    /**
+     * Find all classes being subtype of {@link  AbstractProvider} by scanning
+     * the classpath.
+     *
+     * @return
+     * @throws IllegalStateException if org.reflections is not available
+     */
+    List<Class> scanAllClassesExtendingAbstractProvider() {
+        return scanClassesExtendingAbstractProvider(defaultProviderPackages);
+    }
+
+    /**
+     * Find classes of some packages being subtype of {@link  AbstractProvider}
+     * by scanning the classpath.
+     *
+     * @param packageNames
+     * @return
+     * @throws IllegalStateException if org.reflections is not available
+     */
+    List<Class> scanClassesExtendingAbstractProvider(String... packageNames) {
+        try {
+            Class.forName("org.reflections.Reflections", false, ProvidersQueries.class.getClassLoader());
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalStateException("No providers index " + PROVIDERS_INDEX_RESOURCE
+                    + ", and no org.reflections for scanning the classpath", ex);
+        }
+        return ReflectionsScanner.findAllClassesExtendingAbstractProvider(packageNames);
+    }
+
+    /**
+     * Find classes of a package being subtype of {@link  AbstractProvider}.
+     * <p>
+     * Use the providers index if it covers the package, otherwise scan the
+     * classpath.
+     *
+     * @param packageName
+     * @param indexLines lines of the providers index, or null
+     * @return
+     */
+    List<Class> findClassesExtendingAbstractProvider(String packageName, List<String> indexLines) {
+        if (indexLines != null && DEFAULT_PROVIDER_PACKAGES.contains(packageName)) {
+            final String packagePrefix = packageName + ".";
+            return readProvidersIndex(indexLines.stream()
+                    .filter(line -> line.trim().startsWith(packagePrefix))
+                    .collect(Collectors.toList()));
+        }
+        return scanClassesExtendingAbstractProvider(packageName);
+    }
+
+    /**
+     * Read the provider classes from the providers index.
+     *
+     * @return provider classes, or null if there is no providers index
+     */
+    List<Class> readProvidersIndex() {
+        final List<String> lines = readProvidersIndexLines();
+        return lines != null ? readProvidersIndex(lines) : null;
+    }
+
+    /**
+     * Read the lines of the providers index.
+     *
+     * @return lines, or null if there is no providers index
+     */
+    List<String> readProvidersIndexLines() {
+        try (InputStream is = ProvidersQueries.class.getResourceAsStream(PROVIDERS_INDEX_RESOURCE)) {
+            if (is == null) {
+                return null;
             }
-        };
-        final List<Method> result4 = findAllClassesExtendingAbstractProvider()
-                .stream()
-                .flatMap(cl -> Arrays.asList(cl.getMethods()).stream())
-                .filter(m -> !ignoreMethods.contains(m.getName()))
-                .collect(Collectors.toList());
-        return result4;
+            final BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            return br.lines().collect(Collectors.toList());
+        } catch (IOException ioex) {
+            throw new UncheckedIOException("Cannot read providers index " + PROVIDERS_INDEX_RESOURCE, ioex);
+        }
+    }
+
+    /**
+     * Resolve the lines of a providers index to classes.
+     * <p>
+     * Empty lines, and lines starting with '#' are ignored.
+     *
+     * @param lines
+     * @return
+     */
+    List<Class> readProvidersIndex(List<String> lines) {
+        final ClassLoader classLoader = ProvidersQueries.class.getClassLoader();
+        final List<Class> result = new ArrayList<>();
+        for (String line : lines) {
+            final String className = line.trim();
+            if (className.isEmpty() || className.startsWith("#")) {
+                continue;
+            }
+            try {
+                result.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException ex) {
+                throw new IllegalStateException("Providers index class " + className + " not found", ex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write a providers index.
+     *
+     * @param classes provider classes
+     * @param w
+     * @throws IOException
+     */
+    static void writeProvidersIndex(List<Class> classes, Writer w) throws IOException {
+        w.write("# provider classes extending " + AbstractProvider.class.getName());
+        w.write("\n");
+        for (Class clazz : classes) {
+            w.write(clazz.getName());
+            w.write("\n");
+        }
+    }
+
+    /**
+     * Scan the classpath using org.reflections.
+     * <p>
+     * Kept in its own class, thus org.reflections is loaded only if it is
+     * actually used.
+     */
+    static class ReflectionsScanner {
+
+        private ReflectionsScanner() {
+        }
+
+        static List<Class> findAllClassesExtendingAbstractProvider(String[] packageNames) {
+            final Comparator<Class> classNameComparator = (Class cl1, Class cl2) -> cl1.getName().compareTo(cl2.getName());
+            final List<Class> result = new Reflections((Object[]) packageNames)
+                    .getSubTypesOf(AbstractProvider.class)
+                    .stream()
+                    .sorted(classNameComparator)
+                    .collect(Collectors.toList());
+            return result;
+        }
     }
 
 }
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.huberb.datafaker.cli.Adapters.FakerPool;
+import org.huberb.datafaker.cli.DataFormatProcessor.ExpressionInternal;
+
+/**
+ * Sources providing the records formatted by {@link DataFormatProcessor}.
+ *
+ * @author berni3
+ */
+class RecordSources {
+
+    private RecordSources() {
+    }
+
+    /**
+     * Provide records one after the other.
+     */
+    interface RecordSource extends AutoCloseable {
+
+        /**
+         * Return the next record.
+         * <p>
+         * The returned array is valid until the next invocation of this
+         * method.
+         *
+         * @return field values of the next record
+         * @throws IOException
+         */
+        String[] nextRecord() throws IOException;
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Derive the seed of a block of records from a master seed.
+     * <p>
+     * The derived seed depends only on the master seed, and the index of the
+     * block. It does not depend on the thread evaluating the block.
+     *
+     * @param seed master seed
+     * @param blockIndex zero based index of the block
+     * @return seed of the block
+     */
+    static long blockSeed(long seed, long blockIndex) {
+        // mixing function of SplittableRandom
+        long z = seed + (blockIndex + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Evaluate the expressions of a record.
+     * <p>
+     * The expressions are bound to a faker using the given random instance.
+     * Closing the evaluator releases the faker, eg. giving it back to a
+     * {@link FakerPool}, the evaluator must not be used afterwards.
+     */
+    static class RecordEvaluator implements AutoCloseable {
+
+        private final List<ExpressionInternal> expressionInternalList;
+        private final Random random;
+        private final Runnable release;
+
+        /**
+         * Create a new instance.
+         *
+         * @param expressionInternalList expressions of a record
+         * @param random the random instance of the faker evaluating the
+         * expressions
+         */
+        RecordEvaluator(List<ExpressionInternal> expressionInternalList, Random random) {
+            this(expressionInternalList, random, () -> {
+            });
+        }
+
+        /**
+         * Create a new instance, releasing the faker on closing.
+         *
+         * @param expressionInternalList expressions of a record
+         * @param random the random instance of the faker evaluating the
+         * expressions
+         * @param release releases the faker evaluating the expressions
+         */
+        RecordEvaluator(List<ExpressionInternal> expressionInternalList, Random random, Runnable release) {
+            this.expressionInternalList = expressionInternalList;
+            this.random = random;
+            this.release = release;
+        }
+
+        int countOfFields() {
+            return expressionInternalList.size();
+        }
+
+        void seedBlock(long seed, long blockIndex) {
+            random.setSeed(blockSeed(seed, blockIndex));
+        }
+
+        void evaluate(String[] record) {
+            for (int i = 0; i < record.length; i++) {
+                record[i] = expressionInternalList.get(i).expressionSupplier.get();
+            }
+        }
+
+        @Override
+        public void close() {
+            release.run();
+        }
+    }
+
+    /**
+     * Evaluate the expressions of each record in the calling thread.
+     * <p>
+     * If a seed is defined, the random instance is seeded at the start of each
+     * block of records, see {@link #blockSeed(long, long)}.
+     * <p>
+     * The record evaluator is owned by the caller, closing the source does not
+     * close it.
+     */
+    static class SequentialRecordSource implements RecordSource {
+
+        private final RecordEvaluator recordEvaluator;
+        private final int blockSize;
+        private final Long seed;
+        private final String[] record;
+        private long recordIndex;
+
+        SequentialRecordSource(RecordEvaluator recordEvaluator, int blockSize, Long seed) {
+            this(recordEvaluator, blockSize, seed, 0L);
+        }
+
+        /**
+         * Create a new instance, starting at a given record.
+         * <p>
+         * If a seed is defined, and the first record is not the first record
+         * of a block, the preceding records of its block are evaluated, and
+         * dropped. Thus the records equal the records of a source starting at
+         * record 0.
+         *
+         * @param recordEvaluator
+         * @param blockSize
+         * @param seed master seed, or null
+         * @param firstRecordIndex zero based index of the first record
+         */
+        SequentialRecordSource(RecordEvaluator recordEvaluator, int blockSize, Long seed, long firstRecordIndex) {
+            this.recordEvaluator = recordEvaluator;
+            this.blockSize = blockSize;
+            this.seed = seed;
+            this.record = new String[recordEvaluator.countOfFields()];
+            if (seed != null) {
+                this.recordIndex = firstRecordIndex - firstRecordIndex % blockSize;
+                while (this.recordIndex < firstRecordIndex) {
+                    nextRecord();
+                }
+            }
+            this.recordIndex = firstRecordIndex;
+        }
+
+        @Override
+        public String[] nextRecord() {
+            if (seed != null && recordIndex % blockSize == 0) {
+                recordEvaluator.seedBlock(seed, recordIndex / blockSize);
+            }
+            recordEvaluator.evaluate(record);
+            recordIndex += 1;
+            return record;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Evaluate the first record of a source on creation.
+     * <p>
+     * Failing expressions are detected before anything is written, eg. before
+     * sending the status of a http response.
+     */
+    static class EagerRecordSource implements RecordSource {
+
+        private final RecordSource recordSource;
+        private String[] firstRecord;
+
+        /**
+         * Create a new instance, evaluating the first record.
+         * <p>
+         * The given source is closed if evaluating the first record fails.
+         *
+         * @param recordSource
+         * @throws IOException
+         */
+        EagerRecordSource(RecordSource recordSource) throws IOException {
+            this.recordSource = recordSource;
+            try {
+                this.firstRecord = recordSource.nextRecord();
+            } catch (IOException | RuntimeException ex) {
+                recordSource.close();
+                throw ex;
+            }
+        }
+
+        @Override
+        public String[] nextRecord() throws IOException {
+            if (firstRecord != null) {
+                final String[] result = firstRecord;
+                firstRecord = null;
+                return result;
+            }
+            return recordSource.nextRecord();
+        }
+
+        @Override
+        public void close() {
+            recordSource.close();
+        }
+    }
+
+    /**
+     * Evaluate records in chunks using a pool of threads.
+     * <p>
+     * The range of records is split into chunks of consecutive records. Each
+     * chunk is evaluated by a worker thread using the worker's own
+     * {@link RecordEvaluator}, thus the worker's own faker instance. Chunks are
+     * returned in order of their records.
+     * <p>
+     * If a seed is defined, the random instance of the worker is seeded at the
+     * start of each chunk, see {@link #blockSeed(long, long)}. Thus records do
+     * not depend on the number of threads.
+     * <p>
+     * At most two chunks per thread are evaluated ahead of the consumer, thus
+     * memory usage does not depend on the number of records.
+     * <p>
+     * Closing the source stops the workers, and closes their record
+     * evaluators, see {@link RecordEvaluator#close()}. A record evaluator of a
+     * worker not stopping in time is not closed, as it may be still in use.
+     */
+    static class ParallelRecordSource implements RecordSource {
+
+        /**
+         * Maximum time to wait for the workers to stop, when closing.
+         */
+        static final long CLOSE_TIMEOUT_SECONDS = 10L;
+        private final long limit;
+        private final int chunkSize;
+        private final Long seed;
+        private final int maxChunksInFlight;
+        private final ExecutorService executorService;
+        private final ThreadLocal<RecordEvaluator> workerRecordEvaluator;
+        private final Queue<RecordEvaluator> workerRecordEvaluators;
+        private final Deque<Future<String[][]>> chunksInFlight;
+
+        private long nextChunkStart;
+        private String[][] currentChunk;
+        private int currentChunkIndex;
+
+        /**
+         * Create a new instance.
+         *
+         * @param threads number of worker threads
+         * @param chunkSize number of records of a chunk
+         * @param limit number of records
+         * @param seed master seed, or null
+         * @param recordEvaluatorSupplier creates the record evaluator of a
+         * worker thread
+         */
+        ParallelRecordSource(int threads, int chunkSize, long limit, Long seed, Supplier<RecordEvaluator> recordEvaluatorSupplier) {
+            this.limit = limit;
+            this.chunkSize = chunkSize;
+            this.seed = seed;
+            this.maxChunksInFlight = threads * 2;
+            this.executorService = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+            this.workerRecordEvaluators = new ConcurrentLinkedQueue<>();
+            this.workerRecordEvaluator = ThreadLocal.withInitial(() -> {
+                final RecordEvaluator recordEvaluator = recordEvaluatorSupplier.get();
+                workerRecordEvaluators.add(recordEvaluator);
+                return recordEvaluator;
+            });
+            this.chunksInFlight = new ArrayDeque<>(maxChunksInFlight);
+            this.nextChunkStart = 0;
+            this.currentChunk = new String[0][];
+            this.currentChunkIndex = 0;
+        }
+
+        @Override
+        public String[] nextRecord() throws IOException {
+            if (currentChunkIndex >= currentChunk.length) {
+                submitChunks();
+                currentChunk = awaitChunk(chunksInFlight.removeFirst());
+                currentChunkIndex = 0;
+            }
+            return currentChunk[currentChunkIndex++];
+        }
+
+        @Override
+        public void close() {
+            executorService.shutdownNow();
+            try {
+                // a chunk is evaluated without checking for interruption
+                if (!executorService.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (RecordEvaluator recordEvaluator; (recordEvaluator = workerRecordEvaluators.poll()) != null;) {
+                recordEvaluator.close();
+            }
+        }
+
+        private void submitChunks() {
+            while (chunksInFlight.size() < maxChunksInFlight && nextChunkStart < limit) {
+                final long chunkIndex = nextChunkStart / chunkSize;
+                final int count = (int) Math.min(chunkSize, limit - nextChunkStart);
+                chunksInFlight.addLast(executorService.submit(() -> evaluateChunk(chunkIndex, count)));
+                nextChunkStart += count;
+            }
+        }
+
+        private String[][] evaluateChunk(long chunkIndex, int count) {
+            final RecordEvaluator recordEvaluator = workerRecordEvaluator.get();
+            if (seed != null) {
+                recordEvaluator.seedBlock(seed, chunkIndex);
+            }
+            final String[][] chunk = new String[count][];
+            for (int r = 0; r < count; r++) {
+                final String[] record = new String[recordEvaluator.countOfFields()];
+                recordEvaluator.evaluate(record);
+                chunk[r] = record;
+            }
+            return chunk;
+        }
+
+        private String[][] awaitChunk(Future<String[][]> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for records");
+            } catch (ExecutionException ex) {
+                final Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new RuntimeException("Cannot evaluate records", cause);
+            }
+        }
+    }
+
+    /**
+     * Create daemon worker threads, a pending generation never blocks the exit
+     * of the jvm.
+     */
+    static class WorkerThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String namePrefix = "datafaker-worker-" + POOL_NUMBER.getAndIncrement() + "-";
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, namePrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,697 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import net.datafaker.transformations.CsvTransformer;
+import net.datafaker.transformations.Field;
+import net.datafaker.transformations.JsonTransformer;
+import net.datafaker.transformations.Schema;
+import net.datafaker.transformations.SimpleField;
+import net.datafaker.transformations.Transformer;
+import net.datafaker.transformations.XmlTransformer;
+import net.datafaker.transformations.XmlTransformer.XmlTransformerBuilder;
+import net.datafaker.transformations.YamlTransformer;
+import net.datafaker.transformations.sql.SqlDialect;
+import net.datafaker.transformations.sql.SqlTransformer;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterArrow;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterCsv;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterSql;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterTsv;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterXml;
+
+/**
+ * Writers formatting data one record at a time.
+ * <p>
+ * A record is an array of field values, in the order of the field names. Each
+ * record is written as soon as it is passed to a {@link RecordWriter}, the
+ * formatted data is never kept in memory as a whole.
+ *
+ * @author berni3
+ */
+class RecordWriters {
+
+    private static final String LINE_SEPARATOR = Transformer.LINE_SEPARATOR;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private RecordWriters() {
+    }
+
+    /**
+     * Write records of a specific format.
+     * <p>
+     * The methods are invoked in the order {@link #writeHeader(Writer)}, zero
+     * or more times {@link #writeRecord(Writer, long, String[])}, and finally
+     * {@link #writeFooter(Writer, long)}.
+     */
+    interface RecordWriter {
+
+        /**
+         * Write everything preceding the first record.
+         *
+         * @param w
+         * @throws IOException
+         */
+        void writeHeader(Writer w) throws IOException;
+
+        /**
+         * Write a single record.
+         *
+         * @param w
+         * @param index zero based index of the record
+         * @param record field values of the record
+         * @throws IOException
+         */
+        void writeRecord(Writer w, long index, String[] record) throws IOException;
+
+        /**
+         * Write everything following the last record.
+         *
+         * @param w
+         * @param count number of records written
+         * @throws IOException
+         */
+        void writeFooter(Writer w, long count) throws IOException;
+    }
+
+    /**
+     * Create a datafaker schema reading field values from a record.
+     *
+     * @param fieldnames
+     * @return
+     */
+    static Schema<String[], String> schemaOf(String[] fieldnames) {
+        @SuppressWarnings("unchecked")
+        final SimpleField<String[], String>[] fields = new SimpleField[fieldnames.length];
+        for (int i = 0; i < fieldnames.length; i++) {
+            final int fieldIndex = i;
+            fields[i] = Field.field(fieldnames[i], (String[] record) -> record[fieldIndex]);
+        }
+        return Schema.of(fields);
+    }
+
+    /**
+     * Write records as lines of fieldname, and value.
+     */
+    static class TxtRecordWriter implements RecordWriter {
+
+        private final String[] fieldnames;
+
+        TxtRecordWriter(String[] fieldnames) {
+            this.fieldnames = fieldnames;
+        }
+
+        @Override
+        public void writeHeader(Writer w) {
+        }
+
+        @Override
+        public void writeRecord(Writer w, long index, String[] record) throws IOException {
+            for (int i = 0; i < fieldnames.length; i++) {
+                w.write(fieldnames[i]);
+                w.write(": ");
+                w.write(String.valueOf(record[i]));
+                w.write(System.lineSeparator());
+            }
+        }
+
+        @Override
+        public void writeFooter(Writer w, long count) {
+        }
+    }
+
+    /**
+     * Write records as csv, or tsv lines.
+     */
+    static class CsvRecordWriter implements RecordWriter {
+
+        private final String[] fieldnames;
+        private final boolean header;
+        private final Schema<String[], String> schema;
+        private final CsvTransformer<String[]> transformer;
+
+        CsvRecordWriter(String[] fieldnames, FormatterCsv formatterCsv) {
+            this(fieldnames, formatterCsv.header, formatterCsv.separator, formatterCsv.quote);
+        }
+
+        CsvRecordWriter(String[] fieldnames, FormatterTsv formatterTsv) {
+            this(fieldnames, formatterTsv.header, formatterTsv.separator, formatterTsv.quote);
+        }
+
+        private CsvRecordWriter(String[] fieldnames, boolean header, String separator, char quote) {
+            this.fieldnames = fieldnames;
+            this.header = header;
+            this.schema = schemaOf(fieldnames);
+            this.transformer = CsvTransformer.<String[]>builder()
+                    .header(false)
+                    .separator(separator)
+                    .quote(quote)
+                    .build();
+        }
+
+        @Override
+        public void writeHeader(Writer w) throws IOException {
+            if (header) {
+                // the field names are formatted like any other record
+                w.append(transformer.apply(fieldnames, schema));
+            }
+        }
+
+        @Override
+        public void writeRecord(Writer w, long index, String[] record) throws IOException {
+            if (index > 0 || header) {
+                w.write(LINE_SEPARATOR);
+            }
+            w.append(transformer.apply(record, schema));
+        }
+
+        @Override
+        public void writeFooter(Writer w, long count) {
+        }
+    }
+
+    /**
+     * Write records as elements of a json array.
+     */
+    static class JsonRecordWriter implements RecordWriter {
+
+        private final Schema<String[], String> schema;
+        private final JsonTransformer<String[]> transformer;
+
+        JsonRecordWriter(String[] fieldnames) {
+            this.schema = schemaOf(fieldnames);
+            this.transformer = JsonTransformer.<String[]>builder().build();
+        }
+
+        @Override
+        public void writeHeader(Writer w) throws IOException {
+            w.write("[");
+            w.write(LINE_SEPARATOR);
+        }
+
+        @Override
+        public void writeRecord(Writer w, long index, String[] record) throws IOException {
+            if (index > 0) {
+                w.write(",");
+                w.write(LINE_SEPARATOR);
+            }
+            w.write(transformer.apply(record, schema));
+        }
+
+        @Override
+        public void writeFooter(Writer w, long count) throws IOException {
+            w.write(LINE_SEPARATOR);
+            w.write("]");
+        }
+    }
+
+    /**
+     * Write records as newline delimited json, one compact json object per
+     * line.
+     * <p>
+     * Each line is terminated by a newline character, independent of the
+     * platform, thus the output may be split by lines, and consumed while it
+     * is written. The json keys are escaped once, a record is formatted into
+     * a reused buffer.
+     */
+    static class NdjsonRecordWriter implements RecordWriter {
+
+        /**
+         * Escaped field names, eg. <code>{"name":</code>, and
+         * <code>,"city":</code>.
+         */
+        private final String[] keyPrefixes;
+        private final StringBuilder sb;
+
+        NdjsonRecordWriter(String[] fieldnames) {
+            this.keyPrefixes = new String[fieldnames.length];
+            final StringBuilder keyPrefix = new StringBuilder();
+            for (int i = 0; i < fieldnames.length; i++) {
+                keyPrefix.setLength(0);
+                keyPrefix.append(i == 0 ? '{' : ',');
+                appendJsonString(keyPrefix, fieldnames[i]);
+                keyPrefix.append(':');
+                this.keyPrefixes[i] = keyPrefix.toString();
+            }
+            this.sb = new StringBuilder(256);
+        }
+
+        @Override
+        public void writeHeader(Writer w) {
+        }
+
+        @Override
+        public void writeRecord(Writer w, long index, String[] record) throws IOException {
+            sb.setLength(0);
+            if (keyPrefixes.length == 0) {
+                sb.append('{');
+            }
+            for (int i = 0; i < keyPrefixes.length; i++) {
+                sb.append(keyPrefixes[i]);
+                appendJsonString(sb, record[i]);
+            }
+            sb.append('}').append('\n');
+            w.append(sb);
+        }
+
+        @Override
+        public void writeFooter(Writer w, long count) {
+        }
+    }
+
+    /**
+     * Append a string as json string literal.
+     * <p>
+     * Quotation marks, reverse solidus, and control characters are escaped.
+     * A null string is appended as json null.
+     *
+     * @param sb
+     * @param s
+     */
+    static void appendJsonString(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        final int length = s.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            // append the unescaped chars preceding c at once
+            sb.append(s, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\b':
+                    sb.append("\\b");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                default:
+                    sb.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+        sb.append(s, start, length);
+        sb.append('"');
+    }
+
+    /**
+     * Write records as sql insert statements.
+     * <p>
+     * Up to batch records are combined into one insert statement.
+     */
+    static class SqlRecordWriter implements RecordWriter {
+
+        private final int batch;
+        private final String lastRowSuffix;
+        private final Schema<String[], String> schema;
+        private final SqlTransformer<String[]> transformer;
+
+        SqlRecordWriter(String[] fieldnames, FormatterSql formatterSql) {
+            this.batch = formatterSql.batch;
+            this.lastRowSuffix = SqlDialect.getLastRowSuffix(formatterSql.sqlDialect, SqlTransformer.Case.UPPERCASE);
+            this.schema = schemaOf(fieldnames);
+            this.transformer = SqlTransformer.<String[]>builder()
+                    .batch(formatterSql.batch)
+                    .tableName(formatterSql.tableName)
+                    .dialect(formatterSql.sqlDialect)
+                    .keywordCase(SqlTransformer.Case.UPPERCASE)
+                    .build();
+        }
+
+        @Override
+        public void writeHeader(Writer w) {
+        }
+
+        @Override
+        public void writeRecord(Writer w, long index, String[] record) throws IOException {
+            // index relative to the current insert statement
+            final int batchIndex = batch > 0 ? (int) (index % batch) : (int) Math.min(index, Integer.MAX_VALUE);
+            if (index > 0 && batch > 0 && batchIndex == 0) {
+                // terminate previous insert statement
+                w.write(lastRowSuffix);
+                w.write(";");
+                w.write(LINE_SEPARATOR);
+            }
+            w.append(transformer.apply(record, schema, batchIndex));
+        }
+
+        @Override
+        public void writeFooter(Writer w, long count) throws IOException {
+            if (count > 0) {
+                w.write(lastRowSuffix);
+                w.write(";");
+            }
+        }
+    }
+
+    /**
+     * Write records as xml elements enclosed by a root element.
+     */
+    static class XmlRecordWriter implements RecordWriter {
+
+        private final String rootTag;
+        private final Schema<String[], String> schema;
+        private final XmlTransformer<String[]> transformer;
+
+        XmlRecordWriter(String[] fieldnames, FormatterXml formatterXml) {
+            this.rootTag = formatterXml.rootTag;
+            this.schema = schemaOf(fieldnames);
+            this.transformer = new XmlTransformerBuilder<String[]>()
+                    .pretty(formatterXml.pretty)
+                    .build();
+        }
+
+        @Override
+        public void writeHeader(Writer w) throws IOException {
+            w.write("<");
+            w.write(rootTag);
+            w.write(">");
+            w.write(System.lineSeparator());
+        }
+
+        @Override
+        public void writeRecord(Writer w, long index, String[] record) throws IOException {
+            if (index > 0) {
+                w.write(LINE_SEPARATOR);
+            }
+            w.append(transformer.apply(record, schema));
+        }
+
+        @Override
+        public void writeFooter(Writer w, long count) throws IOException {
+            w.write(System.lineSeparator());
+            w.write("</");
+            w.write(rootTag);
+            w.write(">");
+        }
+    }
+
+    /**
+     * Write records as yaml documents.
+     */
+    static class YamlRecordWriter implements RecordWriter {
+
+        private final Schema<String[], String> schema;
+        private final YamlTransformer<String[]> transformer;
+
+        YamlRecordWriter(String[] fieldnames) {
+            this.schema = schemaOf(fieldnames);
+            this.transformer = new YamlTransformer<>();
+        }
+
+        @Override
+        public void writeHeader(Writer w) {
+        }
+
+        @Override
+        public void writeRecord(Writer w, long index, String[] record) throws IOException {
+            if (index > 0) {
+                w.write(LINE_SEPARATOR);
+            }
+            w.append(transformer.apply(record, schema));
+        }
+
+        @Override
+        public void writeFooter(Writer w, long count) {
+        }
+    }
+
+    /**
+     * Write records as Arrow IPC stream of utf-8 columns.
+     * <p>
+     * The stream is binary, thus the writer must provide a byte channel, see
+     * {@link OutputWriters#byteChannelOf(Writer)}.
+     */
+    static class ArrowRecordWriter implements RecordWriter {
+
+        private final String[] fieldnames;
+        private final FormatterArrow formatterArrow;
+        private ArrowStreamWriter arrowStreamWriter;
+
+        ArrowRecordWriter(String[] fieldnames, FormatterArrow formatterArrow) {
+            this.fieldnames = fieldnames;
+            this.formatterArrow = formatterArrow;
+        }
+
+        @Override
+        public void writeHeader(Writer w) throws IOException {
+            arrowStreamWriter = new ArrowStreamWriter(OutputWriters.byteChannelOf(w), fieldnames, formatterArrow.batch);
+            arrowStreamWriter.writeSchema();
+        }
+
+        @Override
+        public void writeRecord(Writer w, long index, String[] record) throws IOException {
+            arrowStreamWriter.writeRow(record);
+        }
+
+        @Override
+        public void writeFooter(Writer w, long count) throws IOException {
+            arrowStreamWriter.finish();
+        }
+    }
+
+    /**
+     * Write records in the text format of PostgreSQL <code>COPY ... FROM
+     * STDIN</code>.
+     * <p>
+     * Fields are separated by a tab character, each record is terminated by a
+     * newline character. Backslash, and control characters are escaped by a
+     * backslash sequence, null is written as <code>\N</code>.
+     */
+    static class PgCopyTextRecordWriter implements RecordWriter {
+
+        private final int countOfFields;
+        private final StringBuilder sb;
+
+        PgCopyTextRecordWriter(String[] fieldnames) {
+            this.countOfFields = fieldnames.length;
+            this.sb = new StringBuilder(256);
+        }
+
+        @Override
+        public void writeHeader(Writer w) {
+        }
+
+        @Override
+        public void writeRecord(Writer w, long index, String[] record) throws IOException {
+            sb.setLength(0);
+            for (int i = 0; i < countOfFields; i++) {
+                if (i > 0) {
+                    sb.append('\t');
+                }
+                appendPgCopyText(sb, record[i]);
+            }
+            sb.append('\n');
+            w.append(sb);
+        }
+
+        @Override
+        public void writeFooter(Writer w, long count) {
+        }
+    }
+
+    /**
+     * Append a string as field of the PostgreSQL copy text format.
+     *
+     * @param sb
+     * @param s
+     */
+    static void appendPgCopyText(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("\\N");
+            return;
+        }
+        final int length = s.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c >= 0x20 && c != '\\' && c != 0x7f) {
+                continue;
+            }
+            // append the unescaped chars preceding c at once
+            sb.append(s, start, i);
+            start = i + 1;
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\b':
+                    sb.append("\\b");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                case 0x0b:
+                    sb.append("\\v");
+                    break;
+                default:
+                    // octal escape, eg. \001
+                    sb.append('\\').append((char) ('0' + (c >> 6))).append((char) ('0' + ((c >> 3) & 7))).append((char) ('0' + (c & 7)));
+            }
+        }
+        sb.append(s, start, length);
+    }
+
+    /**
+     * Write records in the binary format of PostgreSQL <code>COPY ... FROM
+     * STDIN (FORMAT binary)</code>.
+     * <p>
+     * The output is written to the byte channel of the writer, starting with
+     * the <code>PGCOPY</code> signature. Each record is written as count of
+     * fields, followed by the length prefixed utf-8 bytes of each field, a
+     * null field has length -1. The output is terminated by a count of fields
+     * of -1.
+     * <p>
+     * Records are encoded into a reused buffer, which is written to the
+     * channel when it is full.
+     */
+    static class PgCopyBinaryRecordWriter implements RecordWriter {
+
+        static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+        private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
+
+        private final int countOfFields;
+        private ByteBuffer buffer;
+        private WritableByteChannel channel;
+
+        PgCopyBinaryRecordWriter(String[] fieldnames) {
+            if (fieldnames.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("Too many fields %d", fieldnames.length));
+            }
+            this.countOfFields = fieldnames.length;
+            this.buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        }
+
+        @Override
+        public void writeHeader(Writer w) throws IOException {
+            channel = OutputWriters.byteChannelOf(w);
+            // signature, flags, length of header extension
+            buffer.put(SIGNATURE).putInt(0).putInt(0);
+        }
+
+        @Override
+        public void writeRecord(Writer w, long index, String[] record) throws IOException {
+            ensureRemaining(2);
+            buffer.putShort((short) countOfFields);
+            for (int i = 0; i < countOfFields; i++) {
+                final String s = record[i];
+                if (s == null) {
+                    ensureRemaining(4);
+                    buffer.putInt(-1);
+                } else {
+                    // at most 3 bytes per utf-16 char
+                    ensureRemaining(4 + 3 * s.length());
+                    final int lengthPosition = buffer.position();
+                    buffer.position(lengthPosition + 4);
+                    putUtf8(buffer, s);
+                    buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+                }
+            }
+        }
+
+        @Override
+        public void writeFooter(Writer w, long count) throws IOException {
+            ensureRemaining(2);
+            buffer.putShort((short) -1);
+            drain();
+        }
+
+        private void ensureRemaining(int n) throws IOException {
+            if (buffer.remaining() < n) {
+                drain();
+                if (buffer.capacity() < n) {
+                    buffer = ByteBuffer.allocate(n);
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Put the utf-8 bytes of a string.
+     * <p>
+     * Unpaired surrogates are encoded as '?', like
+     * {@link String#getBytes(java.nio.charset.Charset)}.
+     *
+     * @param buffer having at least 3 bytes remaining per char of the string
+     * @param s
+     */
+    static void putUtf8(ByteBuffer buffer, String s) {
+        final int length = s.length();
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xc0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    final int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buffer.put((byte) (0xf0 | (cp >> 18)));
+                    buffer.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                    buffer.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                    buffer.put((byte) (0x80 | (cp & 0x3f)));
+                } else {
+                    buffer.put((byte) '?');
+                }
+            } else {
+                buffer.put((byte) (0xe0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                buffer.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+}
@@ -15,12 +15,17 @@
  */
 package org.huberb.datafaker.cli;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -82,9 +87,19 @@ class SamplesGenerator {
      * @return
      */
     public List<ExpressionInternal> sampleProviderAsExpressionInternalList2(Faker faker, List<String> providerNames) {
+        return sampleProviderAsExpressionInternalList(faker, sampleProviderMethods(providerNames));
+    }
+
+    /**
+     * Return the provider methods used as faker sample data.
+     *
+     * @param providerNames optional provider name, restricting data to this
+     * provider. If null, or '*' return methods of all available providers.
+     * @return no-arg methods returning a string
+     */
+    public List<Method> sampleProviderMethods(List<String> providerNames) {
 
         final List<String> normalizedProviderNames = normalizeProviderNames.apply(providerNames);
-        final List<ExpressionInternal> resultExpressionInternal = new ArrayList<>();
 
         final Predicate<Method> methodProviderPredicate = (m) -> {
             boolean result = true;
@@ -109,20 +124,29 @@ class SamplesGenerator {
                 .filter(methodSignaturePredicate)
                 .sorted(comparatorMethodByName)
                 .collect(Collectors.toList());
+        return methodList;
+    }
 
+    /**
+     * Return a list of faker sample data of provider methods.
+     * <p>
+     * Each method is bound once to its provider instance of the faker, and
+     * invoked directly for each value.
+     *
+     * @param faker
+     * @param methodList provider methods
+     * @return
+     * @see #sampleProviderMethods(java.util.List)
+     */
+    public List<ExpressionInternal> sampleProviderAsExpressionInternalList(Faker faker, List<Method> methodList) {
+        final Map<Class<?>, Object> providers = new HashMap<>();
+        final List<ExpressionInternal> resultExpressionInternal = new ArrayList<>();
         for (Method m : methodList) {
 
             String mClass = m.getDeclaringClass().getSimpleName();
             String mName = m.getName();
-            String expression = String.format("#{%s.%s}", mClass, mName);
             String fieldName = String.format("%s-%s", mClass, mName);
-            Supplier<String> supp = () -> {
-                try {
-                    return faker.expression(expression);
-                } catch (Exception ex) {
-                    return "";
-                }
-            };
+            Supplier<String> supp = ProviderMethodSupplier.bind(faker, m, providers);
             ExpressionInternal ei = new ExpressionInternal(fieldName, supp);
             resultExpressionInternal.add(ei);
 
@@ -130,4 +154,73 @@ class SamplesGenerator {
         return resultExpressionInternal;
     }
 
+    /**
+     * Supplier invoking a no-arg provider method returning a string.
+     * <p>
+     * A failing invocation, eg. because of missing locale data, supplies an
+     * empty string; errors are not caught.
+     */
+    static class ProviderMethodSupplier implements Supplier<String> {
+
+        private static final Supplier<String> EMPTY_SUPPLIER = () -> "";
+        private static final Object NO_PROVIDER = new Object();
+        private final MethodHandle methodHandle;
+
+        private ProviderMethodSupplier(MethodHandle methodHandle) {
+            this.methodHandle = methodHandle;
+        }
+
+        /**
+         * Bind a provider method to the provider instance of a faker.
+         * <p>
+         * The provider is retrieved by the faker method named like the
+         * declaring class of the method, as by
+         * {@code faker.expression("#{Class.method}")}.
+         *
+         * @param faker
+         * @param m no-arg provider method returning a string
+         * @param providers provider instances already retrieved from the faker
+         * @return supplier invoking the method, or supplying an empty string
+         * if the method is not available
+         */
+        static Supplier<String> bind(Faker faker, Method m, Map<Class<?>, Object> providers) {
+            final Class<?> declaringClass = m.getDeclaringClass();
+            final Object provider = providers.computeIfAbsent(declaringClass, cl -> {
+                final Method accessor = ExpressionCompiler.findProviderAccessor(cl.getSimpleName());
+                if (accessor == null || !cl.isAssignableFrom(accessor.getReturnType())) {
+                    return NO_PROVIDER;
+                }
+                try {
+                    return accessor.invoke(faker);
+                } catch (ReflectiveOperationException | RuntimeException ex) {
+                    return NO_PROVIDER;
+                }
+            });
+            if (provider == NO_PROVIDER) {
+                return EMPTY_SUPPLIER;
+            }
+            try {
+                final MethodHandle methodHandle = MethodHandles.publicLookup().unreflect(m)
+                        .bindTo(provider)
+                        .asType(MethodType.methodType(String.class));
+                return new ProviderMethodSupplier(methodHandle);
+            } catch (IllegalAccessException ex) {
+                return EMPTY_SUPPLIER;
+            }
+        }
+
+        @Override
+        public String get() {
+            try {
+                return (String) methodHandle.invokeExact();
+            } catch (Error err) {
+                throw err;
+            } catch (Exception ex) {
+                return "";
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.samples;
+
+import net.datafaker.service.RandomService;
+
+/**
+ * Sample indexes according to weights using Vose's alias method.
+ * <p>
+ * Building the table takes O(n), sampling takes O(1): a single random number
+ * selects a column by its integer part, and decides between the column, and
+ * its alias by its fractional part.
+ *
+ * @author berni3
+ */
+class AliasSampler {
+
+    /**
+     * Probability of choosing the column, instead of its alias.
+     */
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * Create a new instance.
+     *
+     * @param weights non-negative weights, having a positive sum
+     * @throws IllegalArgumentException if there are no weights, a weight is
+     * negative, or not finite, or the sum of weights is not positive
+     */
+    AliasSampler(double[] weights) {
+        final int n = weights.length;
+        double sum = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException(String.format("Invalid weight %s", weight));
+            }
+            sum += weight;
+        }
+        if (n == 0 || !(sum > 0) || Double.isInfinite(sum)) {
+            throw new IllegalArgumentException(String.format("Invalid sum of weights %s", sum));
+        }
+        this.probability = new double[n];
+        this.alias = new int[n];
+        // scaled weights, having mean 1; small, and large ones as index stacks
+        final double[] scaled = new double[n];
+        final int[] small = new int[n];
+        final int[] large = new int[n];
+        int countOfSmall = 0;
+        int countOfLarge = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1.0) {
+                small[countOfSmall++] = i;
+            } else {
+                large[countOfLarge++] = i;
+            }
+        }
+        while (countOfSmall > 0 && countOfLarge > 0) {
+            final int s = small[--countOfSmall];
+            final int l = large[--countOfLarge];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) {
+                small[countOfSmall++] = l;
+            } else {
+                large[countOfLarge++] = l;
+            }
+        }
+        // remaining columns are full, up to rounding errors
+        while (countOfLarge > 0) {
+            final int l = large[--countOfLarge];
+            probability[l] = 1.0;
+            alias[l] = l;
+        }
+        while (countOfSmall > 0) {
+            final int s = small[--countOfSmall];
+            probability[s] = 1.0;
+            alias[s] = s;
+        }
+    }
+
+    /**
+     * Return the number of indexes.
+     *
+     * @return
+     */
+    int size() {
+        return this.probability.length;
+    }
+
+    /**
+     * Return a random index, the probability of an index is its weight
+     * divided by the sum of weights.
+     *
+     * @param random
+     * @return
+     */
+    int sample(RandomService random) {
+        final double u = random.nextDouble() * this.probability.length;
+        final int column = Math.min((int) u, this.probability.length - 1);
+        return (u - column) < this.probability[column] ? column : this.alias[column];
+    }
+}
@@ -15,11 +15,17 @@
  */
 package org.huberb.datafaker.samples;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 /**
+ * Dictionary of icd codes having length 3, and their disease names.
+ * <p>
+ * The dictionary is shared by all {@link Icd3Diseases} providers, see
+ * {@link #shared()}. Codes are indexed by slot, a number derived from the 3
+ * characters of a code, for looking up a code, and for the positions of the
+ * codes of a prefix, or a range of codes, in the order of codes, without
+ * hashing, or searching.
  *
  * @author berni3
  */
@@ -2503,29 +2509,138 @@ public class Icd3CodesDiseasesData {
     // diagnose: "- 69 -",
     };
 
+    /**
+     * Number of 3 character codes: the first character is a digit, or an
+     * upper case letter, followed by 2 digits.
+     */
+    static final int COUNT_OF_SLOTS = 36 * 100;
+
+    /**
+     * Codes, and diseases in the order of the data.
+     * <p>
+     * A malformed line keeps its index, having no code, and no disease, thus
+     * the indexes of the following lines, and the codes sampled by a seeded
+     * random do not depend on malformed lines.
+     */
     private final String[] icd3Codes;
     private final String[] diseases;
-    private final Map<String, String> m;
+    /**
+     * Index of the code of a slot, or -1.
+     */
+    private final int[] slotToIndex;
+    /**
+     * Position of the first code of a slot, or later, in the order of codes;
+     * having an additional element for the end.
+     */
+    private final int[] slotToPosition;
+    /**
+     * Index of the code at a position in the order of codes.
+     */
+    private final int[] positionToIndex;
+
+    /**
+     * Return the dictionary shared by all providers.
+     * <p>
+     * The dictionary is immutable, and created on first access.
+     *
+     * @return
+     */
+    static Icd3CodesDiseasesData shared() {
+        return Holder.SHARED;
+    }
+
+    private static class Holder {
+
+        static final Icd3CodesDiseasesData SHARED = new Icd3CodesDiseasesData();
+    }
 
     Icd3CodesDiseasesData() {
+        this(icd3DiseasesData);
+    }
+
+    /**
+     * Create a dictionary of lines having the format code@@disease.
+     *
+     * @param data
+     */
+    Icd3CodesDiseasesData(String[] data) {
         Logger logger = Logger.getLogger(Icd3CodesDiseasesData.class.getName());
-        int l = icd3DiseasesData.length;
+        final int l = data.length;
         icd3Codes = new String[l];
         diseases = new String[l];
-        m = new HashMap<>(l + 1);
+        slotToIndex = new int[COUNT_OF_SLOTS];
+        Arrays.fill(slotToIndex, -1);
+        int count = 0;
         for (int i = 0; i < l; i += 1) {
-            String line = icd3DiseasesData[i];
-            String[] splittedLine = line.split("@@");
-            if (splittedLine.length == 2) {
-                String icd3Code = splittedLine[0];
-                icd3Codes[i] = icd3Code;
-                String disease = splittedLine[1];
-                diseases[i] = disease;
-                m.put(icd3Code, disease);
-            } else {
+            final String line = data[i];
+            final int separator = line.indexOf("@@");
+            final int slot = separator < 0 ? -1 : slotOf(line.substring(0, separator));
+            if (slot < 0) {
+                // keep the index as placeholder
                 logger.warning(() -> String.format("Bad data: %s", line));
+                continue;
             }
+            icd3Codes[i] = line.substring(0, separator);
+            diseases[i] = line.substring(separator + 2);
+            if (slotToIndex[slot] >= 0) {
+                // sampled by index, but looked up by its first occurrence
+                logger.warning(() -> String.format("Duplicate code: %s", line));
+                continue;
+            }
+            slotToIndex[slot] = i;
+            count += 1;
+        }
+        // slots are in the order of codes, no sorting needed
+        slotToPosition = new int[COUNT_OF_SLOTS + 1];
+        positionToIndex = new int[count];
+        int position = 0;
+        for (int slot = 0; slot < COUNT_OF_SLOTS; slot += 1) {
+            slotToPosition[slot] = position;
+            if (slotToIndex[slot] >= 0) {
+                positionToIndex[position] = slotToIndex[slot];
+                position += 1;
+            }
+        }
+        slotToPosition[COUNT_OF_SLOTS] = position;
+    }
+
+    /**
+     * Return the slot of a code, eg. 0 for 000, 1000 for A00, and 3599 for
+     * Z99.
+     * <p>
+     * The order of the slots is the order of the codes.
+     *
+     * @param icd3Code
+     * @return the slot, or -1 if the code has not 3 characters, a digit, or
+     * an upper case letter, followed by 2 digits
+     */
+    static int slotOf(String icd3Code) {
+        if (icd3Code == null || icd3Code.length() != 3) {
+            return -1;
+        }
+        final int first = firstCharOf(icd3Code.charAt(0));
+        final int second = icd3Code.charAt(1) - '0';
+        final int third = icd3Code.charAt(2) - '0';
+        if (first < 0 || second < 0 || second > 9 || third < 0 || third > 9) {
+            return -1;
         }
+        return first * 100 + second * 10 + third;
+    }
+
+    /**
+     * Return the value of the first character of a code, digits having a
+     * value less than letters.
+     *
+     * @param c
+     * @return
+     */
+    static int firstCharOf(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        return -1;
     }
 
     String[] icd3Codes() {
@@ -2536,8 +2651,58 @@ public class Icd3CodesDiseasesData {
         return this.diseases;
     }
 
+    /**
+     * Return the number of indexes, including the placeholders of malformed
+     * lines.
+     *
+     * @return
+     */
+    int size() {
+        return this.icd3Codes.length;
+    }
+
+    String icd3Code(int index) {
+        return this.icd3Codes[index];
+    }
+
+    String disease(int index) {
+        return this.diseases[index];
+    }
+
+    /**
+     * Return the index of a code.
+     *
+     * @param icd3Code
+     * @return the index, or -1 if there is no such code
+     */
+    int indexOf(String icd3Code) {
+        final int slot = slotOf(icd3Code);
+        return slot < 0 ? -1 : this.slotToIndex[slot];
+    }
+
     String diseaseByCode(String icd3Code) {
-        String result = this.m.get(icd3Code);
-        return result;
+        final int index = indexOf(icd3Code);
+        return index < 0 ? null : this.diseases[index];
+    }
+
+    /**
+     * Return the position of the first code of a slot, or a later slot, in
+     * the order of codes.
+     *
+     * @param slot a slot, or {@link #COUNT_OF_SLOTS} for the end
+     * @return
+     */
+    int positionOfSlot(int slot) {
+        return this.slotToPosition[slot];
+    }
+
+    /**
+     * Return the index of the code at a position in the order of codes.
+     *
+     * @param position
+     * @return
+     */
+    int indexAtPosition(int position) {
+        return this.positionToIndex[position];
     }
 }
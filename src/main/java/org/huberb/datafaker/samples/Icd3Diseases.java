@@ -15,16 +15,34 @@
  */
 package org.huberb.datafaker.samples;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.logging.Logger;
 import net.datafaker.Faker;
 import net.datafaker.providers.base.AbstractProvider;
 import net.datafaker.providers.base.BaseProviders;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
 
 /**
+ * Provide icd codes having length 3, and disease names.
+ * <p>
+ * The codes, and diseases are provided by the dictionary shared by all
+ * instances, see {@link Icd3CodesDiseasesData#shared()}. Weighted codes, and
+ * diseases use the relative weights of the resource {@value #WEIGHTS_RESOURCE}.
  *
  * @author berni3
  */
 public class Icd3Diseases extends AbstractProvider<BaseProviders> {
 
+    static final String WEIGHTS_RESOURCE = "/icd3_weights.yml";
+
     private final Icd3CodesDiseasesData icd3CodesDiseases;
 
     /**
@@ -35,7 +53,7 @@ public class Icd3Diseases extends AbstractProvider<BaseProviders> {
      */
     public Icd3Diseases(BaseProviders faker) {
         super(faker);
-        icd3CodesDiseases = new Icd3CodesDiseasesData();
+        icd3CodesDiseases = Icd3CodesDiseasesData.shared();
     }
 
     //----
@@ -64,4 +82,161 @@ public class Icd3Diseases extends AbstractProvider<BaseProviders> {
         final String key = diseases[mapIndex];
         return key;
     }
+
+    /**
+     * Return an icd code having length 3, the probability of a code is
+     * proportional to its weight.
+     *
+     * @return
+     */
+    public String icdCodeWeighted() {
+        return icd3CodesDiseases.icd3Code(WeightsHolder.SAMPLER.sample(faker.random()));
+    }
+
+    /**
+     * Return a disease name, the probability of a disease is proportional to
+     * the weight of its code.
+     *
+     * @return
+     */
+    public String diseaseWeighted() {
+        return icd3CodesDiseases.disease(WeightsHolder.SAMPLER.sample(faker.random()));
+    }
+
+    /**
+     * Return an icd code having length 3 of a range of codes.
+     *
+     * @param range a range of codes, eg. {@code A00-A09}, or a single code
+     * @return
+     * @throws IllegalArgumentException if the range is invalid, or contains
+     * no code
+     */
+    public String icdCodeInRange(String range) {
+        return icd3CodesDiseases.icd3Code(indexInRange(range));
+    }
+
+    /**
+     * Return a disease name of a range of codes.
+     *
+     * @param range a range of codes, eg. {@code A00-A09}, or a single code
+     * @return
+     * @throws IllegalArgumentException if the range is invalid, or contains
+     * no code
+     */
+    public String diseaseInRange(String range) {
+        return icd3CodesDiseases.disease(indexInRange(range));
+    }
+
+    /**
+     * Return an icd code having length 3 starting with a prefix.
+     *
+     * @param prefix a prefix of up to 3 characters, eg. {@code A0}
+     * @return
+     * @throws IllegalArgumentException if the prefix is invalid, or no code
+     * starts with the prefix
+     */
+    public String icdCodeWithPrefix(String prefix) {
+        return icd3CodesDiseases.icd3Code(indexWithPrefix(prefix));
+    }
+
+    /**
+     * Return the disease name of an icd code.
+     *
+     * @param icdCode
+     * @return the disease name, or null if there is no such code
+     */
+    public String diseaseByCode(String icdCode) {
+        return icd3CodesDiseases.diseaseByCode(icdCode);
+    }
+
+    private int indexInRange(String range) {
+        final int separator = range.indexOf('-');
+        final String from = separator < 0 ? range : range.substring(0, separator);
+        final String to = separator < 0 ? range : range.substring(separator + 1);
+        final int fromSlot = Icd3CodesDiseasesData.slotOf(from.trim());
+        final int toSlot = Icd3CodesDiseasesData.slotOf(to.trim());
+        if (fromSlot < 0 || toSlot < fromSlot) {
+            throw new IllegalArgumentException(String.format("Invalid range %s", range));
+        }
+        return randomIndex(fromSlot, toSlot + 1, range);
+    }
+
+    private int indexWithPrefix(String prefix) {
+        final int l = prefix.length();
+        final int fromSlot = Icd3CodesDiseasesData.slotOf((prefix + "000").substring(0, 3));
+        if (l > 3 || fromSlot < 0) {
+            throw new IllegalArgumentException(String.format("Invalid prefix %s", prefix));
+        }
+        final int countOfSlots = l == 0 ? Icd3CodesDiseasesData.COUNT_OF_SLOTS : l == 1 ? 100 : l == 2 ? 10 : 1;
+        return randomIndex(fromSlot, fromSlot + countOfSlots, prefix);
+    }
+
+    /**
+     * Return the index of a random code of the slots from, inclusive, to,
+     * exclusive.
+     */
+    private int randomIndex(int fromSlot, int toSlot, String description) {
+        final int fromPosition = icd3CodesDiseases.positionOfSlot(fromSlot);
+        final int toPosition = icd3CodesDiseases.positionOfSlot(toSlot);
+        if (fromPosition >= toPosition) {
+            throw new IllegalArgumentException(String.format("No icd code in %s", description));
+        }
+        final int position = fromPosition + faker.random().nextInt(toPosition - fromPosition);
+        return icd3CodesDiseases.indexAtPosition(position);
+    }
+
+    private static class WeightsHolder {
+
+        static final AliasSampler SAMPLER = new AliasSampler(loadWeights(Icd3CodesDiseasesData.shared()));
+    }
+
+    static double[] loadWeights(Icd3CodesDiseasesData icd3CodesDiseases) {
+        try (InputStream is = Icd3Diseases.class.getResourceAsStream(WEIGHTS_RESOURCE)) {
+            if (is == null) {
+                throw new IllegalStateException("No resource " + WEIGHTS_RESOURCE);
+            }
+            return readWeights(new InputStreamReader(is, StandardCharsets.UTF_8), icd3CodesDiseases);
+        } catch (IOException ioex) {
+            throw new UncheckedIOException("Cannot read " + WEIGHTS_RESOURCE, ioex);
+        }
+    }
+
+    /**
+     * Read the map weights of a yaml document, having a weight per code.
+     * <p>
+     * Codes not in the map have weight 1, unknown codes are ignored.
+     * Placeholders of malformed lines have weight 0.
+     *
+     * @param reader
+     * @param icd3CodesDiseases
+     * @return weights by index of the codes
+     * @throws IllegalStateException if there is no such map, or a weight is
+     * not a non-negative number
+     */
+    static double[] readWeights(Reader reader, Icd3CodesDiseasesData icd3CodesDiseases) {
+        final Object content = new Yaml(new SafeConstructor(new LoaderOptions())).load(reader);
+        final Object weightsOfCodes = content instanceof Map ? ((Map<?, ?>) content).get("weights") : null;
+        if (!(weightsOfCodes instanceof Map)) {
+            throw new IllegalStateException("No map weights in " + WEIGHTS_RESOURCE);
+        }
+        final double[] weights = new double[icd3CodesDiseases.size()];
+        for (int i = 0; i < weights.length; i++) {
+            // placeholders of malformed lines are never sampled
+            weights[i] = icd3CodesDiseases.icd3Code(i) != null ? 1.0 : 0.0;
+        }
+        for (Map.Entry<?, ?> e : ((Map<?, ?>) weightsOfCodes).entrySet()) {
+            final String icdCode = String.valueOf(e.getKey());
+            final int index = icd3CodesDiseases.indexOf(icdCode);
+            if (index < 0) {
+                Logger.getLogger(Icd3Diseases.class.getName())
+                        .warning(() -> String.format("Unknown icd code %s", icdCode));
+                continue;
+            }
+            if (!(e.getValue() instanceof Number) || !(((Number) e.getValue()).doubleValue() >= 0)) {
+                throw new IllegalStateException(String.format("Invalid weight %s of %s", e.getValue(), icdCode));
+            }
+            weights[index] = ((Number) e.getValue()).doubleValue();
+        }
+        return weights;
+    }
 }
@@ -15,24 +15,34 @@
  */
 package org.huberb.datafaker.samples;
 
-import java.nio.file.Paths;
-import java.util.Locale;
-import java.util.function.Function;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
 import net.datafaker.providers.base.AbstractProvider;
 import net.datafaker.providers.base.BaseProviders;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
 
 /**
+ * Provide icd codes having length 3, and disease names of the yaml resource
+ * {@value #RESOURCE}.
+ * <p>
+ * The resource is loaded from the classpath once, and shared by all
+ * instances.
  *
  * @author berni3
  */
 public class Icd3DiseasesYaml extends AbstractProvider<BaseProviders> {
 
-    private static final String KEY = "diseases";
-
-    private Function<String, String[]> splitt = (l) -> {
-        String[] splitted = l.split("@@");
-        return splitted;
-    };
+    static final String RESOURCE = "/icd3_diagnoses.yml";
 
     /**
      * Create a new instance.
@@ -42,7 +52,6 @@ public class Icd3DiseasesYaml extends AbstractProvider<BaseProviders> {
      */
     public Icd3DiseasesYaml(BaseProviders faker) {
         super(faker);
-        faker.addPath(Locale.GERMAN, Paths.get("src/main/resources/icd3_diagnoses.yml"));
     }
 
     //----
@@ -52,9 +61,8 @@ public class Icd3DiseasesYaml extends AbstractProvider<BaseProviders> {
      * @return
      */
     public String icdCode() {
-        String line = faker.resolve(KEY + ".codes_diseases");
-        String icd3Code = splitt.apply(line)[0];
-        return icd3Code;
+        final String[] icd3Codes = Holder.SHARED.icd3Codes;
+        return icd3Codes[faker.random().nextInt(icd3Codes.length)];
     }
 
     /**
@@ -63,10 +71,82 @@ public class Icd3DiseasesYaml extends AbstractProvider<BaseProviders> {
      * @return
      */
     public String disease() {
-        String line = faker.resolve(KEY + ".codes_diseases");
-        String disease = splitt.apply(line)[1];
-        return disease;
+        final String[] diseases = Holder.SHARED.diseases;
+        return diseases[faker.random().nextInt(diseases.length)];
     }
     //----
 
+    /**
+     * Return the dictionary shared by all instances.
+     *
+     * @return
+     */
+    static Dictionary shared() {
+        return Holder.SHARED;
+    }
+
+    private static class Holder {
+
+        static final Dictionary SHARED = Dictionary.load();
+    }
+
+    /**
+     * Codes, and diseases of the yaml resource, split at "@@".
+     */
+    static class Dictionary {
+
+        final String[] icd3Codes;
+        final String[] diseases;
+
+        Dictionary(String[] icd3Codes, String[] diseases) {
+            this.icd3Codes = icd3Codes;
+            this.diseases = diseases;
+        }
+
+        static Dictionary load() {
+            try (InputStream is = Icd3DiseasesYaml.class.getResourceAsStream(RESOURCE)) {
+                if (is == null) {
+                    throw new IllegalStateException("No resource " + RESOURCE);
+                }
+                return read(new InputStreamReader(is, StandardCharsets.UTF_8));
+            } catch (IOException ioex) {
+                throw new UncheckedIOException("Cannot read " + RESOURCE, ioex);
+            }
+        }
+
+        /**
+         * Read the list de.faker.diseases.codes_diseases of a yaml document.
+         *
+         * @param reader
+         * @return
+         * @throws IllegalStateException if there is no such list
+         */
+        static Dictionary read(Reader reader) {
+            final Object content = new Yaml(new SafeConstructor(new LoaderOptions())).load(reader);
+            Object list = content;
+            for (String key : new String[]{"de", "faker", "diseases", "codes_diseases"}) {
+                list = list instanceof Map ? ((Map<?, ?>) list).get(key) : null;
+            }
+            if (!(list instanceof List)) {
+                throw new IllegalStateException("No list de.faker.diseases.codes_diseases in " + RESOURCE);
+            }
+            final List<?> lines = (List<?>) list;
+            final String[] icd3Codes = new String[lines.size()];
+            final String[] diseases = new String[lines.size()];
+            int count = 0;
+            for (Object element : lines) {
+                final String line = String.valueOf(element);
+                final int separator = line.indexOf("@@");
+                if (separator < 0) {
+                    Logger.getLogger(Icd3DiseasesYaml.class.getName())
+                            .warning(() -> String.format("Bad data: %s", line));
+                    continue;
+                }
+                icd3Codes[count] = line.substring(0, separator);
+                diseases[count] = line.substring(separator + 2);
+                count += 1;
+            }
+            return new Dictionary(Arrays.copyOf(icd3Codes, count), Arrays.copyOf(diseases, count));
+        }
+    }
 }
@@ -15,10 +15,14 @@
  */
 package org.huberb.datafaker.samples;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
 import java.util.function.Predicate;
 import net.datafaker.Faker;
 import net.datafaker.providers.base.AbstractProvider;
 import net.datafaker.providers.base.BaseProviders;
+import net.datafaker.service.RandomService;
 
 /**
  * Berechnung österreichischer Sozialversicherungsnummer (SVNR).
@@ -44,6 +48,9 @@ import net.datafaker.providers.base.BaseProviders;
  * X = (1×3 + 2×7 + 3×9 + 0×5 + 1×8 + 0×4 + 1×2 + 8×1 + 0×6) mod 11
  * X = 7
  * </pre> Die Sozialversicherungsnummer lautet somit 1237 010180.
+ * <p>
+ * Many svnrs are generated in bulk by {@link #fillSvnrs(char[], int, int)},
+ * {@link #fillSvnrs(byte[], int, int)}, and {@link #writeSvnrs(Writer, long)}.
  *
  * @see "https://de.wikipedia.org/wiki/Sozialversicherungsnummer"
  * @author berni3
@@ -51,17 +58,21 @@ import net.datafaker.providers.base.BaseProviders;
  */
 public class SvnrProvider extends AbstractProvider<BaseProviders> {
 
+    /**
+     * Length of a svnr.
+     */
+    public static final int SVNR_LENGTH = 3 + 1 + 6;
+
     private final Predicate<String> allDigitsPredicate = s -> {
         for (int i = 0; i < s.length(); i++) {
             char c = s.charAt(i);
-            if (!Character.isDigit(c)) {
+            // ascii digits only, as digits are converted by c - '0'
+            if (!(c >= '0' && c <= '9')) {
                 return false;
             }
         }
         return true;
     };
-    private final int[] mulLaufnummer = {3, 7, 9};
-    private final int[] mulGeburtsdatum = {5, 8, 4, 2, 1, 6};
 
     /**
      * Create a new instance.
@@ -97,6 +108,155 @@ public class SvnrProvider extends AbstractProvider<BaseProviders> {
         return calcSvnr(geburtsdatum);
     }
 
+    /**
+     * Fill a buffer with svnrs for random birthdays.
+     * <p>
+     * Each svnr takes {@link #SVNR_LENGTH} chars, without separator. Birthdays,
+     * and pruefziffer are calculated by primitive arithmetic, without creating
+     * objects.
+     *
+     * @param buffer
+     * @param offset of the first svnr
+     * @param count of svnrs
+     * @see #svnr()
+     */
+    public void fillSvnrs(char[] buffer, int offset, int count) {
+        checkRange(buffer.length, offset, count);
+        final BirthdayRange birthdayRange = new BirthdayRange();
+        for (int i = 0; i < count; i++) {
+            putSvnr(buffer, offset + i * SVNR_LENGTH, genSvnr(birthdayRange));
+        }
+    }
+
+    /**
+     * Fill a buffer with svnrs for random birthdays, as US-ASCII bytes.
+     *
+     * @param buffer
+     * @param offset of the first svnr
+     * @param count of svnrs
+     * @see #fillSvnrs(char[], int, int)
+     */
+    public void fillSvnrs(byte[] buffer, int offset, int count) {
+        checkRange(buffer.length, offset, count);
+        final BirthdayRange birthdayRange = new BirthdayRange();
+        for (int i = 0; i < count; i++) {
+            long value = genSvnr(birthdayRange);
+            for (int pos = offset + (i + 1) * SVNR_LENGTH - 1; pos >= offset + i * SVNR_LENGTH; pos--) {
+                buffer[pos] = (byte) ('0' + (int) (value % 10));
+                value /= 10;
+            }
+        }
+    }
+
+    /**
+     * Write svnrs for random birthdays, each svnr followed by a newline.
+     *
+     * @param w
+     * @param count of svnrs
+     * @throws IOException
+     * @see #fillSvnrs(char[], int, int)
+     */
+    public void writeSvnrs(Writer w, long count) throws IOException {
+        final int lineLength = SVNR_LENGTH + 1;
+        final char[] buffer = new char[1024 * lineLength];
+        final BirthdayRange birthdayRange = new BirthdayRange();
+        long remaining = count;
+        while (remaining > 0) {
+            final int n = (int) Math.min(remaining, 1024);
+            for (int i = 0; i < n; i++) {
+                putSvnr(buffer, i * lineLength, genSvnr(birthdayRange));
+                buffer[i * lineLength + SVNR_LENGTH] = '\n';
+            }
+            w.write(buffer, 0, n * lineLength);
+            remaining -= n;
+        }
+    }
+
+    private static void putSvnr(char[] buffer, int offset, long svnr) {
+        long value = svnr;
+        for (int pos = offset + SVNR_LENGTH - 1; pos >= offset; pos--) {
+            buffer[pos] = (char) ('0' + (int) (value % 10));
+            value /= 10;
+        }
+    }
+
+    private static void checkRange(int length, int offset, int count) {
+        if (offset < 0 || count < 0 || (long) count * SVNR_LENGTH > length - offset) {
+            throw new IndexOutOfBoundsException(String.format("Cannot fill %d svnrs at offset %d of length %d",
+                    count, offset, length));
+        }
+    }
+
+    /**
+     * Generate a svnr as number, having leading digits of the laufende
+     * nummer, thus having always {@link #SVNR_LENGTH} digits.
+     */
+    private long genSvnr(BirthdayRange birthdayRange) {
+        final int geburtsdatum = birthdayRange.genGeburtsdatum(faker.random());
+        int laufendeNummerInt = 100 + faker.random().nextInt(900);
+        for (int i = 1; i < 10; i++) {
+            final int pruefziffer = pruefziffer(laufendeNummerInt, geburtsdatum);
+            if (pruefziffer != 10) {
+                return (laufendeNummerInt * 10L + pruefziffer) * 1_000_000L + geburtsdatum;
+            }
+            laufendeNummerInt += 1;
+            if (laufendeNummerInt >= 1000) {
+                laufendeNummerInt = 100;
+            }
+        }
+        throw new RuntimeException(String.format("Cannot calculate svnr for geburtsdatum %06d", geburtsdatum));
+    }
+
+    /**
+     * Birthdays 1 to 99 years in the past, as days since epoch.
+     */
+    static class BirthdayRange {
+
+        final int fromEpochDay;
+        final int toEpochDay;
+
+        BirthdayRange() {
+            this(LocalDate.now());
+        }
+
+        BirthdayRange(LocalDate today) {
+            this.fromEpochDay = (int) today.minusYears(99).toEpochDay();
+            this.toEpochDay = (int) today.minusYears(1).toEpochDay();
+        }
+
+        /**
+         * Generate a random birthday.
+         *
+         * @param random
+         * @return birthday as number yyMMdd
+         */
+        int genGeburtsdatum(RandomService random) {
+            return geburtsdatumOfEpochDay(fromEpochDay + random.nextInt(toEpochDay - fromEpochDay + 1));
+        }
+
+        /**
+         * Convert days since epoch to a date as number yyMMdd.
+         * <p>
+         * The algorithm civil_from_days of Howard Hinnant, using 400 year eras
+         * starting at 0000-03-01.
+         *
+         * @param epochDay
+         * @return
+         */
+        static int geburtsdatumOfEpochDay(int epochDay) {
+            final int z = epochDay + 719468;
+            final int era = Math.floorDiv(z, 146097);
+            final int doe = z - era * 146097;
+            final int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+            final int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+            final int mp = (5 * doy + 2) / 153;
+            final int d = doy - (153 * mp + 2) / 5 + 1;
+            final int m = mp < 10 ? mp + 3 : mp - 9;
+            final int y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+            return Math.floorMod(y, 100) * 10000 + m * 100 + d;
+        }
+    }
+
     private String calcSvnr(String geburtsdatum) {
         int laufendeNummerInt = genLaufendeNummer();
         for (int i = 1; i < 10; i++) {
@@ -114,49 +274,42 @@ public class SvnrProvider extends AbstractProvider<BaseProviders> {
     }
 
     private String calcSvnrWithPruefziffer(String geburtsdatum, int laufendeNummerInt) {
-        Predicate<String> validGeburtsdatumP = s -> geburtsdatum != null
-                && geburtsdatum.length() == 6
-                && allDigitsPredicate.test(geburtsdatum);
-        if (!validGeburtsdatumP.test(geburtsdatum)) {
+        if (!(geburtsdatum != null && geburtsdatum.length() == 6 && allDigitsPredicate.test(geburtsdatum))) {
             throw new RuntimeException(String.format("Geburtsdatum invalid: %s", geburtsdatum));
         }
-        Predicate<Integer> validLaufendenummerP = i -> laufendeNummerInt >= 100
-                && laufendeNummerInt < 1000;
-        if (!validLaufendenummerP.test(laufendeNummerInt)) {
+        if (!(laufendeNummerInt >= 100 && laufendeNummerInt < 1000)) {
             throw new RuntimeException(String.format("Laufendenummer invalid: %d", laufendeNummerInt));
         }
-
-        String laufendeNummer = "" + laufendeNummerInt;
-        int pruefnummer = 0;
-        {
-            int laufendeNummer_0 = Character.getNumericValue(laufendeNummer.charAt(0));
-            int laufendeNummer_1 = Character.getNumericValue(laufendeNummer.charAt(1));
-            int laufendeNummer_2 = Character.getNumericValue(laufendeNummer.charAt(2));
-
-            pruefnummer += laufendeNummer_0 * mulLaufnummer[0];
-            pruefnummer += laufendeNummer_1 * mulLaufnummer[1];
-            pruefnummer += laufendeNummer_2 * mulLaufnummer[2];
-        }
-        {
-            int geburtsdatum_0 = Character.getNumericValue(geburtsdatum.charAt(0));
-            int geburtsdatum_1 = Character.getNumericValue(geburtsdatum.charAt(1));
-            int geburtsdatum_2 = Character.getNumericValue(geburtsdatum.charAt(2));
-            int geburtsdatum_3 = Character.getNumericValue(geburtsdatum.charAt(3));
-            int geburtsdatum_4 = Character.getNumericValue(geburtsdatum.charAt(4));
-            int geburtsdatum_5 = Character.getNumericValue(geburtsdatum.charAt(5));
-
-            pruefnummer += geburtsdatum_0 * mulGeburtsdatum[0];
-            pruefnummer += geburtsdatum_1 * mulGeburtsdatum[1];
-            pruefnummer += geburtsdatum_2 * mulGeburtsdatum[2];
-            pruefnummer += geburtsdatum_3 * mulGeburtsdatum[3];
-            pruefnummer += geburtsdatum_4 * mulGeburtsdatum[4];
-            pruefnummer += geburtsdatum_5 * mulGeburtsdatum[5];
-        }
-        int pruefziffer = pruefnummer % 11;
+        int geburtsdatumInt = 0;
+        for (int i = 0; i < 6; i++) {
+            geburtsdatumInt = geburtsdatumInt * 10 + (geburtsdatum.charAt(i) - '0');
+        }
+        int pruefziffer = pruefziffer(laufendeNummerInt, geburtsdatumInt);
         if (pruefziffer == 10) {
             return null;
         }
-        return laufendeNummer + ("" + pruefziffer) + geburtsdatum;
+        return laufendeNummerInt + String.valueOf(pruefziffer) + geburtsdatum;
+    }
+
+    /**
+     * Calculate the pruefziffer.
+     *
+     * @param laufendeNummer 100..999
+     * @param geburtsdatum as number yyMMdd
+     * @return 0..10, 10 being invalid
+     */
+    static int pruefziffer(int laufendeNummer, int geburtsdatum) {
+        int pruefnummer = 0;
+        pruefnummer += (laufendeNummer / 100) * 3;
+        pruefnummer += (laufendeNummer / 10 % 10) * 7;
+        pruefnummer += (laufendeNummer % 10) * 9;
+        pruefnummer += (geburtsdatum / 100000) * 5;
+        pruefnummer += (geburtsdatum / 10000 % 10) * 8;
+        pruefnummer += (geburtsdatum / 1000 % 10) * 4;
+        pruefnummer += (geburtsdatum / 100 % 10) * 2;
+        pruefnummer += (geburtsdatum / 10 % 10) * 1;
+        pruefnummer += (geburtsdatum % 10) * 6;
+        return pruefnummer % 11;
     }
 
     private String genGeburtsdatum() {
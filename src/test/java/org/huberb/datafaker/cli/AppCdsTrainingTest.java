@@ -0,0 +1,52 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatEnum;
+import org.huberb.datafaker.cli.DatafakerCli.AvailableModes;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine;
+
+/**
+ *
+ * @author berni3
+ */
+public class AppCdsTrainingTest {
+
+    @Test
+    public void testInvocations_are_valid_command_lines() {
+        final List<String[]> invocations = AppCdsTraining.invocations(new File("training.txt"));
+        for (String[] invocation : invocations) {
+            assertDoesNotThrow(() -> new CommandLine(new DatafakerCli()).parseArgs(invocation), Arrays.toString(invocation));
+        }
+    }
+
+    @Test
+    public void testInvocations_cover_modes_and_formats() {
+        final List<String[]> invocations = AppCdsTraining.invocations(new File("training.txt"));
+        for (AvailableModes availableModes : AvailableModes.values()) {
+            assertTrue(invocations.stream().anyMatch(i -> Arrays.asList(i).contains(availableModes.name())), availableModes.name());
+        }
+        for (FormatEnum formatEnum : FormatEnum.values()) {
+            assertTrue(invocations.stream().anyMatch(i -> Arrays.asList(i).contains(formatEnum.name())), formatEnum.name());
+        }
+    }
+}
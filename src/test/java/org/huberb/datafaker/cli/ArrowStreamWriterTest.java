@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import net.datafaker.Faker;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatEnum;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test {@link ArrowStreamWriter} by reading its output using the Apache Arrow
+ * library.
+ *
+ * @author berni3
+ */
+public class ArrowStreamWriterTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 10, 100})
+    public void testWriteRead(int batchSize) throws IOException {
+        final String[] fieldnames = {"name", "city", "äöü"};
+        final List<String[]> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            records.add(new String[]{
+                "name" + i,
+                i % 4 == 0 ? null : "Wien " + "€".repeat(i),
+                i % 3 == 0 ? "" : "x😀y" + i});
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ArrowStreamWriter instance = new ArrowStreamWriter(Channels.newChannel(baos), fieldnames, batchSize);
+        instance.writeSchema();
+        for (String[] record : records) {
+            instance.writeRow(record);
+        }
+        instance.finish();
+
+        final List<List<String>> result = read(baos.toByteArray(), fieldnames);
+        assertEquals(records.size(), result.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(Arrays.asList(records.get(i)), result.get(i), "record " + i);
+        }
+        assertEquals((records.size() + batchSize - 1) / batchSize, countOfBatches(baos.toByteArray()));
+    }
+
+    @Test
+    public void testWriteRead_no_rows() throws IOException {
+        final String[] fieldnames = {"a"};
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ArrowStreamWriter instance = new ArrowStreamWriter(Channels.newChannel(baos), fieldnames, 10);
+        instance.writeSchema();
+        instance.finish();
+        assertEquals(Collections.emptyList(), read(baos.toByteArray(), fieldnames));
+    }
+
+    /**
+     * Test the arrow format of {@link DataFormatProcessor}.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testDataFormatProcessor() throws IOException {
+        final DataFormatProcessor dataFormatProcessor = new DataFormatProcessor(new Faker(Locale.ENGLISH, new Random(4711L)), 2345)
+                .addExpressionsFromStringList(Arrays.asList("name:#{Name.fullName}", "number:#{numerify '###'}"));
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (Writer w = OutputWriters.newWriter(baos)) {
+            dataFormatProcessor.format(FormatEnum.arrow, Map.of("batch", "1000"), w);
+        }
+        final List<List<String>> result = read(baos.toByteArray(), new String[]{"name", "number"});
+        assertEquals(2345, result.size());
+        assertTrue(result.stream().allMatch(r -> r.get(1).matches("\\d\\d\\d")), "" + result);
+        assertEquals(3, countOfBatches(baos.toByteArray()));
+    }
+
+    static List<List<String>> read(byte[] bytes, String[] expectedFieldnames) throws IOException {
+        final List<List<String>> result = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(bytes), allocator)) {
+            final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            final List<Field> fields = root.getSchema().getFields();
+            assertEquals(expectedFieldnames.length, fields.size());
+            for (int i = 0; i < fields.size(); i++) {
+                assertEquals(expectedFieldnames[i], fields.get(i).getName());
+                assertEquals(ArrowType.Utf8.INSTANCE, fields.get(i).getType());
+                assertTrue(fields.get(i).isNullable());
+            }
+            while (reader.loadNextBatch()) {
+                for (int row = 0; row < root.getRowCount(); row++) {
+                    final List<String> record = new ArrayList<>();
+                    for (FieldVector fieldVector : root.getFieldVectors()) {
+                        final VarCharVector vector = (VarCharVector) fieldVector;
+                        record.add(vector.isNull(row) ? null : vector.getObject(row).toString());
+                    }
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+
+    static int countOfBatches(byte[] bytes) throws IOException {
+        int count = 0;
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(bytes), allocator)) {
+            while (reader.loadNextBatch()) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+}
@@ -15,14 +15,23 @@
  */
 package org.huberb.datafaker.cli;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Random;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import net.datafaker.Faker;
 import org.huberb.datafaker.cli.DataFormatProcessor.ExpressionInternal;
 import org.huberb.datafaker.cli.DataFormatProcessor.FormatEnum;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -147,6 +156,18 @@ public class DataFormatProcessorTest {
         assertTrue(!result3.isBlank(), "" + result3);
     }
 
+    /**
+     * Test of format method, of class DataFormatProcessor.
+     */
+    @Test
+    public void testFormatNdjson() {
+        instance = new DataFormatProcessor(faker);
+        instance.addExpressionsFromStringList(Arrays.asList("#{Name.fullName", "#{Address.fullAddress}"));
+        String result3 = instance.formatNdjson(Collections.emptyMap());
+        assertEquals(3, result3.split("\n", -1).length - 1, "" + result3);
+        assertTrue(result3.lines().allMatch(l -> l.startsWith("{\"") && l.endsWith("}")), "" + result3);
+    }
+
     /**
      * Test of format method, of class DataFormatProcessor.
      */
@@ -184,7 +205,7 @@ public class DataFormatProcessorTest {
      * Test of format method, of class DataFormatProcessor.
      */
     @ParameterizedTest
-    @EnumSource()
+    @EnumSource(mode = EnumSource.Mode.EXCLUDE, names = {"arrow", "pgcopybinary"})
     public void testFormatAllFormatEnumValues(FormatEnum formatEnum) {
         instance = new DataFormatProcessor(faker);
         instance.addExpressionsFromStringList(Arrays.asList("#{Name.fullName", "#{Address.fullAddress}"));
@@ -193,4 +214,188 @@ public class DataFormatProcessorTest {
         assertTrue(!result1.isBlank(), "" + result1);
     }
 
+    /**
+     * Test of format method writing to a writer, of class DataFormatProcessor.
+     *
+     * @param formatEnum
+     * @throws IOException
+     */
+    @ParameterizedTest
+    @EnumSource(mode = EnumSource.Mode.EXCLUDE, names = {"arrow", "pgcopybinary"})
+    public void testFormatToWriterAllFormatEnumValues(FormatEnum formatEnum) throws IOException {
+        final DataFormatProcessor instance1 = new DataFormatProcessor(new Faker(Locale.ENGLISH, new Random(4711L)), 7);
+        instance1.addExpressionsFromStringList(Arrays.asList("#{Name.fullName}", "#{Address.fullAddress}"));
+        final String result1 = instance1.format(formatEnum, Collections.emptyMap());
+
+        final DataFormatProcessor instance2 = new DataFormatProcessor(new Faker(Locale.ENGLISH, new Random(4711L)), 7);
+        instance2.addExpressionsFromStringList(Arrays.asList("#{Name.fullName}", "#{Address.fullAddress}"));
+        final StringWriter sw = new StringWriter();
+        instance2.format(formatEnum, Collections.emptyMap(), sw);
+
+        assertTrue(!result1.isBlank(), "" + result1);
+        assertEquals(result1, sw.toString());
+    }
+
+    /**
+     * Test of seed method, of class DataFormatProcessor.
+     * <p>
+     * Seeded records do not depend on the number of threads.
+     *
+     * @param formatEnum
+     */
+    @ParameterizedTest
+    @EnumSource(mode = EnumSource.Mode.EXCLUDE, names = {"arrow", "pgcopybinary"})
+    public void testFormatSeededThreads(FormatEnum formatEnum) {
+        final Function<Integer, String> formatWithThreads = (threads) -> {
+            return new DataFormatProcessor(Adapters.FakerFactory.createFakerFromLocale(Locale.ENGLISH, 4711L), 2345)
+                    .threads(threads)
+                    .seed(4711L)
+                    .addExpressionsFromStringList(Arrays.asList("#{Name.fullName}", "#{Address.fullAddress}"))
+                    .format(formatEnum, Collections.emptyMap());
+        };
+        final String result1 = formatWithThreads.apply(1);
+        assertEquals(result1, formatWithThreads.apply(1));
+        assertEquals(result1, formatWithThreads.apply(2));
+        assertEquals(result1, formatWithThreads.apply(3));
+    }
+
+    /**
+     * Test of fakerPool method, of class DataFormatProcessor.
+     * <p>
+     * Threads evaluating records in parallel borrow their fakers, and give
+     * them back.
+     */
+    @Test
+    public void testFormatThreads_faker_pool() {
+        final Adapters.FakerPool fakerPool = new Adapters.FakerPool(8);
+        final Function<Integer, String> formatWithThreads = (threads) -> {
+            return new DataFormatProcessor(Adapters.FakerFactory.createFakerFromLocale(Locale.ENGLISH, 4711L), 3456)
+                    .threads(threads)
+                    .seed(4711L)
+                    .fakerPool(fakerPool)
+                    .addExpressionsFromStringList(Arrays.asList("#{Name.fullName}", "#{Address.fullAddress}"))
+                    .format(FormatEnum.csv, Collections.emptyMap());
+        };
+        final String expected = formatWithThreads.apply(1);
+        assertEquals(0, fakerPool.size());
+        assertEquals(expected, formatWithThreads.apply(3));
+        final int countOfIdle = fakerPool.countOfIdle(Locale.ENGLISH);
+        assertTrue(countOfIdle >= 1 && countOfIdle <= 3, "" + countOfIdle);
+        assertEquals(expected, formatWithThreads.apply(3));
+        assertTrue(fakerPool.countOfIdle(Locale.ENGLISH) <= 3);
+    }
+
+    /**
+     * Test of seed method, of class DataFormatProcessor.
+     * <p>
+     * A faker using the shared random instance is not seeded, seeded records
+     * equal the records of a faker using a random instance of its own.
+     */
+    @Test
+    public void testFormatSeeded_shared_random_faker() {
+        final Function<Faker, DataFormatProcessor> createInstance = (f) -> {
+            return new DataFormatProcessor(f, 2345)
+                    .seed(4711L)
+                    .addExpressionsFromStringList(Arrays.asList("#{Name.fullName}", "#{Address.fullAddress}"));
+        };
+        final String expected = createInstance.apply(Adapters.FakerFactory.createFakerFromLocale(Locale.ENGLISH, 4711L))
+                .format(FormatEnum.csv, Collections.emptyMap());
+
+        final Faker sharedRandomFaker = new Faker(Locale.ENGLISH);
+        final Random sharedRandom = sharedRandomFaker.random().getRandomInternal();
+        sharedRandom.setSeed(42L);
+        final DataFormatProcessor instance = createInstance.apply(sharedRandomFaker);
+        assertEquals(expected, instance.format(FormatEnum.csv, Collections.emptyMap()));
+        // the shared random instance is not seeded
+        assertEquals(new Random(42L).nextLong(), sharedRandom.nextLong());
+    }
+
+    /**
+     * Test of seed method, of class DataFormatProcessor.
+     * <p>
+     * Expressions bound to a faker using the shared random instance cannot be
+     * seeded.
+     */
+    @Test
+    public void testFormatSeeded_shared_random_faker_expressions() {
+        final Faker sharedRandomFaker = new Faker(Locale.ENGLISH);
+        final DataFormatProcessor instance = new DataFormatProcessor(sharedRandomFaker, 7)
+                .seed(4711L)
+                .addExpressionsFromExpressionInternalList(Arrays.asList(
+                        new ExpressionInternal("name", () -> sharedRandomFaker.name().fullName())));
+        assertThrows(IllegalStateException.class, () -> instance.format(FormatEnum.csv, Collections.emptyMap()));
+    }
+
+    /**
+     * Test of formatShards method, of class DataFormatProcessor.
+     * <p>
+     * Each shard has its own header, seeded records of all shards equal the
+     * records of a single output.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testFormatShardsSeeded() throws IOException {
+        final Function<Integer, DataFormatProcessor> createInstance = (threads) -> {
+            return new DataFormatProcessor(Adapters.FakerFactory.createFakerFromLocale(Locale.ENGLISH, 4711L), 2345)
+                    .threads(threads)
+                    .seed(4711L)
+                    .addExpressionsFromStringList(Arrays.asList("#{Name.fullName}", "#{Address.fullAddress}"));
+        };
+        final List<String> expected = createInstance.apply(1).format(FormatEnum.csv, Collections.emptyMap()).lines()
+                .collect(Collectors.toList());
+        final String header = expected.get(0);
+
+        for (int workers : new int[]{1, 3}) {
+            final List<StringWriter> shardWriters = new ArrayList<>();
+            final int shards = 4;
+            for (int i = 0; i < shards; i++) {
+                shardWriters.add(new StringWriter());
+            }
+            createInstance.apply(1).formatShards(FormatEnum.csv, Collections.emptyMap(), shards, workers, shardWriters::get);
+
+            final List<String> result = new ArrayList<>();
+            result.add(header);
+            for (StringWriter sw : shardWriters) {
+                final List<String> lines = sw.toString().lines().collect(Collectors.toList());
+                assertEquals(header, lines.get(0), "workers " + workers);
+                result.addAll(lines.subList(1, lines.size()));
+            }
+            assertEquals(expected, result, "workers " + workers);
+        }
+    }
+
+    /**
+     * Test of formatShards method, of class DataFormatProcessor.
+     */
+    @Test
+    public void testFormatShardsUnlimited() {
+        final DataFormatProcessor unlimited = new DataFormatProcessor(faker, DataFormatProcessor.UNLIMITED)
+                .addExpressionsFromStringList(Arrays.asList("#{Name.fullName}"));
+        assertThrows(IllegalArgumentException.class,
+                () -> unlimited.formatShards(FormatEnum.csv, Collections.emptyMap(), 2, 2, shard -> Writer.nullWriter()));
+    }
+
+    /**
+     * Test of format method, of class DataFormatProcessor.
+     * <p>
+     * Binary formats are written to a byte channel, but cannot be formatted
+     * as string.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testFormatBinary() throws IOException {
+        instance = new DataFormatProcessor(faker, 7);
+        instance.addExpressionsFromStringList(Arrays.asList("#{Name.fullName}", "#{Address.fullAddress}"));
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (Writer w = OutputWriters.newWriter(baos)) {
+            instance.format(FormatEnum.arrow, Collections.emptyMap(), w);
+        }
+        assertTrue(baos.size() > 0);
+
+        assertThrows(IllegalArgumentException.class, () -> instance.format(FormatEnum.arrow, Collections.emptyMap()));
+        assertThrows(IOException.class, () -> instance.format(FormatEnum.arrow, Collections.emptyMap(), new StringWriter()));
+    }
+
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatEnum;
+import org.huberb.datafaker.cli.DatafakerCli.AvailableModes;
+import org.huberb.datafaker.cli.DatafakerCli.DataModes;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Smoke tests of the native-image binary.
+ * <p>
+ * Run by the maven profile native, the system property native.binary defines
+ * the binary.
+ *
+ * @author berni3
+ */
+@EnabledIfSystemProperty(named = "native.binary", matches = ".+")
+public class DatafakerCliNativeIT {
+
+    @ParameterizedTest
+    @EnumSource(AvailableModes.class)
+    public void testAvailableModes(AvailableModes availableModes) throws Exception {
+        final String output = run("-a", availableModes.name());
+        assertFalse(output.isBlank(), availableModes.name());
+    }
+
+    @ParameterizedTest
+    @EnumSource(FormatEnum.class)
+    public void testFormat_sample(FormatEnum formatEnum) throws Exception {
+        final String output = run("-f", formatEnum.name(), "-c", "3");
+        assertFalse(output.isBlank(), formatEnum.name());
+    }
+
+    @ParameterizedTest
+    @EnumSource(FormatEnum.class)
+    public void testFormat_expression(FormatEnum formatEnum) throws Exception {
+        final String output = run("-f", formatEnum.name(), "-c", "3",
+                "-e", DataModes.expression.name(), "#{Name.fullName}", "#{numerify '##'}");
+        assertFalse(output.isBlank(), formatEnum.name());
+    }
+
+    @ParameterizedTest
+    @EnumSource(FormatEnum.class)
+    public void testFormat_sampleProvider(FormatEnum formatEnum) throws Exception {
+        final String output = run("-f", formatEnum.name(), "-c", "3",
+                "-e", DataModes.sampleProvider.name(), "Name");
+        assertTrue(output.contains("fullName"), output);
+    }
+
+    private String run(String... args) throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<>();
+        command.add(System.getProperty("native.binary"));
+        command.addAll(Arrays.asList(args));
+        final Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (InputStream is = process.getInputStream()) {
+            is.transferTo(baos);
+        }
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS), "" + command);
+        assertEquals(0, process.exitValue(), "" + command);
+        return baos.toString(StandardCharsets.UTF_8);
+    }
+}
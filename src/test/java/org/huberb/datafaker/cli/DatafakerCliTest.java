@@ -15,23 +15,34 @@
  */
 package org.huberb.datafaker.cli;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatEnum;
 import org.huberb.datafaker.cli.DatafakerCli.AvailableModes;
 import org.huberb.datafaker.cli.DatafakerCli.DataModes;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import picocli.CommandLine;
 
 /**
@@ -152,6 +163,86 @@ public class DatafakerCliTest {
         );
     }
 
+    /**
+     * Test of main method, of class DatafakerCli.
+     *
+     * @param dataModes
+     * @throws java.io.IOException
+     */
+    @ParameterizedTest
+    @EnumSource(value = DataModes.class)
+    public void testMain_threads(DataModes dataModes) throws IOException {
+        String m = String.format("dataModes: %s", dataModes);
+        String[] resultsOutErr = new Invocation()
+                .instance(new DatafakerCli())
+                .args("--expression=" + dataModes.name(),
+                        "--count=" + 2500,
+                        "--threads=" + 3,
+                        "--format=txt",
+                        "--locale=en-US",
+                        dataModes == DataModes.sampleProvider ? "Name" : "#{Name.fullName}"
+                )
+                .invoke();
+        String swOut = resultsOutErr[0];
+        String swErr = resultsOutErr[1];
+
+        assertEquals("", swErr, m);
+        long nonEmptyLines = swOut.lines().filter(l -> !l.isEmpty()).count();
+        assertTrue(nonEmptyLines > 0, m);
+        assertEquals(0, nonEmptyLines % 2500, m);
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Option --threads rejects values less than 1, or greater than the
+     * maximum.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "-1", "1025"})
+    public void testMain_threads_invalid(String threads) throws IOException {
+        CommandLine cmd = new CommandLine(new DatafakerCli());
+        try (StringWriter swErr = new StringWriter(); StringWriter swOut = new StringWriter()) {
+            try (PrintWriter err = new PrintWriter(swErr); PrintWriter out = new PrintWriter(swOut)) {
+                cmd.setErr(err);
+                cmd.setOut(out);
+                int exitCode = cmd.execute("--threads=" + threads);
+                assertEquals(2, exitCode);
+            }
+            assertTrue(swErr.toString().contains("Option --threads requires a value of 1 to 1024"), swErr.toString());
+        }
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Seeded results do not depend on the number of threads.
+     *
+     * @param dataModes
+     * @throws java.io.IOException
+     */
+    @ParameterizedTest
+    @EnumSource(value = DataModes.class)
+    public void testMain_seed_threads(DataModes dataModes) throws IOException {
+        String m = String.format("dataModes: %s", dataModes);
+        String[] resultsOutErr = new String[3];
+        for (int threads = 1; threads <= 3; threads++) {
+            resultsOutErr[threads - 1] = new Invocation()
+                    .instance(new DatafakerCli())
+                    .args("--expression=" + dataModes.name(),
+                            "--count=" + 2100,
+                            "--threads=" + threads,
+                            "--seed=" + 4711,
+                            "--locale=en-US",
+                            dataModes == DataModes.sampleProvider ? "Name" : "#{Name.fullName}"
+                    )
+                    .invoke()[0];
+        }
+        assertFalse(resultsOutErr[0].isBlank(), m);
+        assertEquals(resultsOutErr[0], resultsOutErr[1], m);
+        assertEquals(resultsOutErr[0], resultsOutErr[2], m);
+    }
+
     /**
      * Test of main method, of class DatafakerCli.
      *
@@ -191,6 +282,307 @@ public class DatafakerCliTest {
         );
     }
 
+    /**
+     * Test of main method, of class DatafakerCli.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testMain_count_greater_10000() throws IOException {
+        final int count = 12345;
+        String[] resultsOutErr = new Invocation()
+                .instance(new DatafakerCli())
+                .args("--expression=expression",
+                        "--count=" + count,
+                        "--format-parameter=header=false",
+                        "#{numerify '##'}"
+                )
+                .invoke();
+        String swOut = resultsOutErr[0];
+        String swErr = resultsOutErr[1];
+
+        assertEquals("", swErr);
+        long lines = swOut.lines()
+                .filter(l -> l.matches("\"\\d\\d\""))
+                .count();
+        assertEquals(count, lines);
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Writing unlimited results stops if the consumer closes the output.
+     */
+    @Test
+    public void testMain_unlimited_stops_when_output_closed() {
+        final Writer closingWriter = new Writer() {
+            final int maxChars = 100_000;
+            int chars = 0;
+
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                chars += len;
+                if (chars > maxChars) {
+                    throw new IOException("Broken pipe");
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            CommandLine cmd = new CommandLine(new DatafakerCli());
+            try (StringWriter swErr = new StringWriter();
+                    PrintWriter err = new PrintWriter(swErr);
+                    PrintWriter out = new PrintWriter(closingWriter)) {
+                cmd.setErr(err);
+                cmd.setOut(out);
+                int exitCode = cmd.execute("--expression=expression",
+                        "--unlimited",
+                        "#{numerify '########'}");
+                assertEquals(0, exitCode);
+                assertEquals("", swErr.toString());
+            }
+        });
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Writing unlimited results of binary formats to the standard output
+     * stops if the consumer closes the output.
+     */
+    @ParameterizedTest
+    @EnumSource(value = FormatEnum.class, names = {"arrow", "pgcopybinary"})
+    public void testMain_unlimited_binary_stops_when_output_closed(FormatEnum formatEnum) {
+        final OutputStream closingStream = new OutputStream() {
+            final int maxBytes = 100_000;
+            int bytes = 0;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                bytes += len;
+                if (bytes > maxBytes) {
+                    throw new IOException("Broken pipe");
+                }
+            }
+        };
+        final PrintStream originalOut = System.out;
+        try {
+            System.setOut(new PrintStream(closingStream, false));
+            assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+                String[] resultsOutErr = new Invocation()
+                        .instance(new DatafakerCli())
+                        .args("--expression=expression",
+                                "--unlimited",
+                                "--format=" + formatEnum.name(),
+                                "#{numerify '########'}")
+                        .invoke();
+                assertEquals("", resultsOutErr[1]);
+            });
+        } finally {
+            System.setOut(originalOut);
+        }
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Format ndjson writes one json object per line, without a trailing empty
+     * line.
+     */
+    @Test
+    public void testMain_ndjson() throws IOException {
+        String[] resultsOutErr = new Invocation()
+                .instance(new DatafakerCli())
+                .args("--expression=expression",
+                        "--count=5",
+                        "--format=ndjson",
+                        "#{numerify '##'}")
+                .invoke();
+        String swOut = resultsOutErr[0];
+        assertEquals("", resultsOutErr[1]);
+        assertEquals(5, swOut.lines().filter(l -> l.matches("\\{\"numerify\":\"\\d\\d\"\\}")).count(), swOut);
+        assertTrue(swOut.endsWith("}\n"), swOut);
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Format pgcopy writes tab separated lines, without a trailing empty line.
+     */
+    @Test
+    public void testMain_pgcopy() throws IOException {
+        String[] resultsOutErr = new Invocation()
+                .instance(new DatafakerCli())
+                .args("--expression=expression",
+                        "--count=5",
+                        "--format=pgcopy",
+                        "#{numerify '##'}", "#{numerify '###'}")
+                .invoke();
+        String swOut = resultsOutErr[0];
+        assertEquals("", resultsOutErr[1]);
+        assertEquals(5, swOut.lines().filter(l -> l.matches("\\d\\d\t\\d\\d\\d")).count(), swOut);
+        assertTrue(swOut.endsWith("\n") && !swOut.endsWith("\n\n"), swOut);
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Option --jobs runs the jobs of a yaml file, and writes a summary.
+     */
+    @Test
+    public void testMain_jobs(@TempDir Path tempDir) throws IOException {
+        final Path jobsPath = tempDir.resolve("jobs.yaml");
+        Files.writeString(jobsPath, JobsRunnerTest.jobsYaml(tempDir));
+        String[] resultsOutErr = new Invocation()
+                .instance(new DatafakerCli())
+                .args("--jobs", jobsPath.toString())
+                .invoke();
+        String swOut = resultsOutErr[0];
+        assertTrue(swOut.contains("3 jobs, 0 failed"), swOut);
+        assertTrue(Files.exists(tempDir.resolve("names.csv")));
+        assertTrue(Files.exists(tempDir.resolve("cities.ndjson")));
+        assertTrue(Files.exists(tempDir.resolve("english.csv.gz")));
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Option --jdbc-url loads the results into a database table.
+     */
+    @Test
+    public void testMain_jdbc_url() throws IOException, java.sql.SQLException {
+        final String url = JdbcSinkTest.newDatabaseUrl();
+        String[] resultsOutErr = new Invocation()
+                .instance(new DatafakerCli())
+                .args("--expression=expression",
+                        "--count=1234",
+                        "--jdbc-url", url,
+                        "--jdbc-parameter=table=NUMBERS,batch=100,connections=2",
+                        "#{numerify '##'}")
+                .invoke();
+        assertEquals("", resultsOutErr[0]);
+        assertEquals(1234, JdbcSinkTest.countRows(url, "NUMBERS"));
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Invalid jdbc parameters are reported as usage error.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"table=a;b", "batch=abc", "columnType=INT);"})
+    public void testMain_jdbc_parameter_invalid(String jdbcParameter) throws IOException {
+        CommandLine cmd = new CommandLine(new DatafakerCli());
+        try (StringWriter swErr = new StringWriter(); StringWriter swOut = new StringWriter()) {
+            try (PrintWriter err = new PrintWriter(swErr); PrintWriter out = new PrintWriter(swOut)) {
+                cmd.setErr(err);
+                cmd.setOut(out);
+                int exitCode = cmd.execute("--jdbc-url", JdbcSinkTest.newDatabaseUrl(), "--jdbc-parameter=" + jdbcParameter);
+                assertEquals(2, exitCode);
+            }
+            assertTrue(swErr.toString().contains("Invalid option --jdbc-parameter"), swErr.toString());
+        }
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Output files ending with .gz are compressed.
+     */
+    @Test
+    public void testMain_output_file_gz(@TempDir Path tempDir) throws IOException {
+        final Path outputPath = tempDir.resolve("out.csv.gz");
+        new Invocation()
+                .instance(new DatafakerCli())
+                .args("--expression=expression",
+                        "--count=5000",
+                        "--format-parameter=header=false",
+                        "-o", outputPath.toString(),
+                        "#{numerify '##'}")
+                .invoke();
+        final String content = OutputWritersTest.gunzip(Files.readAllBytes(outputPath));
+        assertEquals(5000, content.lines().filter(l -> l.matches("\"\\d\\d\"")).count());
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Option --compress compresses the standard output.
+     */
+    @Test
+    public void testMain_compress_stdout() throws IOException {
+        final PrintStream originalOut = System.out;
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(baos, true));
+            new Invocation()
+                    .instance(new DatafakerCli())
+                    .args("--expression=expression",
+                            "--count=10",
+                            "--format-parameter=header=false",
+                            "--compress",
+                            "#{numerify '##'}")
+                    .invoke();
+        } finally {
+            System.setOut(originalOut);
+        }
+        final String content = OutputWritersTest.gunzip(baos.toByteArray());
+        assertEquals(10, content.lines().filter(l -> l.matches("\"\\d\\d\"")).count());
+    }
+
+    /**
+     * Test of main method, of class DatafakerCli.
+     * <p>
+     * Option --shards writes the results to several files, each with its own
+     * header.
+     */
+    @Test
+    public void testMain_shards(@TempDir Path tempDir) throws IOException {
+        new Invocation()
+                .instance(new DatafakerCli())
+                .args("--expression=expression",
+                        "--count=1001",
+                        "--shards=3",
+                        "-o", tempDir.resolve("out.csv").toString(),
+                        "#{numerify '##'}")
+                .invoke();
+        long records = 0;
+        for (int shard = 0; shard < 3; shard++) {
+            final List<String> lines = Files.readAllLines(tempDir.resolve(String.format("out-%04d.csv", shard)));
+            assertEquals("\"numerify\"", lines.get(0));
+            records += lines.stream().filter(l -> l.matches("\"\\d\\d\"")).count();
+        }
+        assertEquals(1001, records);
+    }
+
+    /**
+     * Test of shardWorkers method, of class DatafakerCli.
+     * <p>
+     * Shards are written by the number of threads of option --threads, by
+     * default by the number of available processors.
+     */
+    @Test
+    public void testShardWorkers() {
+        final DatafakerCli withThreads = new DatafakerCli();
+        new CommandLine(withThreads).parseArgs("--shards=8", "--threads=2");
+        assertEquals(2, withThreads.shardWorkers());
+        final DatafakerCli withoutThreads = new DatafakerCli();
+        new CommandLine(withoutThreads).parseArgs("--shards=8");
+        assertEquals(Runtime.getRuntime().availableProcessors(), withoutThreads.shardWorkers());
+    }
+
     /**
      * Convenience wrapper invoking {@link DatafakerCli} with command line
      * arguments.
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatEnum;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine;
+
+/**
+ * Test {@link DatafakerServer}.
+ *
+ * @author berni3
+ */
+public class DatafakerServerTest {
+
+    DatafakerServer instance;
+    HttpClient httpClient;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        instance = new DatafakerServer(InetAddress.getLoopbackAddress(), 0, 100_000L, 2);
+        instance.start();
+        httpClient = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        instance.stop();
+    }
+
+    HttpResponse<String> get(String query) throws IOException, InterruptedException {
+        final URI uri = URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + instance.port() + "/?" + query);
+        return httpClient.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testGet_expression() throws IOException, InterruptedException {
+        final HttpResponse<String> response = get("count=5&format=ndjson&expression=expression&arg="
+                + encode("n:#{numerify '##'}"));
+        assertEquals(200, response.statusCode());
+        assertEquals("application/x-ndjson; charset=utf-8", response.headers().firstValue("Content-Type").orElse(""));
+        assertEquals(5, response.body().lines().filter(l -> l.matches("\\{\"n\":\"\\d\\d\"\\}")).count(), response.body());
+    }
+
+    /**
+     * A seeded request returns the records of the same options formatted by
+     * {@link DataFormatProcessor}, using a reused faker.
+     */
+    @Test
+    public void testGet_seeded_reuses_faker() throws IOException, InterruptedException {
+        final String query = "locale=de-AT&count=1234&seed=4711&format=csv&expression=expression&arg="
+                + encode("#{Name.fullName}") + "&arg=" + encode("#{Address.city}");
+        final String expected = new DataFormatProcessor(Adapters.FakerFactory.createFakerFromLocale("de-AT", 4711L), 1234)
+                .seed(4711L)
+                .addExpressionsFromStringList(Arrays.asList("#{Name.fullName}", "#{Address.city}"))
+                .format(FormatEnum.csv, Collections.emptyMap());
+
+        assertEquals(expected, get(query).body());
+        final int countOfIdleFakers = instance.countOfIdleFakers(Locale.forLanguageTag("de-AT"));
+        assertTrue(countOfIdleFakers >= 1);
+        assertEquals(expected, get(query).body());
+        assertEquals(countOfIdleFakers, instance.countOfIdleFakers(Locale.forLanguageTag("de-AT")));
+    }
+
+    /**
+     * The fakers of the threads of a request are reused by subsequent
+     * requests.
+     */
+    @Test
+    public void testGet_threads_reuses_worker_fakers() throws IOException, InterruptedException {
+        final String query = "locale=de&count=3456&threads=2&seed=4711&format=csv";
+        final String body = get(query).body();
+        assertEquals(3456 + 1, body.lines().count());
+        final int countOfIdleFakers = instance.countOfIdleFakers(Locale.GERMAN);
+        assertTrue(countOfIdleFakers >= 2, "" + countOfIdleFakers);
+        assertEquals(body, get(query).body());
+        assertEquals(countOfIdleFakers, instance.countOfIdleFakers(Locale.GERMAN));
+    }
+
+    @Test
+    public void testGet_unsupported_parameter() throws IOException, InterruptedException {
+        final HttpResponse<String> response = get("output-file=/tmp/x.csv");
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("output-file"), response.body());
+        assertEquals(400, get("count=abc").statusCode());
+        assertEquals(400, get("unlimited").statusCode());
+    }
+
+    /**
+     * Invalid format parameters are rejected before sending the status.
+     */
+    @Test
+    public void testGet_invalid_format_parameter() throws IOException, InterruptedException {
+        final HttpResponse<String> response = get("format=sql&format-parameter=" + encode("sqlDialect=FOO"));
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("FOO"), response.body());
+        assertEquals(400, get("format=arrow&format-parameter=" + encode("batch=abc")).statusCode());
+        // the faker is given back
+        assertEquals(200, get("format=sql").statusCode());
+    }
+
+    /**
+     * Failing expressions are rejected before sending the status.
+     */
+    @Test
+    public void testGet_failing_expression() throws IOException, InterruptedException {
+        final HttpResponse<String> response = get("count=5&expression=expression&arg=" + encode("#{Foo.bar}"));
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("Cannot evaluate records"), response.body());
+        assertEquals(400, get("count=5&threads=2&expression=expression&arg=" + encode("#{Foo.bar}")).statusCode());
+        // the faker is given back
+        assertEquals(200, get("count=5").statusCode());
+    }
+
+    @Test
+    public void testGet_limits() throws IOException, InterruptedException {
+        assertEquals(200, get("count=100000&threads=2").statusCode());
+        final HttpResponse<String> response = get("count=100001");
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("100000"), response.body());
+        assertEquals(400, get("threads=3").statusCode());
+        assertEquals(400, get("threads=0").statusCode());
+    }
+
+    @Test
+    public void testAddress() {
+        assertTrue(instance.address().getAddress().isLoopbackAddress(), "" + instance.address());
+    }
+
+    @Test
+    public void testParseQuery() {
+        final DatafakerCli datafakerCli = DatafakerServer.parseQuery("locale=de&format=json&format-parameter=a%3D1%2Cb%3D2");
+        assertEquals(Locale.GERMAN, datafakerCli.theLocale());
+        assertEquals(FormatEnum.json, datafakerCli.theFormatEnum());
+        assertEquals("1", datafakerCli.theFormatParameters().get("a"));
+        assertEquals("2", datafakerCli.theFormatParameters().get("b"));
+
+        assertEquals(FormatEnum.csv, DatafakerServer.parseQuery(null).theFormatEnum());
+        assertThrows(IllegalArgumentException.class, () -> DatafakerServer.parseQuery("serve=8080"));
+        assertThrows(IllegalArgumentException.class, () -> DatafakerServer.parseQuery("bind=0.0.0.0"));
+        assertThrows(IllegalArgumentException.class, () -> DatafakerServer.parseQuery("unlimited"));
+        assertThrows(CommandLine.ParameterException.class, () -> DatafakerServer.parseQuery("format=unknown"));
+    }
+
+    @Test
+    public void testContentType() {
+        for (FormatEnum formatEnum : FormatEnum.values()) {
+            assertTrue(!DatafakerServer.contentType(formatEnum).isEmpty(), formatEnum.name());
+        }
+        assertEquals("text/csv; charset=utf-8", DatafakerServer.contentType(FormatEnum.csv));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import net.datafaker.Faker;
+import net.datafaker.providers.base.BaseProviders;
+import net.datafaker.providers.base.Name;
+import org.huberb.datafaker.cli.ExpressionCompiler.CompiledExpression;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ *
+ * @author berni3
+ */
+public class ExpressionCompilerTest {
+
+    static Stream<Arguments> testCompile() {
+        return Stream.of(
+                Arguments.of("#{Name.fullName}", 1, 0),
+                Arguments.of("#{NAME.FULLNAME}", 1, 0),
+                Arguments.of("#{Name.first_name}", 1, 0),
+                Arguments.of("Hi #{Name.firstName}!", 1, 0),
+                Arguments.of("#{Address.city} - #{Address.zipCode}", 2, 0),
+                Arguments.of("#{Bool.bool}", 1, 0),
+                Arguments.of("#{Number.randomDigit}", 1, 0),
+                Arguments.of("abc", 0, 0),
+                Arguments.of("#{numerify '##'}", 0, 1),
+                Arguments.of("#{regexify '[a-z]{3}'}", 0, 1),
+                Arguments.of("#{Name.fullName} #{numerify '##'}", 1, 1),
+                Arguments.of("#{Name.fullName", 0, 1),
+                Arguments.of("x#{}y", 0, 1)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void testCompile(String expression, int expectedProviderMethods, int expectedFakerExpressions) {
+        final CompiledExpression compiledExpression = ExpressionCompiler.compile(expression);
+        assertEquals(expression, compiledExpression.getExpression());
+        assertEquals(expectedProviderMethods, compiledExpression.getCountOfProviderMethods());
+        assertEquals(expectedFakerExpressions, compiledExpression.getCountOfFakerExpressions());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "#{Name.fullName}",
+        "#{NAME.FULLNAME}",
+        "#{Name.first_name}",
+        "Hi #{Name.firstName}!",
+        "#{Address.city} - #{Address.zipCode}",
+        "#{Bool.bool}",
+        "#{Number.randomDigit}",
+        "#{Internet.emailAddress}",
+        "abc",
+        "#{numerify '##'}",
+        "#{Name.fullName} #{regexify '[a-z]{3}'} #{Address.streetAddress}",
+        "#{Name.fullName",
+        "x#{}y",})
+    public void testBind_evaluates_like_faker_expression(String expression) {
+        final Faker expectedFaker = new Faker(Locale.ENGLISH, new Random(4711L));
+        final Faker faker = new Faker(Locale.ENGLISH, new Random(4711L));
+        final Supplier<String> supplier = ExpressionCompiler.compile(expression).bind(faker);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(expectedFaker.expression(expression), supplier.get(), expression);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"#{Name.username}", "Hi #{Name.username}!"})
+    public void testBind_null_provider_value_evaluates_like_faker_expression(String expression) {
+        final CompiledExpression compiledExpression = ExpressionCompiler.compile(expression);
+        assertEquals(1, compiledExpression.getCountOfProviderMethods());
+        final Faker faker = new NullUsernameFaker();
+        final RuntimeException expected = assertThrows(RuntimeException.class, () -> faker.expression(expression));
+        assertTrue(expected.getMessage().startsWith("Unable to resolve #{Name.username} directive"), expected.getMessage());
+        final Supplier<String> supplier = compiledExpression.bind(faker);
+        final RuntimeException actual = assertThrows(RuntimeException.class, supplier::get);
+        assertTrue(actual.getMessage().startsWith("Unable to resolve #{Name.username} directive"), actual.getMessage());
+    }
+
+    /**
+     * Faker whose {@link Name#username()} returns null.
+     */
+    public static class NullUsernameFaker extends Faker {
+
+        @Override
+        public Name name() {
+            return new NullUsername(this);
+        }
+    }
+
+    public static class NullUsername extends Name {
+
+        NullUsername(BaseProviders faker) {
+            super(faker);
+        }
+
+        @Override
+        public String username() {
+            return null;
+        }
+    }
+
+    @Test
+    public void testBind_lowercase_provider_is_left_to_datafaker() {
+        // datafaker resolves lowercase names as yaml keys
+        final CompiledExpression compiledExpression = ExpressionCompiler.compile("#{name.first_name}");
+        assertEquals(0, compiledExpression.getCountOfProviderMethods());
+        assertEquals(1, compiledExpression.getCountOfFakerExpressions());
+    }
+
+    @Test
+    public void testBind_unknown_method_fails_on_evaluation() {
+        final CompiledExpression compiledExpression = ExpressionCompiler.compile("#{Name.nonexist}");
+        assertEquals(0, compiledExpression.getCountOfProviderMethods());
+        final Supplier<String> supplier = compiledExpression.bind(new Faker());
+        assertThrows(RuntimeException.class, supplier::get);
+    }
+
+    @Test
+    public void testCompile_reuses_compiled_expression() {
+        final String expression = "Hello #{Name.firstName}, #{numerify '###'}";
+        assertSame(ExpressionCompiler.compile(expression), ExpressionCompiler.compile(expression));
+    }
+
+    @Test
+    public void testFindNoArgMethod() {
+        assertNotNull(ExpressionCompiler.findNoArgMethod(Faker.class, "name"));
+        assertNotNull(ExpressionCompiler.findNoArgMethod(Faker.class, "NAME"));
+        assertNull(ExpressionCompiler.findNoArgMethod(Faker.class, "doesNotExist"));
+        assertEquals("fullName", ExpressionCompiler.findNoArgMethod(net.datafaker.providers.base.Name.class, "full_name").getName());
+    }
+}
@@ -18,8 +18,14 @@ package org.huberb.datafaker.cli;
 import java.util.Locale;
 import net.datafaker.Faker;
 import org.huberb.datafaker.cli.Adapters.FakerFactory;
+import org.huberb.datafaker.cli.Adapters.FakerPool;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -52,4 +58,75 @@ public class FakerFactoryTest {
         assertEquals(expectedLocaleToString, fakerLocale.toString());
     }
 
+    @Test
+    public void testFakerPool_reuses_returned_faker() {
+        final FakerPool fakerPool = new FakerPool(4);
+        final Locale locale = Locale.forLanguageTag("de-AT");
+        final Faker faker1 = fakerPool.borrow(locale);
+        final Faker faker2 = fakerPool.borrow(locale);
+        // a borrowed faker is never borrowed twice
+        assertNotSame(faker1, faker2);
+        assertEquals(locale, faker1.getContext().getLocale());
+        fakerPool.giveBack(locale, faker1);
+        assertEquals(1, fakerPool.countOfIdle(locale));
+        assertSame(faker1, fakerPool.borrow(locale));
+        assertEquals(0, fakerPool.size());
+    }
+
+    @Test
+    public void testFakerPool_seeded() {
+        final FakerPool fakerPool = new FakerPool(4);
+        final Locale locale = Locale.GERMAN;
+        final String expected = FakerFactory.createFakerFromLocale(locale, 4711L).name().fullName();
+        final Faker faker = fakerPool.borrow(locale, 4711L);
+        assertEquals(expected, faker.name().fullName());
+        fakerPool.giveBack(locale, faker);
+        assertEquals(expected, fakerPool.borrow(locale, 4711L).name().fullName());
+    }
+
+    @Test
+    public void testOwnsRandom() {
+        assertFalse(FakerFactory.ownsRandom(FakerFactory.createFakerFromLocale(Locale.GERMAN)));
+        assertTrue(FakerFactory.ownsRandom(FakerFactory.createFakerFromLocale(Locale.GERMAN, 4711L)));
+        assertTrue(FakerFactory.ownsRandom(new FakerPool(4).borrow(Locale.GERMAN)));
+    }
+
+    @Test
+    public void testFakerPool_rejects_shared_random_faker() {
+        final FakerPool fakerPool = new FakerPool(4);
+        final Faker faker = FakerFactory.createFakerFromLocale(Locale.GERMAN);
+        assertThrows(IllegalArgumentException.class, () -> fakerPool.giveBack(Locale.GERMAN, faker));
+        assertEquals(0, fakerPool.size());
+    }
+
+    @Test
+    public void testFakerPool_evicts_least_recently_used() {
+        final FakerPool fakerPool = new FakerPool(2);
+        final Faker en = fakerPool.borrow(Locale.ENGLISH);
+        final Faker de = fakerPool.borrow(Locale.GERMAN);
+        final Faker fr = fakerPool.borrow(Locale.FRENCH);
+        fakerPool.giveBack(Locale.ENGLISH, en);
+        fakerPool.giveBack(Locale.GERMAN, de);
+        fakerPool.giveBack(Locale.FRENCH, fr);
+        assertEquals(2, fakerPool.size());
+        assertEquals(0, fakerPool.countOfIdle(Locale.ENGLISH));
+        assertEquals(1, fakerPool.countOfIdle(Locale.GERMAN));
+        assertEquals(1, fakerPool.countOfIdle(Locale.FRENCH));
+
+        // german is used recently, french is evicted
+        fakerPool.giveBack(Locale.GERMAN, fakerPool.borrow(Locale.GERMAN));
+        fakerPool.giveBack(Locale.ENGLISH, en);
+        assertEquals(2, fakerPool.size());
+        assertEquals(1, fakerPool.countOfIdle(Locale.ENGLISH));
+        assertEquals(1, fakerPool.countOfIdle(Locale.GERMAN));
+        assertEquals(0, fakerPool.countOfIdle(Locale.FRENCH));
+    }
+
+    @Test
+    public void testFakerPool_max_size_0() {
+        final FakerPool fakerPool = new FakerPool(0);
+        fakerPool.giveBack(Locale.ENGLISH, fakerPool.borrow(Locale.ENGLISH));
+        assertEquals(0, fakerPool.size());
+        assertSame(FakerFactory.sharedPool(), FakerFactory.sharedPool());
+    }
 }
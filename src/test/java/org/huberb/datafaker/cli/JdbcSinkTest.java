@@ -0,0 +1,247 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.huberb.datafaker.cli.JdbcSink.JdbcParameters;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test {@link JdbcSink} using an in-memory H2 database.
+ *
+ * @author berni3
+ */
+public class JdbcSinkTest {
+
+    static final AtomicInteger DATABASE_NUMBER = new AtomicInteger();
+
+    /**
+     * Return the url of a new in-memory database, kept open until the jvm
+     * exits.
+     */
+    static String newDatabaseUrl() {
+        return String.format("jdbc:h2:mem:jdbcsinktest%d;DB_CLOSE_DELAY=-1", DATABASE_NUMBER.incrementAndGet());
+    }
+
+    static DataFormatProcessor createDataFormatProcessor(long limit) {
+        return new DataFormatProcessor(Adapters.FakerFactory.createFakerFromLocale(Locale.ENGLISH, 4711L), limit)
+                .seed(4711L)
+                .addExpressionsFromStringList(Arrays.asList("name:#{Name.fullName}", "number:#{numerify '####'}"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3})
+    public void testLoad(int connections) throws IOException, SQLException {
+        final String url = newDatabaseUrl();
+        final JdbcSink instance = new JdbcSink(url, JdbcParameters.withMap(Map.of(
+                "batch", "100",
+                "commit", "250",
+                "connections", String.valueOf(connections))));
+        assertEquals(2345, instance.load(createDataFormatProcessor(2345)));
+
+        final List<String> expected = new ArrayList<>();
+        createDataFormatProcessor(2345).format(DataFormatProcessor.FormatEnum.ndjson, Collections.emptyMap())
+                .lines()
+                .forEach(expected::add);
+        Collections.sort(expected);
+        final List<String> result = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT \"name\", \"number\" FROM DATAFAKER_TABLE")) {
+            while (rs.next()) {
+                final StringBuilder sb = new StringBuilder();
+                sb.append("{\"name\":");
+                RecordWriters.appendJsonString(sb, rs.getString(1));
+                sb.append(",\"number\":");
+                RecordWriters.appendJsonString(sb, rs.getString(2));
+                sb.append("}");
+                result.add(sb.toString());
+            }
+        }
+        Collections.sort(result);
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testLoad_existing_table() throws IOException, SQLException {
+        final String url = newDatabaseUrl();
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE PERSONS (\"name\" VARCHAR(100), \"number\" VARCHAR(4), ID IDENTITY)");
+        }
+        final JdbcSink instance = new JdbcSink(url, JdbcParameters.withMap(Map.of("table", "PERSONS")));
+        instance.load(createDataFormatProcessor(10));
+        instance.load(createDataFormatProcessor(5));
+        assertEquals(15, countRows(url, "PERSONS"));
+    }
+
+    @Test
+    public void testLoad_failing_rolls_back() throws IOException, SQLException {
+        final String url = newDatabaseUrl();
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement()) {
+            // too short for the names
+            statement.execute("CREATE TABLE PERSONS (\"name\" VARCHAR(2), \"number\" VARCHAR(4))");
+        }
+        final JdbcSink instance = new JdbcSink(url, JdbcParameters.withMap(Map.of("table", "PERSONS", "batch", "10")));
+        assertThrows(IOException.class, () -> instance.load(createDataFormatProcessor(100)));
+        assertEquals(0, countRows(url, "PERSONS"));
+    }
+
+    @Test
+    public void testTableExists() throws SQLException {
+        final String url = newDatabaseUrl();
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE PERSONS (\"name\" VARCHAR(100))");
+            statement.execute("CREATE TABLE DATAFAKERXTABLE (\"name\" VARCHAR(100))");
+            assertTrue(new JdbcSink(url, JdbcParameters.withMap(Map.of("table", "persons"))).tableExists(connection));
+            assertTrue(new JdbcSink(url, JdbcParameters.withMap(Map.of("table", "public.Persons"))).tableExists(connection));
+            assertFalse(new JdbcSink(url, JdbcParameters.withMap(Map.of("table", "OTHER.PERSONS"))).tableExists(connection));
+            // '_' is no wildcard
+            assertFalse(new JdbcSink(url, JdbcParameters.withMap(Collections.emptyMap())).tableExists(connection));
+        }
+    }
+
+    @Test
+    public void testLoad_lower_case_table() throws IOException, SQLException {
+        final String url = newDatabaseUrl();
+        final JdbcSink instance = new JdbcSink(url, JdbcParameters.withMap(Map.of("table", "persons")));
+        instance.load(createDataFormatProcessor(10));
+        instance.load(createDataFormatProcessor(5));
+        assertEquals(15, countRows(url, "PERSONS"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "persons; DROP TABLE x", "a.b.c", "1table", "\"persons\""})
+    public void testJdbcParameters_invalid_table(String table) {
+        assertThrows(IllegalArgumentException.class, () -> JdbcParameters.withMap(Map.of("table", table)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"VARCHAR(100)); DROP TABLE X; --", "VARCHAR(100) NOT NULL", "INT, \"x\" INT", ""})
+    public void testJdbcParameters_invalid_columnType(String columnType) {
+        assertThrows(IllegalArgumentException.class, () -> JdbcParameters.withMap(Map.of("columnType", columnType)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"VARCHAR(100)", "DECIMAL(10,2)", "DECIMAL(10, 2)", "DOUBLE PRECISION", "INT8", "TEXT"})
+    public void testJdbcParameters_columnType(String columnType) {
+        assertEquals(columnType, JdbcParameters.withMap(Map.of("columnType", columnType)).columnType);
+    }
+
+    @Test
+    public void testQuotedIdentifier() throws SQLException {
+        assertEquals("\"name\"", JdbcSink.quotedIdentifier("\"", "name"));
+        assertEquals("\"a\"\"b\"", JdbcSink.quotedIdentifier("\"", "a\"b"));
+        assertEquals("`a``b`", JdbcSink.quotedIdentifier("`", "a`b"));
+        assertEquals("name", JdbcSink.quotedIdentifier("", "name"));
+        assertThrows(SQLException.class, () -> JdbcSink.quotedIdentifier("", "a b"));
+    }
+
+    /**
+     * Field names having quotes are loaded into columns of the same name.
+     */
+    @Test
+    public void testLoad_fieldname_with_quote() throws IOException, SQLException {
+        final String url = newDatabaseUrl();
+        final DataFormatProcessor dataFormatProcessor = new DataFormatProcessor(Adapters.FakerFactory.createFakerFromLocale(Locale.ENGLISH, 4711L), 10)
+                .addExpressionsFromStringList(Arrays.asList("a\") VARCHAR(1)); DROP TABLE X; --:#{Name.fullName}"));
+        final JdbcSink instance = new JdbcSink(url, JdbcParameters.withMap(Map.of("table", "PERSONS")));
+        assertEquals(10, instance.load(dataFormatProcessor));
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COUNT(\"a\"\") VARCHAR(1)); DROP TABLE X; --\") FROM PERSONS")) {
+            assertTrue(rs.next());
+            assertEquals(10, rs.getInt(1));
+        }
+    }
+
+    @Test
+    public void testLoad_passwordFile(@TempDir Path tempDir) throws IOException, SQLException {
+        final String url = newDatabaseUrl();
+        // the first connection creates the user
+        try (Connection connection = DriverManager.getConnection(url, "sa", "secret")) {
+            assertTrue(connection.isValid(1));
+        }
+        final Path passwordFile = tempDir.resolve("password");
+        Files.write(passwordFile, Arrays.asList("secret"));
+        final JdbcSink instance = new JdbcSink(url, JdbcParameters.withMap(Map.of(
+                "user", "sa", "passwordFile", passwordFile.toString())));
+        assertEquals(10, instance.load(createDataFormatProcessor(10)));
+
+        Files.write(passwordFile, Arrays.asList("wrong"));
+        assertThrows(IOException.class, () -> instance.load(createDataFormatProcessor(10)));
+    }
+
+    @Test
+    public void testPassword() throws IOException {
+        assertEquals(null, JdbcParameters.withMap(Collections.emptyMap()).password());
+        assertEquals("x", JdbcParameters.withMap(Map.of("password", "x")).password());
+        final String env = System.getenv().keySet().iterator().next();
+        assertEquals(System.getenv(env), JdbcParameters.withMap(Map.of("passwordEnv", env)).password());
+        assertThrows(IOException.class,
+                () -> JdbcParameters.withMap(Map.of("passwordEnv", "DATAFAKER_NOT_DEFINED_VARIABLE")).password());
+    }
+
+    @Test
+    public void testJdbcParameters() {
+        final JdbcParameters defaults = JdbcParameters.withMap(Collections.emptyMap());
+        assertEquals(null, defaults.user);
+        assertEquals("DATAFAKER_TABLE", defaults.table);
+        assertEquals("VARCHAR(1000)", defaults.columnType);
+        assertEquals(1000, defaults.batch);
+        assertEquals(10000, defaults.commit);
+        assertEquals(1, defaults.connections);
+
+        final JdbcParameters jdbcParameters = JdbcParameters.withMap(
+                new ParameterParser().parseToMap("user=sa,password=x=y,columnType=TEXT,connections=0"));
+        assertEquals("sa", jdbcParameters.user);
+        assertEquals("x=y", jdbcParameters.password);
+        assertEquals("TEXT", jdbcParameters.columnType);
+        assertEquals(1, jdbcParameters.connections);
+    }
+
+    static long countRows(String url, String table) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
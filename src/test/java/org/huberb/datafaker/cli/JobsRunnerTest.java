@@ -0,0 +1,287 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import net.datafaker.Faker;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatEnum;
+import org.huberb.datafaker.cli.JobsRunner.Job;
+import org.huberb.datafaker.cli.JobsRunner.JobResult;
+import org.huberb.datafaker.cli.JobsRunner.JobsFile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+/**
+ * Test {@link JobsRunner}.
+ *
+ * @author berni3
+ */
+public class JobsRunnerTest {
+
+    static String jobsYaml(Path dir) {
+        return "parallelism: 2\n"
+                + "defaults:\n"
+                + "  locale: de-AT\n"
+                + "  count: 1234\n"
+                + "  seed: 4711\n"
+                + "  expression: expression\n"
+                + "jobs:\n"
+                + "  - name: names\n"
+                + "    output-file: " + dir.resolve("names.csv") + "\n"
+                + "    format-parameter: {header: false}\n"
+                + "    args: ['#{Name.fullName}']\n"
+                + "  - name: cities\n"
+                + "    format: ndjson\n"
+                + "    output-file: " + dir.resolve("cities.ndjson") + "\n"
+                + "    args: ['city:#{Address.city}']\n"
+                + "  - name: english\n"
+                + "    locale: en\n"
+                + "    count: 10\n"
+                + "    output-file: " + dir.resolve("english.csv.gz") + "\n"
+                + "    args: ['#{Name.firstName}']\n";
+    }
+
+    static String format(String languageTag, long count, FormatEnum formatEnum, Map<String, String> m, String... expressions) {
+        return new DataFormatProcessor(Adapters.FakerFactory.createFakerFromLocale(languageTag, 4711L), count)
+                .seed(4711L)
+                .addExpressionsFromStringList(Arrays.asList(expressions))
+                .format(formatEnum, m);
+    }
+
+    @Test
+    public void testReadJobsFile(@TempDir Path tempDir) {
+        final JobsFile jobsFile = JobsRunner.readJobsFile(new StringReader(jobsYaml(tempDir)));
+        assertEquals(2, jobsFile.parallelism);
+        assertEquals(3, jobsFile.jobs.size());
+        assertEquals("names", jobsFile.jobs.get(0).name);
+        assertEquals(Locale.forLanguageTag("de-AT"), jobsFile.jobs.get(0).datafakerCli.theLocale());
+        assertEquals("false", jobsFile.jobs.get(0).datafakerCli.theFormatParameters().get("header"));
+        assertEquals(FormatEnum.ndjson, jobsFile.jobs.get(1).datafakerCli.theFormatEnum());
+        assertEquals(Locale.ENGLISH, jobsFile.jobs.get(2).datafakerCli.theLocale());
+    }
+
+    @Test
+    public void testReadJobsFile_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> JobsRunner.readJobsFile(new StringReader("- a\n- b\n")));
+        assertThrows(IllegalArgumentException.class, () -> JobsRunner.readJobsFile(new StringReader("jobs: {a: b}\n")));
+        assertThrows(IllegalArgumentException.class, () -> JobsRunner.readJobsFile(new StringReader("jobs: [a: : b\n")));
+        final IllegalArgumentException noOutput = assertThrows(IllegalArgumentException.class,
+                () -> JobsRunner.readJobsFile(new StringReader("jobs:\n  - name: x\n    count: 3\n")));
+        assertTrue(noOutput.getMessage().contains("output-file"), noOutput.getMessage());
+        final IllegalArgumentException unsupported = assertThrows(IllegalArgumentException.class,
+                () -> JobsRunner.readJobsFile(new StringReader("jobs:\n  - output-file: x.csv\n    serve: 8080\n")));
+        assertTrue(unsupported.getMessage().contains("serve"), unsupported.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> JobsRunner.readJobsFile(new StringReader("jobs:\n  - output-file: x.csv\n    count: abc\n")));
+    }
+
+    /**
+     * Parameter values having separators are passed as one parameter.
+     */
+    @Test
+    public void testReadJobsFile_parameter_values_escaped() {
+        final JobsFile jobsFile = JobsRunner.readJobsFile(new StringReader("jobs:\n"
+                + "  - name: decimals\n"
+                + "    jdbc-url: jdbc:h2:mem:x\n"
+                + "    jdbc-parameter: {columnType: 'DECIMAL(10,2)', user: 'a\\b', password: 'x=y,z'}\n"
+                + "  - name: csv\n"
+                + "    output-file: x.csv\n"
+                + "    format-parameter: {quote: ',', header: false}\n"));
+        final JdbcSink.JdbcParameters jdbcParameters = jobsFile.jobs.get(0).datafakerCli.theJdbcParameters();
+        assertEquals("DECIMAL(10,2)", jdbcParameters.columnType);
+        assertEquals("a\\b", jdbcParameters.user);
+        assertEquals("x=y,z", jdbcParameters.password);
+        assertEquals(Map.of("quote", ",", "header", "false"), jobsFile.jobs.get(1).datafakerCli.theFormatParameters());
+
+        assertEquals("a=1\\,2", JobsRunner.formatParameters("x", Map.of("a", "1,2")));
+        assertEquals("b=\\\\", JobsRunner.formatParameters("x", Map.of("b", "\\")));
+        assertThrows(IllegalArgumentException.class, () -> JobsRunner.formatParameters("x", Map.of("a,b", "1")));
+    }
+
+    /**
+     * Jobs writing the same output file, or the same table are rejected.
+     */
+    @Test
+    public void testReadJobsFile_duplicate_output() {
+        final IllegalArgumentException sameFile = assertThrows(IllegalArgumentException.class,
+                () -> JobsRunner.readJobsFile(new StringReader("jobs:\n"
+                        + "  - name: a\n"
+                        + "    output-file: out.csv\n"
+                        + "  - name: b\n"
+                        + "    output-file: ./out.csv\n")));
+        assertTrue(sameFile.getMessage().contains("Invalid job b"), sameFile.getMessage());
+        final IllegalArgumentException sameTable = assertThrows(IllegalArgumentException.class,
+                () -> JobsRunner.readJobsFile(new StringReader("jobs:\n"
+                        + "  - name: a\n"
+                        + "    jdbc-url: jdbc:h2:mem:x\n"
+                        + "    jdbc-parameter: {table: persons}\n"
+                        + "  - name: b\n"
+                        + "    jdbc-url: jdbc:h2:mem:x\n"
+                        + "    jdbc-parameter: {table: PERSONS}\n")));
+        assertTrue(sameTable.getMessage().contains("PERSONS"), sameTable.getMessage());
+        // same table of another database
+        assertEquals(2, JobsRunner.readJobsFile(new StringReader("jobs:\n"
+                + "  - jdbc-url: jdbc:h2:mem:x\n"
+                + "  - jdbc-url: jdbc:h2:mem:y\n")).jobs.size());
+        assertThrows(IllegalArgumentException.class,
+                () -> JobsRunner.readJobsFile(new StringReader("jobs:\n"
+                        + "  - jdbc-url: jdbc:h2:mem:x\n"
+                        + "    jdbc-parameter: {table: 'a;b'}\n")));
+    }
+
+    /**
+     * Seeded jobs write the records of the same options run by the command
+     * line, independent of running concurrently.
+     */
+    @Test
+    public void testRun(@TempDir Path tempDir) throws IOException, InterruptedException {
+        final JobsFile jobsFile = JobsRunner.readJobsFile(new StringReader(jobsYaml(tempDir)));
+        final List<JobResult> results = new JobsRunner(jobsFile.parallelism).run(jobsFile.jobs);
+        assertEquals(3, results.size());
+        results.forEach(r -> assertTrue(r.isOk(), r.job.name + ": " + r.failure));
+
+        assertEquals(format("de-AT", 1234, FormatEnum.csv, Map.of("header", "false"), "#{Name.fullName}"),
+                Files.readString(tempDir.resolve("names.csv"), StandardCharsets.UTF_8));
+        assertEquals(format("de-AT", 1234, FormatEnum.ndjson, Collections.emptyMap(), "city:#{Address.city}"),
+                Files.readString(tempDir.resolve("cities.ndjson"), StandardCharsets.UTF_8));
+        assertEquals(format("en", 10, FormatEnum.csv, Collections.emptyMap(), "#{Name.firstName}"),
+                OutputWritersTest.gunzip(Files.readAllBytes(tempDir.resolve("english.csv.gz"))));
+    }
+
+    /**
+     * Run the example of the javadoc of {@link JobsRunner}.
+     */
+    @Test
+    public void testRun_documented_example(@TempDir Path tempDir) throws IOException, InterruptedException {
+        final JobsFile jobsFile = JobsRunner.readJobsFile(new StringReader("parallelism: 4\n"
+                + "defaults:\n"
+                + "  locale: de-AT\n"
+                + "  count: 1000\n"
+                + "jobs:\n"
+                + "  - name: persons\n"
+                + "    output-file: " + tempDir.resolve("persons.csv") + "\n"
+                + "    expression: expression\n"
+                + "    args: [\"name:#{Name.fullName}\", \"city:#{Address.city}\"]\n"
+                + "  - name: names\n"
+                + "    format: json\n"
+                + "    output-file: " + tempDir.resolve("names.json") + "\n"
+                + "    expression: sampleProvider\n"
+                + "    args: [Name]\n"));
+        final List<JobResult> results = new JobsRunner(jobsFile.parallelism).run(jobsFile.jobs);
+        results.forEach(r -> assertTrue(r.isOk(), r.job.name + ": " + r.failure));
+
+        final List<String> persons = Files.readAllLines(tempDir.resolve("persons.csv"), StandardCharsets.UTF_8);
+        assertEquals("\"name\",\"city\"", persons.get(0));
+        assertEquals(1001, persons.size());
+        final String names = Files.readString(tempDir.resolve("names.json"), StandardCharsets.UTF_8);
+        assertTrue(names.contains("\"Name-firstName\": \""), names.substring(0, Math.min(200, names.length())));
+    }
+
+    /**
+     * The fakers of the threads writing shards are borrowed from the shared
+     * faker pool.
+     */
+    @Test
+    public void testRun_shards_borrow_worker_fakers(@TempDir Path tempDir) throws IOException, InterruptedException {
+        final Locale locale = Locale.forLanguageTag("fr-CA");
+        final JobsFile jobsFile = JobsRunner.readJobsFile(new StringReader("jobs:\n"
+                + "  - name: sharded\n"
+                + "    locale: fr-CA\n"
+                + "    count: 100\n"
+                + "    shards: 2\n"
+                + "    threads: 2\n"
+                + "    output-file: " + tempDir.resolve("sharded.csv") + "\n"));
+        final List<JobResult> results = new JobsRunner(1).run(jobsFile.jobs);
+        results.forEach(r -> assertTrue(r.isOk(), r.job.name + ": " + r.failure));
+        assertTrue(Files.exists(tempDir.resolve("sharded-0001.csv")));
+        // the faker of the job, and of both workers
+        final int countOfIdle = Adapters.FakerFactory.sharedPool().countOfIdle(locale);
+        assertTrue(countOfIdle >= 2, "" + countOfIdle);
+    }
+
+    /**
+     * Concurrent jobs share the available processors writing shards.
+     */
+    @Test
+    public void testRun_shard_workers() throws InterruptedException {
+        final List<Integer> shardWorkers = Collections.synchronizedList(new ArrayList<>());
+        final List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            final DatafakerCli datafakerCli = new DatafakerCli() {
+                @Override
+                void runJob(Faker faker) {
+                    shardWorkers.add(shardWorkers());
+                }
+            };
+            new CommandLine(datafakerCli).parseArgs("--shards=4");
+            jobs.add(new Job("job-" + i, datafakerCli));
+        }
+        new JobsRunner(2).run(jobs);
+        final int expected = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        assertEquals(Arrays.asList(expected, expected), shardWorkers);
+    }
+
+    /**
+     * Errors are not reported as failed job, but propagate.
+     */
+    @Test
+    public void testRun_error() {
+        final DatafakerCli failingCli = new DatafakerCli() {
+            @Override
+            void runJob(Faker faker) {
+                throw new OutOfMemoryError("failing job");
+            }
+        };
+        final List<Job> jobs = Arrays.asList(new Job("failing", failingCli));
+        assertThrows(OutOfMemoryError.class, () -> new JobsRunner(1).run(jobs));
+    }
+
+    @Test
+    public void testRun_failing_job(@TempDir Path tempDir) throws InterruptedException {
+        final JobsFile jobsFile = JobsRunner.readJobsFile(new StringReader("jobs:\n"
+                + "  - name: failing\n"
+                + "    output-file: " + tempDir.resolve("missing").resolve("out.csv") + "\n"
+                + "  - name: ok\n"
+                + "    output-file: " + tempDir.resolve("out.csv") + "\n"));
+        final List<JobResult> results = new JobsRunner(1).run(jobsFile.jobs);
+        assertFalse(results.get(0).isOk());
+        assertTrue(results.get(1).isOk());
+
+        final StringWriter sw = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(sw)) {
+            JobsRunner.writeSummary(pw, results, 123);
+        }
+        assertTrue(sw.toString().contains("failing"), sw.toString());
+        assertTrue(sw.toString().contains("2 jobs, 1 failed, 123 ms elapsed"), sw.toString());
+    }
+}
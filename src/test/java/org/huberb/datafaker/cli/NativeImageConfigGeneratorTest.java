@@ -0,0 +1,63 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import net.datafaker.Faker;
+import net.datafaker.providers.base.BaseFaker;
+import net.datafaker.providers.base.BaseProviders;
+import net.datafaker.providers.base.Name;
+import org.huberb.datafaker.samples.SvnrProvider;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author berni3
+ */
+public class NativeImageConfigGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReflectionClasses() {
+        final List<Class> result = NativeImageConfigGenerator.reflectionClasses();
+        assertTrue(result.contains(Faker.class));
+        assertTrue(result.contains(BaseFaker.class));
+        assertTrue(result.contains(BaseProviders.class));
+        assertTrue(result.contains(Name.class));
+        assertTrue(result.contains(SvnrProvider.class));
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        final Path configDirectory = NativeImageConfigGenerator.write(tempDir);
+        final String reflectConfig = Files.readString(configDirectory.resolve("reflect-config.json"), StandardCharsets.UTF_8);
+        final String resourceConfig = Files.readString(configDirectory.resolve("resource-config.json"), StandardCharsets.UTF_8);
+        assertTrue(configDirectory.endsWith("META-INF/native-image/org.huberb.datafaker/datafaker-cli"), "" + configDirectory);
+        assertTrue(reflectConfig.startsWith("[") && reflectConfig.trim().endsWith("]"), reflectConfig);
+        assertTrue(reflectConfig.contains("{\"name\": \"net.datafaker.providers.base.Name\", \"allPublicMethods\": true"), reflectConfig);
+        assertTrue(reflectConfig.contains("\"org.huberb.datafaker.samples.SvnrProvider\""), reflectConfig);
+        assertTrue(resourceConfig.contains("{\"pattern\": \".*\\\\.yml$\"}"), resourceConfig);
+        assertTrue(resourceConfig.contains("{\"pattern\": \"org/huberb/datafaker/cli/providers\\\\.idx\"}"), resourceConfig);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import org.huberb.datafaker.cli.OutputWriters.ChannelWriter;
+import org.huberb.datafaker.cli.OutputWriters.ParallelGzipChannel;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ *
+ * @author berni3
+ */
+public class OutputWritersTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testNewFileWriter() throws IOException {
+        final Path path = tempDir.resolve("out.csv");
+        Files.writeString(path, "some longer content, which is truncated");
+        try (Writer w = OutputWriters.newFileWriter(path)) {
+            w.write("a,b");
+            w.write(System.lineSeparator());
+            w.append("äöü €");
+        }
+        assertEquals("a,b" + System.lineSeparator() + "äöü €", Files.readString(path, StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {16, 17, 100, 4096})
+    public void testChannelWriter_buffer_sizes(int bufferSize) throws IOException {
+        // ascii, 2-, 3-, and 4-byte utf-8 sequences
+        final String[] parts = {"abc", "ä", "€", "😀", "xyz,"};
+        final StringBuilder expected = new StringBuilder();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final Random random = new Random(4711L);
+        try (Writer w = new ChannelWriter(Channels.newChannel(baos), StandardCharsets.UTF_8, bufferSize)) {
+            for (int i = 0; i < 10000; i++) {
+                final String part = parts[random.nextInt(parts.length)];
+                expected.append(part);
+                if (i % 3 == 0) {
+                    w.write(part.toCharArray());
+                } else {
+                    w.write(part);
+                }
+                if (i % 1000 == 0) {
+                    w.flush();
+                }
+            }
+        }
+        assertArrayEquals(expected.toString().getBytes(StandardCharsets.UTF_8), baos.toByteArray());
+    }
+
+    @Test
+    public void testChannelWriter_surrogate_pair_split_across_writes() throws IOException {
+        final String smiley = "😀";
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (Writer w = new ChannelWriter(Channels.newChannel(baos), StandardCharsets.UTF_8, 16)) {
+            w.write("a");
+            w.write(smiley.charAt(0));
+            w.write(smiley.charAt(1));
+            w.write("b" + smiley.charAt(0));
+            w.write("");
+            w.write(smiley.charAt(1) + "c");
+        }
+        assertEquals("a" + smiley + "b" + smiley + "c", baos.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testChannelWriter_malformed_surrogates_are_replaced() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (Writer w = new ChannelWriter(Channels.newChannel(baos), StandardCharsets.UTF_8, 16)) {
+            w.write("a\uD83D");
+            w.write("\uD83Db");
+            w.write("\uD83D");
+        }
+        assertEquals("a??b?", baos.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testChannelWriter_closed() throws IOException {
+        final Writer w = new ChannelWriter(Channels.newChannel(new ByteArrayOutputStream()), StandardCharsets.UTF_8, 16);
+        w.close();
+        w.close();
+        assertThrows(IOException.class, () -> w.write("a"));
+        assertThrows(IOException.class, () -> w.flush());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4})
+    public void testParallelGzipChannel(int threads) throws IOException {
+        final StringBuilder expected = new StringBuilder();
+        final Random random = new Random(4711L);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (Writer w = new ChannelWriter(new ParallelGzipChannel(baos, 1000, threads), StandardCharsets.UTF_8, 256)) {
+            for (int i = 0; i < 20000; i++) {
+                final String line = String.format("%d,%d,äöü€%n", i, random.nextInt());
+                expected.append(line);
+                w.write(line);
+                if (i % 1000 == 0) {
+                    w.flush();
+                }
+            }
+        }
+        final byte[] compressed = baos.toByteArray();
+        assertTrue(countOfGzipMembers(compressed) > 1);
+        assertEquals(expected.toString(), gunzip(compressed));
+    }
+
+    @Test
+    public void testParallelGzipChannel_empty() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new ParallelGzipChannel(baos, 1000, 2).close();
+        assertEquals("", gunzip(baos.toByteArray()));
+    }
+
+    @Test
+    public void testParallelGzipChannel_closed() throws IOException {
+        final ParallelGzipChannel channel = new ParallelGzipChannel(new ByteArrayOutputStream(), 1000, 2);
+        channel.close();
+        channel.close();
+        assertFalse(channel.isOpen());
+        assertThrows(IOException.class, () -> channel.write(ByteBuffer.allocate(1)));
+    }
+
+    @Test
+    public void testNewGzipFileWriter() throws IOException {
+        final Path path = tempDir.resolve("out.csv.gz");
+        try (Writer w = OutputWriters.newGzipFileWriter(path)) {
+            w.write("a,b");
+        }
+        assertEquals("a,b", gunzip(Files.readAllBytes(path)));
+    }
+
+    @Test
+    public void testIsGzipFileName() {
+        assertTrue(OutputWriters.isGzipFileName("a.csv.gz"));
+        assertTrue(OutputWriters.isGzipFileName("A.SQL.GZ"));
+        assertFalse(OutputWriters.isGzipFileName("a.csv"));
+        assertFalse(OutputWriters.isGzipFileName("gz"));
+        assertFalse(OutputWriters.isGzipFileName(null));
+    }
+
+    @Test
+    public void testShardPath() {
+        assertEquals(Path.of("dir", "out-0000.csv"), OutputWriters.shardPath(Path.of("dir", "out.csv"), 0));
+        assertEquals(Path.of("out-0031.csv.gz"), OutputWriters.shardPath(Path.of("out.csv.gz"), 31));
+        assertEquals(Path.of("out-0002"), OutputWriters.shardPath(Path.of("out"), 2));
+        assertEquals(Path.of(".out-0002"), OutputWriters.shardPath(Path.of(".out"), 2));
+    }
+
+    static String gunzip(byte[] compressed) throws IOException {
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Count gzip members by the gzip header, as deflate data may contain the
+     * header bytes too, this is an upper bound.
+     */
+    static int countOfGzipMembers(byte[] compressed) {
+        int count = 0;
+        for (int i = 0; i + 2 < compressed.length; i++) {
+            if ((compressed[i] & 0xff) == 0x1f && (compressed[i + 1] & 0xff) == 0x8b && compressed[i + 2] == 8) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+}
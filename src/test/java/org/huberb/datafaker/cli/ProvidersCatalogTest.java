@@ -0,0 +1,122 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import net.datafaker.providers.base.Name;
+import org.huberb.datafaker.samples.SvnrProvider;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author berni3
+ */
+public class ProvidersCatalogTest {
+
+    @Test
+    public void testShared() {
+        assertSame(ProvidersCatalog.shared(), ProvidersCatalog.shared());
+        assertEquals(ProvidersQueries.DEFAULT_PROVIDER_PACKAGES, ProvidersCatalog.shared().getProviderPackages());
+    }
+
+    @Test
+    public void testGetProviderClasses_equals_scan() {
+        final ProvidersCatalog instance = new ProvidersCatalog(ProvidersQueries.DEFAULT_PROVIDER_PACKAGES);
+        final List<Class> result = instance.getProviderClasses();
+        assertEquals(new ProvidersQueries().scanAllClassesExtendingAbstractProvider(), result);
+        // served from memory
+        assertSame(result, instance.getProviderClasses());
+        assertSame(instance.getProviderMethods(), instance.getProviderMethods());
+    }
+
+    @Test
+    public void testGetProviderMethods() {
+        final ProvidersCatalog instance = new ProvidersCatalog(ProvidersQueries.DEFAULT_PROVIDER_PACKAGES);
+        final List<Method> result = instance.getProviderMethods();
+        final List<String> methodNames = result.stream().map(Method::getName).collect(Collectors.toList());
+        assertTrue(methodNames.contains("fullName"));
+        assertFalse(methodNames.contains("getFaker"));
+        assertFalse(methodNames.contains("hashCode"));
+    }
+
+    @Test
+    public void testFindProviderClass_getNoArgStringMethods() throws NoSuchMethodException {
+        final ProvidersCatalog instance = new ProvidersCatalog(ProvidersQueries.DEFAULT_PROVIDER_PACKAGES);
+        assertEquals(Name.class, instance.findProviderClass("Name").get());
+        assertFalse(instance.findProviderClass("DoesNotExist").isPresent());
+
+        final List<Method> methods = instance.getNoArgStringMethods(Name.class);
+        assertTrue(methods.contains(Name.class.getMethod("fullName")));
+        assertTrue(methods.stream().allMatch(m -> m.getParameterCount() == 0 && m.getReturnType().equals(String.class)));
+        assertTrue(instance.getNoArgStringMethods(String.class).isEmpty());
+    }
+
+    @Test
+    public void testInvalidate() {
+        final ProvidersCatalog instance = new ProvidersCatalog(ProvidersQueries.DEFAULT_PROVIDER_PACKAGES);
+        final List<Class> result = instance.getProviderClasses();
+        instance.invalidate();
+        final List<Class> resultAfterInvalidate = instance.getProviderClasses();
+        assertNotSame(result, resultAfterInvalidate);
+        assertEquals(result, resultAfterInvalidate);
+    }
+
+    @Test
+    public void testRegisterProviderPackages() {
+        final ProvidersCatalog instance = new ProvidersCatalog(ProvidersQueries.DEFAULT_PROVIDER_PACKAGES);
+        final List<Class> result = instance.getProviderClasses();
+        assertFalse(result.contains(SvnrProvider.class));
+
+        instance.registerProviderPackages("org.huberb.datafaker.samples");
+        final List<Class> resultAfterRegister = instance.getProviderClasses();
+        assertTrue(resultAfterRegister.contains(SvnrProvider.class));
+        assertTrue(resultAfterRegister.containsAll(result));
+        assertEquals(SvnrProvider.class, instance.findProviderClass("SvnrProvider").get());
+
+        // registering a known package keeps the catalog
+        instance.registerProviderPackages("org.huberb.datafaker.samples");
+        assertSame(resultAfterRegister, instance.getProviderClasses());
+    }
+
+    @Test
+    public void testGetProviderClasses_concurrent() throws Exception {
+        final ProvidersCatalog instance = new ProvidersCatalog(ProvidersQueries.DEFAULT_PROVIDER_PACKAGES);
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<List<Class>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executorService.submit(instance::getProviderClasses));
+            }
+            final List<Class> expected = futures.get(0).get();
+            for (Future<List<Class>> future : futures) {
+                assertSame(expected, future.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
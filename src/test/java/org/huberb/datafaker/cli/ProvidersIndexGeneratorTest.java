@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author berni3
+ */
+public class ProvidersIndexGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testWrite() throws IOException {
+        final Path indexFile = ProvidersIndexGenerator.write(tempDir);
+        assertEquals(tempDir.resolve("org/huberb/datafaker/cli/providers.idx"), indexFile);
+        assertTrue(Files.isRegularFile(indexFile));
+
+        final ProvidersQueries providersQueries = new ProvidersQueries();
+        final List<Class> result = providersQueries.readProvidersIndex(Files.readAllLines(indexFile, StandardCharsets.UTF_8));
+        assertEquals(providersQueries.scanAllClassesExtendingAbstractProvider(), result);
+    }
+}
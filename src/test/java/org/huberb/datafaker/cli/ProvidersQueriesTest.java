@@ -15,13 +15,19 @@
  */
 package org.huberb.datafaker.cli;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import net.datafaker.providers.base.Address;
 import net.datafaker.providers.base.Name;
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -77,4 +83,31 @@ public class ProvidersQueriesTest {
         );
     }
 
+    @Test
+    public void testReadProvidersIndex_equals_scan() {
+        List<Class> fromIndex = instance.readProvidersIndex();
+        assertNotNull(fromIndex, "providers index generated at build time");
+        assertEquals(instance.scanAllClassesExtendingAbstractProvider(), fromIndex);
+    }
+
+    @Test
+    public void testReadProvidersIndex_lines() {
+        List<Class> result = instance.readProvidersIndex(Arrays.asList(
+                "# comment",
+                "",
+                "net.datafaker.providers.base.Name",
+                " net.datafaker.providers.base.Address "));
+        assertEquals(Arrays.asList(Name.class, Address.class), result);
+        assertThrows(IllegalStateException.class,
+                () -> instance.readProvidersIndex(Arrays.asList("net.datafaker.providers.base.DoesNotExist")));
+    }
+
+    @Test
+    public void testWriteProvidersIndex() throws IOException {
+        StringWriter sw = new StringWriter();
+        ProvidersQueries.writeProvidersIndex(Arrays.asList(Name.class, Address.class), sw);
+        List<String> lines = Arrays.asList(sw.toString().split("\n"));
+        assertEquals(Arrays.asList(Name.class, Address.class), instance.readProvidersIndex(lines));
+    }
+
 }
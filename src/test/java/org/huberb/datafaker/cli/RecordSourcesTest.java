@@ -0,0 +1,205 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.huberb.datafaker.cli.DataFormatProcessor.ExpressionInternal;
+import org.huberb.datafaker.cli.RecordSources.EagerRecordSource;
+import org.huberb.datafaker.cli.RecordSources.ParallelRecordSource;
+import org.huberb.datafaker.cli.RecordSources.RecordEvaluator;
+import org.huberb.datafaker.cli.RecordSources.RecordSource;
+import org.huberb.datafaker.cli.RecordSources.SequentialRecordSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author berni3
+ */
+public class RecordSourcesTest {
+
+    @Test
+    public void testSequentialRecordSource() throws IOException {
+        final AtomicInteger counter = new AtomicInteger();
+        final List<ExpressionInternal> expressions = Arrays.asList(
+                new ExpressionInternal("a", () -> "a" + counter.incrementAndGet()),
+                new ExpressionInternal("b", () -> "b" + counter.incrementAndGet())
+        );
+        try (RecordSource instance = new SequentialRecordSource(new RecordEvaluator(expressions, new Random()), 10, null)) {
+            assertEquals(Arrays.asList("a1", "b2"), Arrays.asList(instance.nextRecord()));
+            assertEquals(Arrays.asList("a3", "b4"), Arrays.asList(instance.nextRecord()));
+        }
+    }
+
+    @Test
+    public void testParallelRecordSource() throws IOException {
+        final int limit = 1234;
+        final AtomicInteger workers = new AtomicInteger();
+        try (RecordSource instance = new ParallelRecordSource(4, 100, limit, null, () -> {
+            final String worker = "w" + workers.incrementAndGet();
+            return new RecordEvaluator(Arrays.asList(
+                    new ExpressionInternal("a", () -> worker),
+                    new ExpressionInternal("b", () -> Thread.currentThread().getName())),
+                    new Random());
+        })) {
+            for (int i = 0; i < limit; i++) {
+                final String[] record = instance.nextRecord();
+                assertEquals(2, record.length);
+                assertTrue(record[0].matches("w[1-4]"), record[0]);
+                assertTrue(record[1].startsWith("datafaker-worker-"), record[1]);
+            }
+        }
+        assertTrue(workers.get() >= 1 && workers.get() <= 4, "" + workers.get());
+    }
+
+    /**
+     * Closing the source closes the record evaluators of all workers.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testParallelRecordSource_closes_record_evaluators() throws IOException {
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger closed = new AtomicInteger();
+        try (RecordSource instance = new ParallelRecordSource(4, 10, 1000, null, () -> {
+            created.incrementAndGet();
+            return new RecordEvaluator(Arrays.asList(
+                    new ExpressionInternal("a", () -> "a")),
+                    new Random(), closed::incrementAndGet);
+        })) {
+            for (int i = 0; i < 100; i++) {
+                instance.nextRecord();
+            }
+        }
+        assertTrue(created.get() >= 1, "" + created.get());
+        assertEquals(created.get(), closed.get());
+    }
+
+    @Test
+    public void testParallelRecordSource_failing_expression() {
+        try (RecordSource instance = new ParallelRecordSource(2, 10, 100, null, () -> new RecordEvaluator(Arrays.asList(
+                new ExpressionInternal("a", () -> {
+                    throw new IllegalStateException("failing expression");
+                })), new Random()))) {
+            IllegalStateException ex = assertThrows(IllegalStateException.class, () -> instance.nextRecord());
+            assertEquals("failing expression", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testEagerRecordSource() throws IOException {
+        final AtomicInteger counter = new AtomicInteger();
+        final RecordEvaluator recordEvaluator = new RecordEvaluator(Arrays.asList(
+                new ExpressionInternal("a", () -> "a" + counter.incrementAndGet())), new Random());
+        try (RecordSource instance = new EagerRecordSource(new SequentialRecordSource(recordEvaluator, 10, null))) {
+            // the first record is evaluated on creation
+            assertEquals(1, counter.get());
+            assertEquals(Arrays.asList("a1"), Arrays.asList(instance.nextRecord()));
+            assertEquals(Arrays.asList("a2"), Arrays.asList(instance.nextRecord()));
+        }
+    }
+
+    @Test
+    public void testEagerRecordSource_failing_expression() {
+        final AtomicInteger closed = new AtomicInteger();
+        final ParallelRecordSource recordSource = new ParallelRecordSource(2, 10, 100, null, () -> new RecordEvaluator(Arrays.asList(
+                new ExpressionInternal("a", () -> {
+                    throw new IllegalStateException("failing expression");
+                })), new Random(), closed::incrementAndGet));
+        final IllegalStateException ex = assertThrows(IllegalStateException.class, () -> new EagerRecordSource(recordSource));
+        assertEquals("failing expression", ex.getMessage());
+        // the source is closed
+        assertTrue(closed.get() >= 1, "" + closed.get());
+    }
+
+    @Test
+    public void testBlockSeed() {
+        assertEquals(RecordSources.blockSeed(4711L, 3), RecordSources.blockSeed(4711L, 3));
+        assertNotEquals(RecordSources.blockSeed(4711L, 3), RecordSources.blockSeed(4711L, 4));
+        assertNotEquals(RecordSources.blockSeed(4711L, 3), RecordSources.blockSeed(4712L, 3));
+    }
+
+    /**
+     * Seeded records do not depend on the number of threads.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSeededRecordSources_same_records() throws IOException {
+        final int limit = 345;
+        final long seed = 4711L;
+        final Supplier<RecordEvaluator> recordEvaluatorSupplier = () -> {
+            final Random random = new Random();
+            return new RecordEvaluator(Arrays.asList(
+                    new ExpressionInternal("a", () -> String.valueOf(random.nextInt()))),
+                    random);
+        };
+        final List<String> expected = new ArrayList<>();
+        try (RecordSource instance = new SequentialRecordSource(recordEvaluatorSupplier.get(), 10, seed)) {
+            for (int i = 0; i < limit; i++) {
+                expected.add(instance.nextRecord()[0]);
+            }
+        }
+        for (int threads = 1; threads <= 4; threads++) {
+            final List<String> result = new ArrayList<>();
+            try (RecordSource instance = new ParallelRecordSource(threads, 10, limit, seed, recordEvaluatorSupplier)) {
+                for (int i = 0; i < limit; i++) {
+                    result.add(instance.nextRecord()[0]);
+                }
+            }
+            assertEquals(expected, result, "threads " + threads);
+        }
+    }
+
+    /**
+     * Seeded records of a source starting at some record equal the records of
+     * a source starting at record 0.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSeededSequentialRecordSource_first_record_index() throws IOException {
+        final long seed = 4711L;
+        final Random random = new Random();
+        final RecordEvaluator recordEvaluator = new RecordEvaluator(Arrays.asList(
+                new ExpressionInternal("a", () -> String.valueOf(random.nextInt()))),
+                random);
+        final List<String> expected = new ArrayList<>();
+        try (RecordSource instance = new SequentialRecordSource(recordEvaluator, 10, seed)) {
+            for (int i = 0; i < 45; i++) {
+                expected.add(instance.nextRecord()[0]);
+            }
+        }
+        for (int first : new int[]{0, 7, 10, 23}) {
+            final List<String> result = new ArrayList<>();
+            try (RecordSource instance = new SequentialRecordSource(recordEvaluator, 10, seed, first)) {
+                for (int i = first; i < 45; i++) {
+                    result.add(instance.nextRecord()[0]);
+                }
+            }
+            assertEquals(expected.subList(first, 45), result, "first " + first);
+        }
+    }
+}
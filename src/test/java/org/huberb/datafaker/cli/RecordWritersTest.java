@@ -0,0 +1,213 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.cli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterCsv;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterSql;
+import org.huberb.datafaker.cli.DataFormatProcessor.FormatParameters.FormatterXml;
+import org.huberb.datafaker.cli.RecordWriters.CsvRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.JsonRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.NdjsonRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.PgCopyBinaryRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.PgCopyTextRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.RecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.SqlRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.TxtRecordWriter;
+import org.huberb.datafaker.cli.RecordWriters.XmlRecordWriter;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author berni3
+ */
+public class RecordWritersTest {
+
+    final String[] fieldnames = {"name", "city"};
+    final String[][] records = {
+        {"Tobie", "Vienna"},
+        {"Lou", "Linz"},
+        {"Beaulah", "Graz"}
+    };
+
+    String writeRecords(RecordWriter recordWriter) throws IOException {
+        final StringWriter sw = new StringWriter();
+        recordWriter.writeHeader(sw);
+        for (int i = 0; i < records.length; i++) {
+            recordWriter.writeRecord(sw, i, records[i]);
+        }
+        recordWriter.writeFooter(sw, records.length);
+        return sw.toString().replace(System.lineSeparator(), "\n");
+    }
+
+    @Test
+    public void testTxtRecordWriter() throws IOException {
+        String result = writeRecords(new TxtRecordWriter(fieldnames));
+        assertEquals("name: Tobie\ncity: Vienna\n"
+                + "name: Lou\ncity: Linz\n"
+                + "name: Beaulah\ncity: Graz\n", result);
+    }
+
+    @Test
+    public void testCsvRecordWriter() throws IOException {
+        String result = writeRecords(new CsvRecordWriter(fieldnames, FormatterCsv.withMap(Collections.emptyMap())));
+        assertEquals("\"name\",\"city\"\n"
+                + "\"Tobie\",\"Vienna\"\n"
+                + "\"Lou\",\"Linz\"\n"
+                + "\"Beaulah\",\"Graz\"", result);
+    }
+
+    @Test
+    public void testCsvRecordWriter_without_header() throws IOException {
+        String result = writeRecords(new CsvRecordWriter(fieldnames, FormatterCsv.withMap(Map.of("header", "false"))));
+        assertEquals("\"Tobie\",\"Vienna\"\n"
+                + "\"Lou\",\"Linz\"\n"
+                + "\"Beaulah\",\"Graz\"", result);
+    }
+
+    @Test
+    public void testJsonRecordWriter() throws IOException {
+        String result = writeRecords(new JsonRecordWriter(fieldnames));
+        assertEquals("[\n"
+                + "{\"name\": \"Tobie\", \"city\": \"Vienna\"},\n"
+                + "{\"name\": \"Lou\", \"city\": \"Linz\"},\n"
+                + "{\"name\": \"Beaulah\", \"city\": \"Graz\"}\n"
+                + "]", result);
+    }
+
+    @Test
+    public void testNdjsonRecordWriter() throws IOException {
+        String result = writeRecords(new NdjsonRecordWriter(fieldnames));
+        assertEquals("{\"name\":\"Tobie\",\"city\":\"Vienna\"}\n"
+                + "{\"name\":\"Lou\",\"city\":\"Linz\"}\n"
+                + "{\"name\":\"Beaulah\",\"city\":\"Graz\"}\n", result);
+    }
+
+    @Test
+    public void testNdjsonRecordWriter_escaping() throws IOException {
+        final StringWriter sw = new StringWriter();
+        final NdjsonRecordWriter instance = new NdjsonRecordWriter(new String[]{"a\"b", "c", "d"});
+        instance.writeRecord(sw, 0, new String[]{"x\\y\n\r\t\b\f\u0001z", null, "äöü €"});
+        assertEquals("{\"a\\\"b\":\"x\\\\y\\n\\r\\t\\b\\f\\u0001z\",\"c\":null,\"d\":\"äöü €\"}\n", sw.toString());
+    }
+
+    @Test
+    public void testAppendJsonString() {
+        final StringBuilder sb = new StringBuilder();
+        RecordWriters.appendJsonString(sb, "");
+        RecordWriters.appendJsonString(sb, "plain");
+        RecordWriters.appendJsonString(sb, "\"\"");
+        RecordWriters.appendJsonString(sb, "\u001f\u007f");
+        assertEquals("\"\"\"plain\"\"\\\"\\\"\"\"\\u001f\u007f\"", sb.toString());
+    }
+
+    @Test
+    public void testPgCopyTextRecordWriter() throws IOException {
+        String result = writeRecords(new PgCopyTextRecordWriter(fieldnames));
+        assertEquals("Tobie\tVienna\n"
+                + "Lou\tLinz\n"
+                + "Beaulah\tGraz\n", result);
+    }
+
+    @Test
+    public void testPgCopyTextRecordWriter_escaping() throws IOException {
+        final StringWriter sw = new StringWriter();
+        final PgCopyTextRecordWriter instance = new PgCopyTextRecordWriter(new String[]{"a", "b", "c"});
+        instance.writeRecord(sw, 0, new String[]{"x\\y\n\r\t\b\f\u000b\u0001\u007fz", null, "äöü €"});
+        assertEquals("x\\\\y\\n\\r\\t\\b\\f\\v\\001\\177z\t\\N\täöü €\n", sw.toString());
+    }
+
+    @Test
+    public void testPgCopyBinaryRecordWriter() throws IOException {
+        final String[][] binaryRecords = {
+            {"Tobie", "Vienna"},
+            {null, ""},
+            {"äöü €", "\ud83d\ude00"},
+            {"x".repeat(PgCopyBinaryRecordWriter.DEFAULT_BUFFER_SIZE), "y"}
+        };
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (Writer w = OutputWriters.newWriter(baos)) {
+            final PgCopyBinaryRecordWriter instance = new PgCopyBinaryRecordWriter(fieldnames);
+            instance.writeHeader(w);
+            for (int i = 0; i < binaryRecords.length; i++) {
+                instance.writeRecord(w, i, binaryRecords[i]);
+            }
+            instance.writeFooter(w, binaryRecords.length);
+        }
+
+        final DataInputStream dis = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        final byte[] signature = new byte[11];
+        dis.readFully(signature);
+        assertArrayEquals(new byte[]{'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0}, signature);
+        assertEquals(0, dis.readInt());
+        assertEquals(0, dis.readInt());
+        for (String[] record : binaryRecords) {
+            assertEquals(2, dis.readShort());
+            for (String field : record) {
+                final int length = dis.readInt();
+                if (field == null) {
+                    assertEquals(-1, length);
+                } else {
+                    final byte[] bytes = new byte[length];
+                    dis.readFully(bytes);
+                    assertEquals(field, new String(bytes, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        assertEquals(-1, dis.readShort());
+        assertEquals(-1, dis.read());
+    }
+
+    @Test
+    public void testPutUtf8() {
+        final String s = "a\u00e4\u20ac\ud83d\ude00\ud83d";
+        final ByteBuffer buffer = ByteBuffer.allocate(3 * s.length());
+        RecordWriters.putUtf8(buffer, s);
+        assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    @Test
+    public void testSqlRecordWriter_batch() throws IOException {
+        String result = writeRecords(new SqlRecordWriter(fieldnames, FormatterSql.withMap(Map.of("batch", "2"))));
+        assertEquals("INSERT INTO DATAFAKER_TABLE (`name`, `city`)\n"
+                + "VALUES ('Tobie', 'Vienna'),\n"
+                + "       ('Lou', 'Linz');\n"
+                + "INSERT INTO DATAFAKER_TABLE (`name`, `city`)\n"
+                + "VALUES ('Beaulah', 'Graz');", result);
+    }
+
+    @Test
+    public void testXmlRecordWriter() throws IOException {
+        String result = writeRecords(new XmlRecordWriter(fieldnames, FormatterXml.withMap(Map.of("rootTag", "cities"))));
+        assertEquals("<cities>\n"
+                + "<name>Tobie</name><city>Vienna</city>\n"
+                + "<name>Lou</name><city>Linz</city>\n"
+                + "<name>Beaulah</name><city>Graz</city>\n"
+                + "</cities>", result);
+    }
+}
@@ -15,16 +15,25 @@
  */
 package org.huberb.datafaker.cli;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import net.datafaker.Faker;
+import net.datafaker.providers.base.Name;
 import org.huberb.datafaker.cli.DataFormatProcessor.ExpressionInternal;
+import org.huberb.datafaker.cli.SamplesGenerator.ProviderMethodSupplier;
 import org.junit.jupiter.api.Assertions;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -90,4 +99,64 @@ public class SamplesGeneratorTest {
         );
     }
 
+    @Test
+    public void test_sampleProviderAsExpressionInternalList_evaluates_like_faker_expression() {
+        final List<Method> methodList = instance.sampleProviderMethods(Arrays.asList("Name", "Address"));
+        final Faker expectedFaker = new Faker(Locale.ENGLISH, new Random(4711L));
+        final Faker seededFaker = new Faker(Locale.ENGLISH, new Random(4711L));
+        final List<ExpressionInternal> result = instance.sampleProviderAsExpressionInternalList(seededFaker, methodList);
+        assertEquals(methodList.size(), result.size());
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < methodList.size(); i++) {
+                final Method m = methodList.get(i);
+                final String expression = String.format("#{%s.%s}", m.getDeclaringClass().getSimpleName(), m.getName());
+                assertEquals(expectedFaker.expression(expression), result.get(i).expressionSupplier.get(), expression);
+            }
+        }
+    }
+
+    @Test
+    public void test_ProviderMethodSupplier_failing_method() throws NoSuchMethodException {
+        final AtomicInteger invocations = new AtomicInteger();
+        final Faker failingFaker = new Faker() {
+            @Override
+            public Name name() {
+                return new Name(this) {
+                    @Override
+                    public String firstName() {
+                        if (invocations.incrementAndGet() % 2 == 1) {
+                            throw new IllegalStateException("failing provider method");
+                        }
+                        return "Tom";
+                    }
+                };
+            }
+        };
+        final Method m = Name.class.getMethod("firstName");
+        final Supplier<String> supplier = ProviderMethodSupplier.bind(failingFaker, m, new HashMap<>());
+        assertEquals("", supplier.get());
+        assertEquals("Tom", supplier.get());
+        assertEquals("", supplier.get());
+        assertEquals("Tom", supplier.get());
+        assertEquals(4, invocations.get());
+    }
+
+    @Test
+    public void test_ProviderMethodSupplier_error() throws NoSuchMethodException {
+        final Faker failingFaker = new Faker() {
+            @Override
+            public Name name() {
+                return new Name(this) {
+                    @Override
+                    public String firstName() {
+                        throw new StackOverflowError("failing provider method");
+                    }
+                };
+            }
+        };
+        final Method m = Name.class.getMethod("firstName");
+        final Supplier<String> supplier = ProviderMethodSupplier.bind(failingFaker, m, new HashMap<>());
+        assertThrows(StackOverflowError.class, () -> supplier.get());
+    }
+
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 berni3.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.huberb.datafaker.samples;
+
+import java.util.Arrays;
+import java.util.Random;
+import net.datafaker.service.RandomService;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author berni3
+ */
+public class AliasSamplerTest {
+
+    /**
+     * Return the chi-square statistic of observed counts, and weights.
+     * <p>
+     * Indexes having weight 0 are expected to be never observed.
+     */
+    static double chiSquare(long[] counts, double[] weights) {
+        long n = 0;
+        double sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            n += counts[i];
+            sum += weights[i];
+        }
+        double chiSquare = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (weights[i] == 0) {
+                assertEquals(0, counts[i], "index " + i);
+                continue;
+            }
+            final double expected = n * weights[i] / sum;
+            chiSquare += (counts[i] - expected) * (counts[i] - expected) / expected;
+        }
+        return chiSquare;
+    }
+
+    /**
+     * Return the 0.999 quantile of the chi-square distribution, using the
+     * Wilson-Hilferty approximation.
+     */
+    static double chiSquareQuantile999(int degreesOfFreedom) {
+        final double z = 3.090;
+        final double a = 2.0 / (9.0 * degreesOfFreedom);
+        return degreesOfFreedom * Math.pow(1.0 - a + z * Math.sqrt(a), 3);
+    }
+
+    static long[] sample(AliasSampler instance, RandomService random, int n) {
+        final long[] counts = new long[instance.size()];
+        for (int i = 0; i < n; i++) {
+            counts[instance.sample(random)] += 1;
+        }
+        return counts;
+    }
+
+    @Test
+    public void testSample_follows_weights() {
+        final double[] weights = {1, 2, 3, 4, 0, 10, 0.5};
+        final AliasSampler instance = new AliasSampler(weights);
+        final long[] counts = sample(instance, new RandomService(new Random(4711L)), 200_000);
+        final double chiSquare = chiSquare(counts, weights);
+        assertTrue(chiSquare < chiSquareQuantile999(5), "" + chiSquare);
+    }
+
+    @Test
+    public void testSample_uniform() {
+        final double[] weights = new double[100];
+        Arrays.fill(weights, 3.0);
+        final AliasSampler instance = new AliasSampler(weights);
+        final long[] counts = sample(instance, new RandomService(new Random(4711L)), 100_000);
+        final double chiSquare = chiSquare(counts, weights);
+        assertTrue(chiSquare < chiSquareQuantile999(99), "" + chiSquare);
+    }
+
+    @Test
+    public void testSample_single() {
+        final AliasSampler instance = new AliasSampler(new double[]{0, 0, 5});
+        final RandomService random = new RandomService(new Random(4711L));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(2, instance.sample(random));
+        }
+    }
+
+    @Test
+    public void testAliasSampler_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> new AliasSampler(new double[0]));
+        assertThrows(IllegalArgumentException.class, () -> new AliasSampler(new double[]{0, 0}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasSampler(new double[]{1, -1}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasSampler(new double[]{1, Double.NaN}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasSampler(new double[]{1, Double.POSITIVE_INFINITY}));
+    }
+}
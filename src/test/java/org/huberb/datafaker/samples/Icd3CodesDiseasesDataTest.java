@@ -15,9 +15,12 @@
  */
 package org.huberb.datafaker.samples;
 
+import java.util.Arrays;
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -83,4 +86,78 @@ public class Icd3CodesDiseasesDataTest {
 
     }
 
+    @Test
+    public void testShared() {
+        assertSame(Icd3CodesDiseasesData.shared(), Icd3CodesDiseasesData.shared());
+    }
+
+    @Test
+    public void testSlotOf() {
+        assertAll(
+                () -> assertEquals(0, Icd3CodesDiseasesData.slotOf("000")),
+                () -> assertEquals(901, Icd3CodesDiseasesData.slotOf("901")),
+                () -> assertEquals(1000, Icd3CodesDiseasesData.slotOf("A00")),
+                () -> assertEquals(3599, Icd3CodesDiseasesData.slotOf("Z99")),
+                () -> assertEquals(-1, Icd3CodesDiseasesData.slotOf("a00")),
+                () -> assertEquals(-1, Icd3CodesDiseasesData.slotOf("A0")),
+                () -> assertEquals(-1, Icd3CodesDiseasesData.slotOf("A0X")),
+                () -> assertEquals(-1, Icd3CodesDiseasesData.slotOf(null))
+        );
+    }
+
+    @Test
+    public void testIndexOf() {
+        final String[] icd3Codes = instance.icd3Codes();
+        for (int i = 0; i < icd3Codes.length; i++) {
+            assertEquals(i, instance.indexOf(icd3Codes[i]), icd3Codes[i]);
+        }
+        assertEquals(-1, instance.indexOf("code-does-not-exists"));
+    }
+
+    /**
+     * Malformed lines keep their index as placeholder, thus indexes of the
+     * following lines do not change.
+     */
+    @Test
+    public void testMalformed_lines_keep_index() {
+        final Icd3CodesDiseasesData data = new Icd3CodesDiseasesData(new String[]{
+            "B00@@b",
+            "malformed",
+            "A00@@a",
+            "a01@@lower case",
+            "B00@@duplicate",
+            "901@@accident"});
+        assertAll(
+                () -> assertEquals(6, data.size()),
+                () -> assertNull(data.icd3Code(1)),
+                () -> assertNull(data.disease(3)),
+                () -> assertEquals("A00", data.icd3Code(2)),
+                () -> assertEquals("B00", data.icd3Code(4)),
+                () -> assertEquals(0, data.indexOf("B00")),
+                () -> assertEquals("b", data.diseaseByCode("B00")),
+                () -> assertEquals(5, data.indexOf("901")),
+                // positions of 901, A00, B00
+                () -> assertEquals(3, data.positionOfSlot(Icd3CodesDiseasesData.COUNT_OF_SLOTS)),
+                () -> assertEquals(5, data.indexAtPosition(0)),
+                () -> assertEquals(2, data.indexAtPosition(1)),
+                () -> assertEquals(0, data.indexAtPosition(2))
+        );
+    }
+
+    /**
+     * Test that the positions of the slots are in the order of the codes.
+     */
+    @Test
+    public void testPositions() {
+        final String[] sortedCodes = instance.icd3Codes().clone();
+        Arrays.sort(sortedCodes);
+        for (int position = 0; position < sortedCodes.length; position++) {
+            assertEquals(sortedCodes[position], instance.icd3Code(instance.indexAtPosition(position)));
+        }
+        assertEquals(0, instance.positionOfSlot(0));
+        assertEquals(sortedCodes.length, instance.positionOfSlot(Icd3CodesDiseasesData.COUNT_OF_SLOTS));
+        final long countOfA0x = Arrays.stream(sortedCodes).filter(s -> s.startsWith("A0")).count();
+        assertEquals(countOfA0x, instance.positionOfSlot(Icd3CodesDiseasesData.slotOf("A10"))
+                - instance.positionOfSlot(Icd3CodesDiseasesData.slotOf("A00")));
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.huberb.datafaker.samples;
 
+import java.io.StringReader;
 import java.util.Locale;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
@@ -22,6 +23,8 @@ import net.datafaker.Faker;
 import org.huberb.datafaker.cli.Adapters;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -66,4 +69,82 @@ public class Icd3DiseasesTest {
         assertTrue(!result.isBlank(), "" + result);
     }
 
+    @Test
+    public void testIcdCodeInRange() {
+        for (int i = 0; i < 100; i++) {
+            String result = instance.icdCodeInRange("A00-A09");
+            assertTrue(Pattern.matches("A0\\d", result), "" + result);
+        }
+        assertEquals("D10", instance.icdCodeInRange("D10"));
+        assertEquals("D10", instance.icdCodeInRange("D10-D10"));
+    }
+
+    @Test
+    public void testIcdCodeInRange_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> instance.icdCodeInRange("A09-A00"));
+        assertThrows(IllegalArgumentException.class, () -> instance.icdCodeInRange("A0-A09"));
+        assertThrows(IllegalArgumentException.class, () -> instance.icdCodeInRange("000-099"));
+    }
+
+    @Test
+    public void testIcdCodeWithPrefix() {
+        for (int i = 0; i < 100; i++) {
+            String result = instance.icdCodeWithPrefix("J1");
+            assertTrue(Pattern.matches("J1\\d", result), "" + result);
+        }
+        assertTrue(icdCodePredicate.test(instance.icdCodeWithPrefix("C")));
+        assertEquals("D10", instance.icdCodeWithPrefix("D10"));
+        assertThrows(IllegalArgumentException.class, () -> instance.icdCodeWithPrefix("D100"));
+        assertThrows(IllegalArgumentException.class, () -> instance.icdCodeWithPrefix("d"));
+    }
+
+    @Test
+    public void testDiseaseInRange() {
+        assertEquals(instance.diseaseByCode("D10"), instance.diseaseInRange("D10"));
+        assertNotNull(instance.diseaseInRange("A00-B99"));
+        assertNull(instance.diseaseByCode("code-does-not-exists"));
+    }
+
+    @Test
+    public void testIcdCodeWeighted() {
+        String result = instance.icdCodeWeighted();
+        assertNotNull(result);
+        assertNotNull(instance.diseaseByCode(result), "" + result);
+        assertNotNull(instance.diseaseWeighted());
+    }
+
+    /**
+     * Test that weighted codes follow the weights of the resource.
+     */
+    @Test
+    public void testIcdCodeWeighted_follows_weights() {
+        final Icd3CodesDiseasesData icd3CodesDiseases = Icd3CodesDiseasesData.shared();
+        final double[] weights = Icd3Diseases.loadWeights(icd3CodesDiseases);
+        assertEquals(400.0, weights[icd3CodesDiseases.indexOf("I10")]);
+        assertEquals(1.0, weights[icd3CodesDiseases.indexOf("A00")]);
+
+        final Faker seededFaker = Adapters.FakerFactory.createFakerFromLocale(Locale.GERMAN, 4711L);
+        final Icd3Diseases seededInstance = Faker.getProvider(Icd3Diseases.class, Icd3Diseases::new, seededFaker);
+        final long[] counts = new long[weights.length];
+        for (int i = 0; i < 500_000; i++) {
+            counts[icd3CodesDiseases.indexOf(seededInstance.icdCodeWeighted())] += 1;
+        }
+        final double chiSquare = AliasSamplerTest.chiSquare(counts, weights);
+        assertTrue(chiSquare < AliasSamplerTest.chiSquareQuantile999(weights.length - 1), "" + chiSquare);
+    }
+
+    @Test
+    public void testReadWeights() {
+        final Icd3CodesDiseasesData icd3CodesDiseases = Icd3CodesDiseasesData.shared();
+        final double[] weights = Icd3Diseases.readWeights(
+                new StringReader("weights: {D10: 7, XYZ: 3}"), icd3CodesDiseases);
+        assertEquals(7.0, weights[icd3CodesDiseases.indexOf("D10")]);
+        assertEquals(1.0, weights[icd3CodesDiseases.indexOf("A00")]);
+        assertThrows(IllegalStateException.class, () -> Icd3Diseases.readWeights(
+                new StringReader("weights: {D10: -1}"), icd3CodesDiseases));
+        assertThrows(IllegalStateException.class, () -> Icd3Diseases.readWeights(
+                new StringReader("weights: {D10: many}"), icd3CodesDiseases));
+        assertThrows(IllegalStateException.class, () -> Icd3Diseases.readWeights(
+                new StringReader("codes: []"), icd3CodesDiseases));
+    }
 }
@@ -15,13 +15,17 @@
  */
 package org.huberb.datafaker.samples;
 
+import java.io.StringReader;
 import java.util.Locale;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import net.datafaker.Faker;
 import org.huberb.datafaker.cli.Adapters;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -66,4 +70,28 @@ public class Icd3DiseasesYamlTest {
         assertTrue(!result.isBlank(), "" + result);
     }
 
+    @Test
+    public void testDictionary() {
+        final Icd3DiseasesYaml.Dictionary dictionary = Icd3DiseasesYaml.shared();
+        assertSame(dictionary, Icd3DiseasesYaml.shared());
+        assertTrue(dictionary.icd3Codes.length > 1000, "" + dictionary.icd3Codes.length);
+        assertEquals(dictionary.icd3Codes.length, dictionary.diseases.length);
+        assertEquals("A00", dictionary.icd3Codes[0]);
+        assertEquals("Cholera", dictionary.diseases[0]);
+        for (String icd3Code : dictionary.icd3Codes) {
+            assertTrue(icd3Code.length() == 3, icd3Code);
+        }
+    }
+
+    @Test
+    public void testDictionary_read() {
+        final String yaml = "de:\n  faker:\n    diseases:\n      codes_diseases: [\"A00@@Cholera\", \"A01@@Typhus\"]\n";
+        final Icd3DiseasesYaml.Dictionary dictionary = Icd3DiseasesYaml.Dictionary.read(new StringReader(yaml));
+        assertArrayEquals(new String[]{"A00", "A01"}, dictionary.icd3Codes);
+        assertArrayEquals(new String[]{"Cholera", "Typhus"}, dictionary.diseases);
+        assertThrows(IllegalStateException.class, () -> Icd3DiseasesYaml.Dictionary.read(new StringReader("de: {}")));
+        final Icd3DiseasesYaml.Dictionary badData = Icd3DiseasesYaml.Dictionary.read(
+                new StringReader("de: {faker: {diseases: {codes_diseases: [A00@@Cholera, //]}}}"));
+        assertArrayEquals(new String[]{"A00"}, badData.icd3Codes);
+    }
 }
@@ -15,16 +15,24 @@
  */
 package org.huberb.datafaker.samples;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.Locale;
 import java.util.function.Predicate;
 import net.datafaker.Faker;
 import org.huberb.datafaker.cli.Adapters;
 import org.junit.jupiter.api.Assertions;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
 
 /**
  *
@@ -36,7 +44,7 @@ public class SvnrProviderTest {
     private static Predicate<String> allDigitsPredicate = s -> {
         for (int i = 0; i < s.length(); i++) {
             char c = s.charAt(i);
-            if (!Character.isDigit(c)) {
+            if (!(c >= '0' && c <= '9')) {
                 return false;
             }
         }
@@ -89,4 +97,94 @@ public class SvnrProviderTest {
         //System.out.format("testSvnrFor %s%n", result);
     }
 
+    /**
+     * Test of svnrFor method, of class SvnrProvider.
+     * <p>
+     * Only ascii digits are valid, arabic-indic digits 010180 are rejected.
+     */
+    @Test
+    public void testSvnrFor_non_ascii_digits() {
+        assertThrows(RuntimeException.class, () -> instance.svnrFor("\u0660\u0661\u0660\u0661\u0668\u0660"));
+    }
+
+    @Test
+    public void testPruefziffer() {
+        assertEquals(7, SvnrProvider.pruefziffer(123, 10180));
+        assertEquals("1237010180".substring(3, 4), "" + SvnrProvider.pruefziffer(123, 10180));
+    }
+
+    /**
+     * Assert that svnrs are valid, having a valid pruefziffer, and birthday.
+     */
+    static void assertValidSvnrs(String svnrs, String separator) {
+        final int stride = SvnrProvider.SVNR_LENGTH + separator.length();
+        assertEquals(0, svnrs.length() % stride, svnrs);
+        for (int i = 0; i < svnrs.length(); i += stride) {
+            final String svnr = svnrs.substring(i, i + SvnrProvider.SVNR_LENGTH);
+            assertTrue(allDigitsPredicate.test(svnr), svnr);
+            assertEquals(separator, svnrs.substring(i + SvnrProvider.SVNR_LENGTH, i + stride));
+            final int laufendeNummer = Integer.parseInt(svnr.substring(0, 3));
+            final int geburtsdatum = Integer.parseInt(svnr.substring(4));
+            assertTrue(laufendeNummer >= 100, svnr);
+            assertEquals(svnr.charAt(3) - '0', SvnrProvider.pruefziffer(laufendeNummer, geburtsdatum), svnr);
+            final int month = geburtsdatum / 100 % 100;
+            final int day = geburtsdatum % 100;
+            assertTrue(month >= 1 && month <= 12 && day >= 1 && day <= 31, svnr);
+        }
+    }
+
+    @Test
+    public void testFillSvnrs_chars() {
+        final char[] buffer = new char[2 + 1000 * SvnrProvider.SVNR_LENGTH];
+        buffer[0] = 'x';
+        buffer[1] = 'y';
+        instance.fillSvnrs(buffer, 2, 1000);
+        assertEquals("xy", new String(buffer, 0, 2));
+        assertValidSvnrs(new String(buffer, 2, buffer.length - 2), "");
+    }
+
+    @Test
+    public void testFillSvnrs_bytes() {
+        final byte[] buffer = new byte[1000 * SvnrProvider.SVNR_LENGTH + 1];
+        instance.fillSvnrs(buffer, 0, 1000);
+        assertEquals(0, buffer[buffer.length - 1]);
+        assertValidSvnrs(new String(buffer, 0, buffer.length - 1, StandardCharsets.US_ASCII), "");
+    }
+
+    @Test
+    public void testFillSvnrs_out_of_range() {
+        assertThrows(IndexOutOfBoundsException.class, () -> instance.fillSvnrs(new char[19], 0, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> instance.fillSvnrs(new char[20], 1, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> instance.fillSvnrs(new byte[20], -1, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> instance.fillSvnrs(new byte[20], 0, -1));
+    }
+
+    @Test
+    public void testWriteSvnrs() throws IOException {
+        final StringWriter sw = new StringWriter();
+        instance.writeSvnrs(sw, 2500);
+        assertEquals(2500 * (SvnrProvider.SVNR_LENGTH + 1), sw.toString().length());
+        assertValidSvnrs(sw.toString(), "\n");
+    }
+
+    @Test
+    public void testGeburtsdatumOfEpochDay() {
+        final DateTimeFormatter yyMMdd = DateTimeFormatter.ofPattern("yyMMdd");
+        for (int epochDay = -80000; epochDay < 80000; epochDay += 7) {
+            final String expected = LocalDate.ofEpochDay(epochDay).format(yyMMdd);
+            final int result = SvnrProvider.BirthdayRange.geburtsdatumOfEpochDay(epochDay);
+            assertEquals(expected, String.format("%06d", result), "" + epochDay);
+        }
+    }
+
+    @Test
+    public void testBirthdayRange() {
+        final SvnrProvider.BirthdayRange birthdayRange = new SvnrProvider.BirthdayRange(LocalDate.of(2023, 5, 17));
+        assertEquals(LocalDate.of(1924, 5, 17).toEpochDay(), birthdayRange.fromEpochDay);
+        assertEquals(LocalDate.of(2022, 5, 17).toEpochDay(), birthdayRange.toEpochDay);
+        for (int i = 0; i < 100; i++) {
+            final int result = birthdayRange.genGeburtsdatum(faker.random());
+            assertTrue(result >= 0 && result <= 991231, "" + result);
+        }
+    }
 }